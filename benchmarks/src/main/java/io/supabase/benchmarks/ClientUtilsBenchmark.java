@@ -0,0 +1,34 @@
+package io.supabase.benchmarks;
+
+import io.supabase.exceptions.MalformedHeadersException;
+import io.supabase.utils.ClientUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the default headers, which validates them with a regex and splits them on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientUtilsBenchmark {
+    @Setup
+    public void setup() {
+        System.setProperty("gotrue.headers", "apikey=superSecretAnonKey, X-Client-Info=gotrue-java, Accept:application/json");
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("gotrue.headers");
+    }
+
+    @Benchmark
+    public Map<String, String> loadHeaders() throws MalformedHeadersException {
+        return ClientUtils.loadHeaders();
+    }
+}
@@ -0,0 +1,50 @@
+package io.supabase.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.supabase.data.dto.AuthenticationDto;
+import io.supabase.data.dto.UserDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of GoTrue responses, with a mapper configured like the one of the {@code RestTemplate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoBenchmark {
+    private static final String USER = "{\"id\":\"a942b3d1-3a52-4457-8c4f-88d07c2dbe30\",\"aud\":\"authenticated\","
+            + "\"role\":\"authenticated\",\"email\":\"email@example.com\",\"confirmed_at\":\"2021-01-04T17:08:44.713Z\","
+            + "\"last_sign_in_at\":\"2021-01-04T17:08:44.713Z\",\"app_metadata\":{\"provider\":\"email\"},"
+            + "\"user_metadata\":{\"name\":\"UserName\",\"theme\":\"dark\"},"
+            + "\"created_at\":\"2021-01-04T17:08:44.71Z\",\"updated_at\":\"2021-01-04T17:08:44.714Z\"}";
+    private ObjectMapper mapper;
+    private byte[] user;
+    private byte[] authentication;
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        user = USER.getBytes(StandardCharsets.UTF_8);
+        authentication = ("{\"access_token\":\"" + Tokens.accessToken() + "\",\"token_type\":\"bearer\","
+                + "\"expires_in\":3600,\"refresh_token\":\"IuEOLnBcq5ojGFgNGP4LJQ\",\"user\":" + USER + "}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public UserDto user() throws IOException {
+        return mapper.readValue(user, UserDto.class);
+    }
+
+    @Benchmark
+    public AuthenticationDto authentication() throws IOException {
+        return mapper.readValue(authentication, AuthenticationDto.class);
+    }
+}
@@ -0,0 +1,43 @@
+package io.supabase.benchmarks;
+
+import io.supabase.GoTrueApi;
+import io.supabase.data.dto.UserDto;
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.utils.HttpTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An authenticated call, which adds the Authorization header to a copy of the default headers, against a
+ * {@link StubRequestFactory}, so the headers, the request and the reading of the user are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoTrueApiBenchmark {
+    private GoTrueApi api;
+    private String jwt;
+
+    @Setup
+    public void setup() throws UrlNotFoundException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("apikey", "superSecretAnonKey");
+        headers.put("X-Client-Info", "gotrue-java");
+        api = new GoTrueApi("http://localhost:9999", headers,
+                new HttpTransport(new StubRequestFactory(StubRequestFactory.USER))) {
+        };
+        jwt = Tokens.accessToken();
+    }
+
+    @Benchmark
+    public UserDto getUser() throws ApiException {
+        return api.getUser(jwt);
+    }
+}
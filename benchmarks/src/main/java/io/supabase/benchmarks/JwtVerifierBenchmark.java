@@ -0,0 +1,95 @@
+package io.supabase.benchmarks;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.exceptions.JwtSecretNotFoundException;
+import io.supabase.jwt.Hs256TokenDecoder;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.VerifiedTokenCache;
+import io.supabase.utils.ClientUtils;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-call key setup of the former {@code ClientUtils.parseJwt} with a reused {@link JwtVerifier}.
+ * <p>
+ * Run with {@code -prof gc} to see the bytes allocated per validation ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerifierBenchmark {
+    private String jwt;
+    private JwtVerifier verifier;
+    private JwtVerifier cachedVerifier;
+    private Hs256TokenDecoder decoder;
+
+    @Setup
+    public void setup() {
+        System.setProperty("gotrue.jwt.secret", Tokens.SECRET);
+        jwt = Tokens.accessToken();
+        verifier = new JwtVerifier(Tokens.SECRET);
+        cachedVerifier = new JwtVerifier(Tokens.SECRET, new VerifiedTokenCache(1024));
+        decoder = new Hs256TokenDecoder(Tokens.SECRET);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("gotrue.jwt.secret");
+    }
+
+    /**
+     * The path before the verifier was introduced: secret lookup, key and parser set up for every token.
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public ParsedToken perCallSetup() {
+        String secret = System.getenv("GOTRUE_JWT_SECRET");
+        if (secret == null) {
+            secret = System.getProperty("gotrue.jwt.secret");
+        }
+        Key hmacKey = new SecretKeySpec(secret.getBytes(), SignatureAlgorithm.HS256.getJcaName());
+        Jws<Claims> claims = Jwts.parser().setSigningKey(hmacKey).parseClaimsJws(jwt);
+        ParsedToken parsed = new ParsedToken();
+        parsed.setExp(claims.getBody().getExpiration());
+        parsed.setSub(claims.getBody().getSubject());
+        parsed.setEmail((String) claims.getBody().get("email"));
+        Map<String, String> appData = (Map<String, String>) claims.getBody().get("app_metadata");
+        parsed.setAppMetadata(appData != null ? appData : new HashMap<>());
+        Map<String, String> userData = (Map<String, String>) claims.getBody().get("user_metadata");
+        parsed.setUserMetadata(userData != null ? userData : new HashMap<>());
+        parsed.setRole((String) claims.getBody().get("role"));
+        return parsed;
+    }
+
+    @Benchmark
+    public ParsedToken clientUtils() throws JwtSecretNotFoundException {
+        return ClientUtils.parseJwt(jwt);
+    }
+
+    @Benchmark
+    public ParsedToken verifier() {
+        return verifier.parse(jwt);
+    }
+
+    @Benchmark
+    public ParsedToken cachedVerifier() {
+        return cachedVerifier.parse(jwt);
+    }
+
+    @Benchmark
+    public ParsedToken decoder() {
+        return decoder.decode(jwt);
+    }
+}
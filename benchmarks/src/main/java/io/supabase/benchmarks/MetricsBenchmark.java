@@ -0,0 +1,56 @@
+package io.supabase.benchmarks;
+
+import io.supabase.GoTrueApi;
+import io.supabase.data.dto.AuthenticationDto;
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.metrics.ErrorKind;
+import io.supabase.metrics.RequestMetrics;
+import io.supabase.utils.HttpTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of recording requests with {@link RequestMetrics}. {@code signInWithEmail} runs against a
+ * {@link StubRequestFactory} with the metrics {@code off} and {@code on}, {@code record} is the listener alone,
+ * called by four threads for the same operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+    @Param({"off", "on"})
+    public String metrics;
+
+    private GoTrueApi api;
+    private RequestMetrics requestMetrics;
+
+    @Setup
+    public void setup() throws UrlNotFoundException {
+        api = new GoTrueApi("http://localhost:9999", new HashMap<>(),
+                new HttpTransport(StubRequestFactory.authentication())) {
+        };
+        requestMetrics = new RequestMetrics();
+        if ("on".equals(metrics)) {
+            api.setMetricsListener(requestMetrics);
+        }
+    }
+
+    @Benchmark
+    public AuthenticationDto signInWithEmail() throws ApiException {
+        return api.signInWithEmail("email@example.com", "secret password");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void record() {
+        long nanos = ThreadLocalRandom.current().nextLong(100_000, 50_000_000);
+        requestMetrics.onRequest("signInWithEmail", "POST /token", nanos, 200, 64, 1024, ErrorKind.NONE);
+    }
+}
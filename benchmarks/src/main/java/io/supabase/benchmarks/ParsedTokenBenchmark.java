@@ -0,0 +1,61 @@
+package io.supabase.benchmarks;
+
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.jwt.Hs256TokenDecoder;
+import io.supabase.jwt.JwtVerifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the metadata claims for tokens with several kilobytes of user metadata.
+ * <p>
+ * Reading only the standard claims should not allocate anything for the metadata maps,
+ * run with {@code -prof gc} to compare {@code gc.alloc.rate.norm} of the two access patterns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsedTokenBenchmark {
+    /**
+     * Number of user metadata entries, 16 is about 1 KiB and 128 about 8 KiB of JSON.
+     */
+    @Param({"0", "16", "128"})
+    private int entries;
+    private String jwt;
+    private JwtVerifier verifier;
+    private Hs256TokenDecoder decoder;
+
+    @Setup
+    public void setup() {
+        jwt = Tokens.largeMetadataToken(entries);
+        verifier = new JwtVerifier(Tokens.SECRET);
+        decoder = new Hs256TokenDecoder(Tokens.SECRET);
+    }
+
+    @Benchmark
+    public String decodeStandardClaims() {
+        ParsedToken parsed = decoder.decode(jwt);
+        return parsed.getSub() + parsed.getRole() + parsed.getExp().getTime();
+    }
+
+    @Benchmark
+    public Map<String, String> decodeUserMetadata() {
+        return decoder.decode(jwt).getUserMetadata();
+    }
+
+    @Benchmark
+    public String verifierStandardClaims() {
+        ParsedToken parsed = verifier.parse(jwt);
+        return parsed.getSub() + parsed.getRole() + parsed.getExp().getTime();
+    }
+
+    @Benchmark
+    public Map<String, String> verifierUserMetadata() {
+        return verifier.parse(jwt).getUserMetadata();
+    }
+}
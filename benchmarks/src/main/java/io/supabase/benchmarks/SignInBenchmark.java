@@ -0,0 +1,121 @@
+package io.supabase.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.GoTrueClient;
+import io.supabase.utils.ExecutionMode;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 10k concurrent sign-ins of a {@link GoTrueClient} against a local stub server, which answers after
+ * {@code latencyMs}. The {@code platform} mode is the Java 8 one: a bounded pool of platform threads over
+ * the pooled Apache client. The {@code virtual} mode is the one of {@link ExecutionMode} on Java 21+:
+ * a virtual thread per call over {@code java.net.http.HttpClient}, it has to be run on JDK 21+.
+ * Both modes may open up to {@code maxConnections}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SignInBenchmark {
+    private static final int CONCURRENT_SIGN_INS = 10_000;
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+    @Param({"200", "5000"})
+    public int maxConnections;
+    @Param({"20"})
+    public int latencyMs;
+
+    private HttpServer server;
+    private ScheduledExecutorService responder;
+    private HttpTransport transport;
+    private ExecutorService executor;
+    private GoTrueClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        byte[] body = ("{\"access_token\":\"" + Tokens.accessToken() + "\",\"token_type\":\"bearer\","
+                + "\"expires_in\":3600,\"refresh_token\":\"refresh\",\"user\":{\"id\":\"" + UUID.randomUUID() + "\"}}")
+                .getBytes(StandardCharsets.UTF_8);
+        responder = Executors.newScheduledThreadPool(4);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), CONCURRENT_SIGN_INS);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        // answered from the scheduler, a slow GoTrue does not hold a thread of the stub
+        server.createContext("/token", exchange -> {
+            exchange.getRequestBody().close();
+            responder.schedule(() -> respond(exchange, body), latencyMs, TimeUnit.MILLISECONDS);
+        });
+        server.start();
+
+        HttpTransportConfig config = new HttpTransportConfig();
+        config.setMaxConnections(maxConnections);
+        config.setMaxConnectionsPerRoute(maxConnections);
+        config.setConnectionRequestTimeout(0);
+        if ("virtual".equals(mode)) {
+            if (!ExecutionMode.isVirtual()) {
+                throw new IllegalStateException("The virtual mode needs JDK 21+");
+            }
+            transport = ExecutionMode.newTransport(config);
+            executor = ExecutionMode.newCallExecutor();
+        } else {
+            transport = new HttpTransport(config);
+            executor = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        }
+        client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport) {
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        transport.close();
+        server.stop(0);
+        responder.shutdownNow();
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_SIGN_INS)
+    public int signIn() throws Exception {
+        List<Future<?>> calls = new ArrayList<>(CONCURRENT_SIGN_INS);
+        for (int i = 0; i < CONCURRENT_SIGN_INS; i++) {
+            calls.add(executor.submit(() -> client.signIn("user@example.com", "password")));
+        }
+        for (Future<?> call : calls) {
+            call.get();
+        }
+        return calls.size();
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) {
+        try {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+}
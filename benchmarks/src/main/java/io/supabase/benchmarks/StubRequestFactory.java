@@ -0,0 +1,126 @@
+package io.supabase.benchmarks;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers every request from memory with the same json body, so a benchmark measures the building, writing
+ * and reading of requests without any network I/O.
+ */
+final class StubRequestFactory implements ClientHttpRequestFactory {
+    static final String USER = "{\"id\":\"a942b3d1-3a52-4457-8c4f-88d07c2dbe30\",\"aud\":\"authenticated\","
+            + "\"role\":\"authenticated\",\"email\":\"email@example.com\",\"confirmed_at\":\"2021-01-04T17:08:44.713Z\","
+            + "\"last_sign_in_at\":\"2021-01-04T17:08:44.713Z\",\"app_metadata\":{\"provider\":\"email\"},"
+            + "\"user_metadata\":{\"name\":\"UserName\",\"theme\":\"dark\"},"
+            + "\"created_at\":\"2021-01-04T17:08:44.71Z\",\"updated_at\":\"2021-01-04T17:08:44.714Z\"}";
+
+    private final byte[] response;
+
+    StubRequestFactory(String response) {
+        this.response = response.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a factory answering with the authentication GoTrue returns for a sign-in or a refresh.
+     */
+    static StubRequestFactory authentication() {
+        return new StubRequestFactory("{\"access_token\":\"" + Tokens.accessToken() + "\",\"token_type\":\"bearer\","
+                + "\"expires_in\":3600,\"refresh_token\":\"IuEOLnBcq5ojGFgNGP4LJQ\",\"user\":" + USER + "}");
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new StubRequest(uri, httpMethod, response);
+    }
+
+    private static final class StubRequest implements ClientHttpRequest {
+        private final URI uri;
+        private final HttpMethod method;
+        private final byte[] response;
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+
+        private StubRequest(URI uri, HttpMethod method, byte[] response) {
+            this.uri = uri;
+            this.method = method;
+            this.response = response;
+        }
+
+        @Override
+        public ClientHttpResponse execute() {
+            return new StubResponse(response);
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return method.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private static final class StubResponse implements ClientHttpResponse {
+        private final byte[] body;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private StubResponse(byte[] body) {
+            this.body = body;
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setContentLength(body.length);
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return HttpStatus.OK;
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return HttpStatus.OK.value();
+        }
+
+        @Override
+        public String getStatusText() {
+            return HttpStatus.OK.getReasonPhrase();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
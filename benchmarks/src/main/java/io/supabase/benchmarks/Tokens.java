@@ -0,0 +1,50 @@
+package io.supabase.benchmarks;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds tokens shaped like the ones GoTrue issues.
+ */
+public final class Tokens {
+    public static final String SECRET = "superSecretJwtToken";
+
+    private Tokens() {
+    }
+
+    public static String accessToken() {
+        return accessToken(new HashMap<>());
+    }
+
+    /**
+     * @param entries the number of user metadata entries, each around 64 bytes.
+     * @return a token with a user metadata claim of the given size.
+     */
+    public static String largeMetadataToken(int entries) {
+        Map<String, Object> userMetadata = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            userMetadata.put("preference_" + i, "a value that a profile page stored for setting " + i);
+        }
+        return accessToken(userMetadata);
+    }
+
+    private static String accessToken(Map<String, Object> userMetadata) {
+        Map<String, Object> appMetadata = new HashMap<>();
+        appMetadata.put("provider", "email");
+        return Jwts.builder()
+                .setHeaderParam("typ", "JWT")
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .claim("email", "email@example.com")
+                .claim("app_metadata", appMetadata)
+                .claim("user_metadata", userMetadata)
+                .claim("role", "authenticated")
+                .signWith(SignatureAlgorithm.HS256, SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+}
@@ -0,0 +1,180 @@
+package io.supabase.reactor;
+
+import io.supabase.GoTrueAsyncApi;
+import io.supabase.data.dto.*;
+import io.supabase.exceptions.ApiException;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Reactive client for the GoTrue API, backed by the non-blocking {@link GoTrueAsyncApi}.
+ * <p>
+ * Every {@link Mono} is cold: the request is sent on subscription and aborted, freeing its connection,
+ * when the subscription is cancelled. Failed requests signal an {@link ApiException}, missing parameters an
+ * {@link IllegalArgumentException}. Bulk operations only request as many elements from their source as they
+ * have requests in flight, which is bounded by the concurrency of the client.
+ */
+public class ReactiveGoTrueClient {
+    /**
+     * Default maximum number of requests in flight for a single bulk operation.
+     */
+    public static final int DEFAULT_CONCURRENCY = 32;
+
+    private final GoTrueAsyncApi api;
+    private final int concurrency;
+
+    /**
+     * @param api the api requests are sent with.
+     * @throws IllegalArgumentException if the api is not specified.
+     */
+    public ReactiveGoTrueClient(GoTrueAsyncApi api) {
+        this(api, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * @param api         the api requests are sent with.
+     * @param concurrency the maximum number of requests in flight for a single bulk operation.
+     * @throws IllegalArgumentException if the api is not specified or the concurrency is not positive.
+     */
+    public ReactiveGoTrueClient(GoTrueAsyncApi api, int concurrency) {
+        if (api == null) {
+            throw new IllegalArgumentException("The parameter >api< is required!");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("The parameter >concurrency< has to be positive!");
+        }
+        this.api = api;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Logs in an existing user using their email address and password.
+     *
+     * @param email    The email address of the user.
+     * @param password The password of the user.
+     * @return Details about the authentication.
+     */
+    public Mono<AuthenticationDto> signIn(String email, String password) {
+        return check(email, "email")
+                .then(check(password, "password"))
+                .then(request(() -> api.signInWithEmail(email, password)));
+    }
+
+    /**
+     * Logs in an existing user using their email address and password.
+     *
+     * @param credentials Object with the email and the password of the user.
+     * @return Details about the authentication.
+     */
+    public Mono<AuthenticationDto> signIn(CredentialsDto credentials) {
+        return check(credentials, "credentials")
+                .then(Mono.defer(() -> signIn(credentials.getEmail(), credentials.getPassword())));
+    }
+
+    /**
+     * Generates a new JWT.
+     *
+     * @param refreshToken A valid refresh token that was returned on login.
+     * @return The updated information with the refreshed token
+     */
+    public Mono<AuthenticationDto> refresh(String refreshToken) {
+        return check(refreshToken, "refreshToken")
+                .then(request(() -> api.refreshAccessToken(refreshToken)));
+    }
+
+    /**
+     * Gets details about the user.
+     *
+     * @param jwt A valid, logged-in JWT.
+     * @return details about the user.
+     */
+    public Mono<UserDto> getUser(String jwt) {
+        return check(jwt, "jwt")
+                .then(request(() -> api.getUser(jwt)));
+    }
+
+    /**
+     * Update attributes of given user.
+     *
+     * @param jwt        of the user you want to update.
+     * @param attributes The data you want to update
+     * @return details of the updated user.
+     */
+    public Mono<UserUpdatedDto> update(String jwt, UserAttributesDto attributes) {
+        return check(jwt, "jwt")
+                .then(check(attributes, "attributes"))
+                .then(request(() -> api.updateUser(jwt, attributes)));
+    }
+
+    /**
+     * Signs out the user of the given jwt.
+     *
+     * @param jwt A valid jwt.
+     * @return completes once the user is signed out.
+     */
+    public Mono<Void> signOut(String jwt) {
+        return check(jwt, "jwt")
+                .then(request(() -> api.signOut(jwt)));
+    }
+
+    /**
+     * Get the settings from the gotrue server.
+     *
+     * @return settings from the gotrue server.
+     */
+    public Mono<SettingsDto> settings() {
+        return request(api::getSettings);
+    }
+
+    /**
+     * Gets details about the users of many tokens, with at most the concurrency of this client in flight.
+     *
+     * @param jwts valid, logged-in JWTs.
+     * @return details about the users, in the order of the given tokens.
+     */
+    public Flux<UserDto> getUsers(Publisher<String> jwts) {
+        return Flux.from(jwts).flatMapSequential(this::getUser, concurrency);
+    }
+
+    /**
+     * Generates new JWTs for many refresh tokens, with at most the concurrency of this client in flight.
+     *
+     * @param refreshTokens valid refresh tokens.
+     * @return the updated information, in the order of the given refresh tokens.
+     */
+    public Flux<AuthenticationDto> refreshAll(Publisher<String> refreshTokens) {
+        return Flux.from(refreshTokens).flatMapSequential(this::refresh, concurrency);
+    }
+
+    private static <T> Mono<T> request(Supplier<CompletableFuture<T>> call) {
+        return Mono.create(sink -> {
+            CompletableFuture<T> future = call.get();
+            sink.onCancel(() -> future.cancel(true));
+            future.whenComplete((value, e) -> {
+                if (e instanceof CancellationException) {
+                    // only cancelled by the subscriber, which is gone
+                    return;
+                }
+                if (e != null) {
+                    sink.error(e instanceof CompletionException ? e.getCause() : e);
+                } else {
+                    sink.success(value);
+                }
+            });
+        });
+    }
+
+    private static Mono<Void> check(Object obj, String name) {
+        boolean invalid = obj == null || obj instanceof String && ((String) obj).isEmpty();
+        if (invalid) {
+            return Mono.error(new IllegalArgumentException(String.format("The parameter >%s< is required!", name)));
+        }
+        return Mono.empty();
+    }
+}
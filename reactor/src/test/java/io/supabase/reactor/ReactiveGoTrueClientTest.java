@@ -0,0 +1,127 @@
+package io.supabase.reactor;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.GoTrueAsyncApi;
+import io.supabase.data.dto.UserDto;
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.utils.AsyncHttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ReactiveGoTrueClientTest {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private HttpServer server;
+    private AsyncHttpTransport transport;
+    private ReactiveGoTrueClient client;
+
+    @BeforeEach
+    void setUp() throws IOException, UrlNotFoundException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            try {
+                String path = exchange.getRequestURI().getPath();
+                String auth = exchange.getRequestHeaders().getFirst("Authorization");
+                Thread.sleep(path.equals("/settings") ? 2000 : 20);
+                int status = "Bearer invalid".equals(auth) ? 401 : 200;
+                String body = path.equals("/user") ? "{\"email\":\"" + auth.substring(7) + "\"}" : "{}";
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (InterruptedException | IOException e) {
+                exchange.close();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        server.start();
+        transport = new AsyncHttpTransport(new HttpTransportConfig());
+        GoTrueAsyncApi api = new GoTrueAsyncApi("http://localhost:" + server.getAddress().getPort(), null, transport);
+        client = new ReactiveGoTrueClient(api, 4);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ReactiveGoTrueClient(null));
+    }
+
+    @Test
+    void getUser() {
+        StepVerifier.create(client.getUser("a@example.com"))
+                .assertNext(user -> Assertions.assertEquals("a@example.com", user.getEmail()))
+                .verifyComplete();
+        StepVerifier.create(client.getUser("invalid"))
+                .expectError(ApiException.class)
+                .verify();
+        StepVerifier.create(client.getUser(""))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void lazy() throws InterruptedException {
+        client.getUser("a@example.com");
+        Thread.sleep(100);
+        Assertions.assertEquals(0, maxInFlight.get());
+    }
+
+    @Test
+    void cancel_frees_connection() throws InterruptedException {
+        Disposable request = client.settings().subscribe();
+        Thread.sleep(200);
+        Assertions.assertEquals(1, transport.getPoolStats().getLeased());
+        request.dispose();
+        Thread.sleep(200);
+        Assertions.assertEquals(0, transport.getPoolStats().getLeased());
+    }
+
+    @Test
+    void getUsers_bounded() {
+        AtomicInteger requested = new AtomicInteger();
+        Flux<String> jwts = Flux.range(0, 40)
+                .map(i -> i + "@example.com")
+                .doOnRequest(n -> requested.addAndGet((int) Math.min(n, Integer.MAX_VALUE)));
+        List<UserDto> users = client.getUsers(jwts).collectList().block(Duration.ofSeconds(10));
+        Assertions.assertEquals(40, users.size());
+        for (int i = 0; i < users.size(); i++) {
+            Assertions.assertEquals(i + "@example.com", users.get(i).getEmail());
+        }
+        Assertions.assertTrue(maxInFlight.get() <= 4, "in flight: " + maxInFlight.get());
+
+        // a slow subscriber holds back the source
+        requested.set(0);
+        StepVerifier.create(client.getUsers(jwts), 1)
+                .expectNextCount(1)
+                .thenAwait(Duration.ofMillis(300))
+                .then(() -> Assertions.assertTrue(requested.get() <= 8, "requested: " + requested.get()))
+                .thenCancel()
+                .verify();
+    }
+}
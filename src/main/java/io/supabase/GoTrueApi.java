@@ -3,21 +3,186 @@ package io.supabase;
 import io.supabase.data.dto.*;
 import io.supabase.exceptions.ApiException;
 import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.metrics.ErrorKind;
+import io.supabase.metrics.MetricsListener;
+import io.supabase.utils.ClientUtils;
+import io.supabase.utils.ConcurrencyLimiter;
+import io.supabase.utils.ExecutionMode;
+import io.supabase.utils.GoTrueCallEvent;
+import io.supabase.utils.Hedging;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.LoadBalancer;
+import io.supabase.utils.LoadBalancerConfig;
+import io.supabase.utils.RequestMeter;
+import io.supabase.utils.Resilience;
 import io.supabase.utils.RestUtils;
+import io.supabase.utils.SettingsCache;
+import io.supabase.utils.SingleFlight;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class GoTrueApi {
     protected String url;
     protected Map<String, String> headers;
+    protected HttpTransport transport;
+    protected final SingleFlight<String> singleFlight = new SingleFlight<>();
+    private final List<String> urls;
+    private volatile LoadBalancer balancer;
+    private volatile SettingsCache settingsCache;
+    private volatile Resilience resilience;
+    private volatile Hedging hedging;
+    private volatile ConcurrencyLimiter limiter;
+    private volatile MetricsListener metricsListener;
 
     protected GoTrueApi(String url, Map<String, String> headers) throws UrlNotFoundException {
+        this(url, headers, null);
+    }
+
+    /**
+     * @param url       the url of the GoTrue server or a comma-separated list of the urls of several GoTrue
+     *                  endpoints, which requests are balanced over, see {@link LoadBalancer}.
+     * @param headers   the default headers sent with every request.
+     * @param transport the transport requests are sent with or null to share the default one.
+     * @throws UrlNotFoundException if the url is not specified.
+     */
+    protected GoTrueApi(String url, Map<String, String> headers, HttpTransport transport) throws UrlNotFoundException {
         if (url == null || url.isEmpty()) {
             throw new UrlNotFoundException();
         }
-        this.url = url;
+        this.urls = ClientUtils.splitUrls(url);
+        this.url = urls.get(0);
         this.headers = headers;
+        this.transport = transport != null ? transport : RestUtils.getDefaultTransport();
+        this.balancer = urls.size() > 1 ? newLoadBalancer(new LoadBalancerConfig()) : null;
+    }
+
+    /**
+     * Sets the thresholds of the balancing over several endpoints, resetting their figures. The former balancer
+     * is closed.
+     *
+     * @param config the thresholds of the balancer.
+     * @throws IllegalArgumentException if the config is not specified or invalid or there is a single endpoint.
+     */
+    public synchronized void setLoadBalancerConfig(LoadBalancerConfig config) {
+        if (urls.size() == 1) {
+            throw new IllegalArgumentException("There is a single GoTrue endpoint to balance over!");
+        }
+        LoadBalancer former = balancer;
+        balancer = newLoadBalancer(config);
+        former.close();
+    }
+
+    /**
+     * @return the balancer with the figures of every endpoint or null if there is a single endpoint.
+     */
+    public LoadBalancer getLoadBalancer() {
+        return balancer;
+    }
+
+    /**
+     * Gets the coalescing of concurrent identical {@link #getUser(String)} and {@link #getSettings()} calls,
+     * its counters show how many requests were saved.
+     *
+     * @return the coalescing of this api.
+     */
+    public SingleFlight<String> getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Caches the settings of {@link #getSettings()}, see {@link SettingsCache}.
+     * Stale settings are refreshed in the background on the {@link ExecutionMode#callExecutor()}.
+     *
+     * @param ttlMillis how long fetched settings are fresh, in milliseconds, or 0 to disable the cache.
+     * @throws IllegalArgumentException if the ttl is negative.
+     */
+    public void setSettingsTtl(long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("The parameter >ttlMillis< must not be negative!");
+        }
+        settingsCache = ttlMillis == 0 ? null : new SettingsCache(ttlMillis, this::fetchSettings, ExecutionMode.callExecutor());
+    }
+
+    /**
+     * @return the cache of the settings or null if they are not cached.
+     */
+    public SettingsCache getSettingsCache() {
+        return settingsCache;
+    }
+
+    /**
+     * Sets the retries and circuit breakers of the requests. Idempotent requests, i.e. {@code getUser} and
+     * {@code getSettings}, are retried by default, the others are only failed fast while their endpoint is down.
+     *
+     * @param resilience the resilience layer or null to send every request once.
+     */
+    public void setResilience(Resilience resilience) {
+        this.resilience = resilience;
+    }
+
+    /**
+     * @return the resilience layer or null if requests are sent once.
+     */
+    public Resilience getResilience() {
+        return resilience;
+    }
+
+    /**
+     * Sets the hedging of the idempotent requests, i.e. {@code getUser} and {@code getSettings}: a slow request
+     * gets a second one and the first response wins.
+     *
+     * @param hedging the hedging or null to send a single request.
+     */
+    public void setHedging(Hedging hedging) {
+        this.hedging = hedging;
+    }
+
+    /**
+     * @return the hedging or null if requests are not hedged.
+     */
+    public Hedging getHedging() {
+        return hedging;
+    }
+
+    /**
+     * Sets the adaptive limit of the requests in flight to GoTrue. Every request, including retries and hedges,
+     * takes a slot, requests over the limit wait briefly and are then rejected with a
+     * {@link io.supabase.exceptions.LimitExceededException}.
+     *
+     * @param limiter the limiter or null to send requests without a limit.
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * @return the limiter or null if requests are not limited.
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Sets the listener told about every request with its latency, status, body sizes and error, e.g. a
+     * {@link io.supabase.metrics.RequestMetrics}. Retries and hedges are separate requests, requests rejected by the
+     * concurrency limit or an open circuit breaker are not sent and not recorded. Requests cancelled before they were
+     * answered, e.g. the slower one of a hedged call, are not recorded either.
+     *
+     * @param metricsListener the listener or null to record nothing.
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * @return the listener or null if nothing is recorded.
+     */
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
     }
 
     /**
@@ -27,12 +192,13 @@ public class GoTrueApi {
      * @throws ApiException if the underlying http request throws an error of any kind.
      */
     public void magicLink(String email) throws ApiException {
-        String urlMagicLink = String.format("%s/magiclink", url);
-
         EmailDto emailDto = new EmailDto();
         emailDto.setEmail(email);
 
-        RestUtils.post(emailDto, headers, urlMagicLink);
+        call("magicLink", "POST /magiclink", false, base -> {
+            RestUtils.post(transport, emailDto, headers, String.format("%s/magiclink", base));
+            return null;
+        });
     }
 
     /**
@@ -42,24 +208,29 @@ public class GoTrueApi {
      * @throws ApiException if the underlying http request throws an error of any kind.
      */
     public void recoverPassword(String email) throws ApiException {
-        String urlRecover = String.format("%s/recover", url);
-
         EmailDto emailDto = new EmailDto();
         emailDto.setEmail(email);
 
-        RestUtils.post(emailDto, headers, urlRecover);
+        call("recoverPassword", "POST /recover", false, base -> {
+            RestUtils.post(transport, emailDto, headers, String.format("%s/recover", base));
+            return null;
+        });
     }
 
     /**
-     * Get the settings from the gotrue server.
+     * Get the settings from the gotrue server, from the cache if a ttl is set.
+     * Concurrent calls share one request and its result, which must not be modified.
      *
      * @return settings from the gotrue server.
      * @throws ApiException if the underlying http request throws an error of any kind.
      */
     public SettingsDto getSettings() throws ApiException {
-        String urlSettings = String.format("%s/settings", url);
-
-        return RestUtils.get(SettingsDto.class, headers, urlSettings);
+        SettingsCache cache = settingsCache;
+        if (cache != null) {
+            return cache.get();
+        }
+        return singleFlight.execute("GET /settings", () -> call("getSettings", "GET /settings", true,
+                base -> RestUtils.get(transport, SettingsDto.class, headers, String.format("%s/settings", base))));
     }
 
     /**
@@ -81,9 +252,8 @@ public class GoTrueApi {
      * @throws ApiException if the underlying http request throws an error of any kind.
      */
     public UserUpdatedDto updateUser(String jwt, UserAttributesDto attributes) throws ApiException {
-        String urlUser = String.format("%s/user", url);
-
-        return RestUtils.put(attributes, UserUpdatedDto.class, headersWithJWT(jwt), urlUser);
+        return call("updateUser", "PUT /user", false, base -> RestUtils.put(transport, attributes,
+                UserUpdatedDto.class, headersWithJWT(jwt), String.format("%s/user", base)));
     }
 
     /**
@@ -94,24 +264,29 @@ public class GoTrueApi {
      * @throws ApiException if the underlying http request throws an error of any kind.
      */
     public AuthenticationDto refreshAccessToken(String refreshToken) throws ApiException {
-        String urlToken = String.format("%s/token?grant_type=refresh_token", url);
         RefreshTokenDto refreshTokenDto = new RefreshTokenDto();
         refreshTokenDto.setRefreshToken(refreshToken);
 
-        return RestUtils.post(refreshTokenDto, AuthenticationDto.class, headers, urlToken);
+        return call("refreshAccessToken", "POST /token", false, base -> RestUtils.post(transport, refreshTokenDto,
+                AuthenticationDto.class, headers, String.format("%s/token?grant_type=refresh_token", base)));
     }
 
     /**
      * Gets details about the user.
+     * Concurrent calls with the same jwt share one request and its result, which must not be modified.
      *
      * @param jwt A valid, logged-in JWT.
      * @return UserDto details about the user.
      * @throws ApiException if the underlying http request throws an error of any kind.
      */
     public UserDto getUser(String jwt) throws ApiException {
-        String urlUser = String.format("%s/user", url);
+        return singleFlight.execute("GET /user " + jwt, () -> fetchUser(jwt));
+    }
 
-        return RestUtils.get(UserDto.class, headersWithJWT(jwt), urlUser);
+    // getUser without the coalescing, for callers coalescing it themselves
+    UserDto fetchUser(String jwt) throws ApiException {
+        return call("getUser", "GET /user", true,
+                base -> RestUtils.get(transport, UserDto.class, headersWithJWT(jwt), String.format("%s/user", base)));
     }
 
     /**
@@ -121,9 +296,10 @@ public class GoTrueApi {
      * @throws ApiException if the underlying http request throws an error of any kind.
      */
     public void signOut(String jwt) throws ApiException {
-        String urlLogout = String.format("%s/logout", url);
-
-        RestUtils.post(headersWithJWT(jwt), urlLogout);
+        call("signOut", "POST /logout", false, base -> {
+            RestUtils.post(transport, headersWithJWT(jwt), String.format("%s/logout", base));
+            return null;
+        });
     }
 
     /**
@@ -150,9 +326,8 @@ public class GoTrueApi {
      * @throws ApiException if the underlying http request throws an error of any kind.
      */
     public AuthenticationDto signInWithEmail(CredentialsDto credentials) throws ApiException {
-        String urlToken = String.format("%s/token?grant_type=password", url);
-
-        return RestUtils.post(credentials, AuthenticationDto.class, headers, urlToken);
+        return call("signInWithEmail", "POST /token", false, base -> RestUtils.post(transport, credentials,
+                AuthenticationDto.class, headers, String.format("%s/token?grant_type=password", base)));
     }
 
     /**
@@ -179,9 +354,85 @@ public class GoTrueApi {
      * @throws ApiException if the underlying http request throws an error of any kind.
      */
     public AuthenticationDto signUpWithEmail(CredentialsDto credentials) throws ApiException {
-        String urlSignup = String.format("%s/signup", url);
+        return call("signUpWithEmail", "POST /signup", false, base -> RestUtils.post(transport, credentials,
+                AuthenticationDto.class, headers, String.format("%s/signup", base)));
+    }
+
+    private <R> R call(String operation, String endpoint, boolean idempotent, LoadBalancer.Request<R> request) throws ApiException {
+        Resilience.Call<R> sent = () -> balance(operation, endpoint, idempotent, request);
+        Resilience.Call<R> attempt = idempotent ? () -> hedge(operation, sent) : sent;
+        Resilience r = resilience;
+        return r != null ? r.execute(operation, endpoint, idempotent, attempt) : attempt.call();
+    }
+
+    private <R> R hedge(String operation, Resilience.Call<R> call) throws ApiException {
+        Hedging h = hedging;
+        return h != null ? h.execute(operation, call) : call.call();
+    }
+
+    private <R> R balance(String operation, String endpoint, boolean idempotent, LoadBalancer.Request<R> request) throws ApiException {
+        LoadBalancer b = balancer;
+        if (b == null) {
+            return send(operation, endpoint, () -> request.send(url));
+        }
+        return b.execute(idempotent, base -> send(operation, endpoint, () -> request.send(base)));
+    }
+
+    private <R> R send(String operation, String endpoint, Resilience.Call<R> call) throws ApiException {
+        ConcurrencyLimiter l = limiter;
+        return l != null ? l.execute(() -> meter(operation, endpoint, call)) : meter(operation, endpoint, call);
+    }
 
-        return RestUtils.post(credentials, AuthenticationDto.class, headers, urlSignup);
+    private <R> R meter(String operation, String endpoint, Resilience.Call<R> call) throws ApiException {
+        MetricsListener listener = metricsListener;
+        GoTrueCallEvent event = new GoTrueCallEvent();
+        boolean recorded = event.isEnabled();
+        if (listener == null && !recorded) {
+            return call.call();
+        }
+        RequestMeter meter = RequestMeter.start();
+        event.begin();
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            return call.call();
+        } catch (ApiException | RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            long duration = System.nanoTime() - start;
+            meter.stop();
+            // a cancelled request is not an error of GoTrue
+            boolean cancelled = error instanceof ApiException && Resilience.isCancelled((ApiException) error);
+            ErrorKind kind = ErrorKind.of(error);
+            if (recorded && !cancelled && event.shouldCommit()) {
+                event.set(operation, endpoint, meter.getStatus(), meter.getRequestBytes(), meter.getResponseBytes(),
+                        kind == ErrorKind.NONE ? null : kind.name());
+                event.commit();
+            }
+            if (listener != null && !cancelled) {
+                try {
+                    listener.onRequest(operation, endpoint, duration, meter.getStatus(), meter.getRequestBytes(),
+                            meter.getResponseBytes(), kind);
+                } catch (RuntimeException ignored) {
+                    // a broken listener must not fail the request
+                }
+            }
+        }
+    }
+
+    private LoadBalancer newLoadBalancer(LoadBalancerConfig config) {
+        return new LoadBalancer(urls, config,
+                base -> RestUtils.getEntity(transport, String.class, headers, String.format("%s/health", base)));
+    }
+
+    private ResponseEntity<SettingsDto> fetchSettings(String etag) throws ApiException {
+        Map<String, String> conditional = new HashMap<>(headers);
+        if (etag != null) {
+            conditional.put(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        return singleFlight.execute("GET /settings#" + etag, () -> call("getSettings", "GET /settings", true,
+                base -> RestUtils.getEntity(transport, SettingsDto.class, conditional, String.format("%s/settings", base))));
     }
 
     /**
@@ -0,0 +1,217 @@
+package io.supabase;
+
+import io.supabase.data.dto.*;
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.utils.AsyncHttpTransport;
+import io.supabase.utils.RestUtils;
+import org.springframework.http.HttpMethod;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link GoTrueApi}.
+ * <p>
+ * Every call returns immediately, the future completes on an I/O thread of the {@link AsyncHttpTransport}
+ * once the response arrived, or exceptionally with an {@link ApiException} if the request failed.
+ * Callbacks which block should therefore be run on an executor of their own. Cancelling a future aborts its request.
+ */
+public class GoTrueAsyncApi {
+    protected String url;
+    protected Map<String, String> headers;
+    protected AsyncHttpTransport transport;
+
+    /**
+     * @param url     the url of the GoTrue server.
+     * @param headers the default headers sent with every request.
+     * @throws UrlNotFoundException if the url is not specified.
+     */
+    public GoTrueAsyncApi(String url, Map<String, String> headers) throws UrlNotFoundException {
+        this(url, headers, null);
+    }
+
+    /**
+     * @param url       the url of the GoTrue server.
+     * @param headers   the default headers sent with every request.
+     * @param transport the transport requests are sent with or null to share the default one.
+     * @throws UrlNotFoundException if the url is not specified.
+     */
+    public GoTrueAsyncApi(String url, Map<String, String> headers, AsyncHttpTransport transport) throws UrlNotFoundException {
+        if (url == null || url.isEmpty()) {
+            throw new UrlNotFoundException();
+        }
+        this.url = url;
+        this.headers = headers != null ? headers : new HashMap<>();
+        this.transport = transport != null ? transport : RestUtils.getDefaultAsyncTransport();
+    }
+
+    /**
+     * Send an magic-link to a given email.
+     *
+     * @param email the email the link should be sent to.
+     * @return completes once the link was sent.
+     */
+    public CompletableFuture<Void> magicLink(String email) {
+        String urlMagicLink = String.format("%s/magiclink", url);
+
+        EmailDto emailDto = new EmailDto();
+        emailDto.setEmail(email);
+
+        return transport.exchange(HttpMethod.POST, emailDto, Void.class, headers, urlMagicLink);
+    }
+
+    /**
+     * Send a password-recovery link to a given email.
+     *
+     * @param email the email a recovery link should be sent to.
+     * @return completes once the link was sent.
+     */
+    public CompletableFuture<Void> recoverPassword(String email) {
+        String urlRecover = String.format("%s/recover", url);
+
+        EmailDto emailDto = new EmailDto();
+        emailDto.setEmail(email);
+
+        return transport.exchange(HttpMethod.POST, emailDto, Void.class, headers, urlRecover);
+    }
+
+    /**
+     * Get the settings from the gotrue server.
+     *
+     * @return settings from the gotrue server.
+     */
+    public CompletableFuture<SettingsDto> getSettings() {
+        String urlSettings = String.format("%s/settings", url);
+
+        return transport.exchange(HttpMethod.GET, null, SettingsDto.class, headers, urlSettings);
+    }
+
+    /**
+     * Generates the relevant login URL for a third-party provider.
+     *
+     * @param provider One of the providers supported by GoTrue.
+     * @return the url for the given provider
+     */
+    public String getUrlForProvider(String provider) {
+        return String.format("%s/authorize?provider=%s", url, provider);
+    }
+
+    /**
+     * Update a user.
+     *
+     * @param jwt        A valid JWT.
+     * @param attributes The data you want to update
+     * @return details of the updated user.
+     */
+    public CompletableFuture<UserUpdatedDto> updateUser(String jwt, UserAttributesDto attributes) {
+        String urlUser = String.format("%s/user", url);
+
+        return transport.exchange(HttpMethod.PUT, attributes, UserUpdatedDto.class, headersWithJWT(jwt), urlUser);
+    }
+
+    /**
+     * Generates a new JWT
+     *
+     * @param refreshToken A valid refresh token that was returned on login.
+     * @return The updated information with the refreshed token
+     */
+    public CompletableFuture<AuthenticationDto> refreshAccessToken(String refreshToken) {
+        String urlToken = String.format("%s/token?grant_type=refresh_token", url);
+        RefreshTokenDto refreshTokenDto = new RefreshTokenDto();
+        refreshTokenDto.setRefreshToken(refreshToken);
+
+        return transport.exchange(HttpMethod.POST, refreshTokenDto, AuthenticationDto.class, headers, urlToken);
+    }
+
+    /**
+     * Gets details about the user.
+     *
+     * @param jwt A valid, logged-in JWT.
+     * @return UserDto details about the user.
+     */
+    public CompletableFuture<UserDto> getUser(String jwt) {
+        String urlUser = String.format("%s/user", url);
+
+        return transport.exchange(HttpMethod.GET, null, UserDto.class, headersWithJWT(jwt), urlUser);
+    }
+
+    /**
+     * Removes a logged-in session.
+     *
+     * @param jwt A valid, logged-in JWT.
+     * @return completes once the session was removed.
+     */
+    public CompletableFuture<Void> signOut(String jwt) {
+        String urlLogout = String.format("%s/logout", url);
+
+        return transport.exchange(HttpMethod.POST, null, Void.class, headersWithJWT(jwt), urlLogout);
+    }
+
+    /**
+     * Logs in an existing user using their email address.
+     *
+     * @param email    The email address of the user.
+     * @param password The password of the user.
+     * @return Details about the authentication.
+     */
+    public CompletableFuture<AuthenticationDto> signInWithEmail(String email, String password) {
+        CredentialsDto credentials = new CredentialsDto();
+        credentials.setEmail(email);
+        credentials.setPassword(password);
+
+        return signInWithEmail(credentials);
+    }
+
+    /**
+     * Logs in an existing user using their email address.
+     *
+     * @param credentials Object with the email and the password of the user.
+     * @return Details about the authentication.
+     */
+    public CompletableFuture<AuthenticationDto> signInWithEmail(CredentialsDto credentials) {
+        String urlToken = String.format("%s/token?grant_type=password", url);
+
+        return transport.exchange(HttpMethod.POST, credentials, AuthenticationDto.class, headers, urlToken);
+    }
+
+    /**
+     * Creates a new user using their email address.
+     *
+     * @param email    The email address of the user.
+     * @param password The password of the user.
+     * @return Details about the authentication.
+     */
+    public CompletableFuture<AuthenticationDto> signUpWithEmail(String email, String password) {
+        CredentialsDto credentials = new CredentialsDto();
+        credentials.setEmail(email);
+        credentials.setPassword(password);
+
+        return signUpWithEmail(credentials);
+    }
+
+    /**
+     * Creates a new user using their email address.
+     *
+     * @param credentials Object with the email and the password of the user.
+     * @return Details about the authentication.
+     */
+    public CompletableFuture<AuthenticationDto> signUpWithEmail(CredentialsDto credentials) {
+        String urlSignup = String.format("%s/signup", url);
+
+        return transport.exchange(HttpMethod.POST, credentials, AuthenticationDto.class, headers, urlSignup);
+    }
+
+    /**
+     * Get the default headers plus the Authorization header.
+     *
+     * @param jwt the token to be added to the headers.
+     * @return the default headers plus the Authorization header.
+     */
+    Map<String, String> headersWithJWT(String jwt) {
+        Map<String, String> newHeaders = new HashMap<>(headers);
+        newHeaders.put("Authorization", String.format("Bearer %s", jwt));
+        return newHeaders;
+    }
+}
@@ -7,16 +7,36 @@ import io.supabase.exceptions.ApiException;
 import io.supabase.exceptions.JwtSecretNotFoundException;
 import io.supabase.exceptions.MalformedHeadersException;
 import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.VerificationResult;
+import io.supabase.metrics.MetricsListener;
 import io.supabase.utils.ClientUtils;
-
+import io.supabase.utils.ConcurrencyLimiter;
+import io.supabase.utils.ExecutionMode;
+import io.supabase.utils.Hedging;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.LoadBalancer;
+import io.supabase.utils.LoadBalancerConfig;
+import io.supabase.utils.Resilience;
+import io.supabase.utils.SettingsCache;
+import io.supabase.utils.SingleFlight;
+import io.supabase.utils.UserCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class GoTrueClient {
-    private static GoTrueClient client;
+    private static volatile GoTrueClient client;
     private final GoTrueApi api;
     private final String url;
     private final Map<String, String> headers;
-    private AuthenticationDto currentAuth;
+    private final SessionManager sessionManager = new SessionManager(this);
+    private volatile AuthenticationDto currentAuth;
+    private volatile JwtVerifier jwtVerifier;
+    private volatile UserCache userCache;
 
     protected GoTrueClient(String url, Map<String, String> headers) throws UrlNotFoundException, MalformedHeadersException {
         this.url = url != null ? url : ClientUtils.loadUrl();
@@ -24,6 +44,19 @@ public class GoTrueClient {
         this.api = new GoTrueApi(this.url, this.headers);
     }
 
+    /**
+     * @param url       the url of the GoTrue server or null to use the specified one.
+     * @param headers   the default headers or null to use the specified ones.
+     * @param transport the transport requests are sent with or null to share the default one.
+     * @throws UrlNotFoundException      if the url is neither given nor specified.
+     * @throws MalformedHeadersException if the specified default headers are in an invalid format.
+     */
+    protected GoTrueClient(String url, Map<String, String> headers, HttpTransport transport) throws UrlNotFoundException, MalformedHeadersException {
+        this.url = url != null ? url : ClientUtils.loadUrl();
+        this.headers = headers != null ? headers : ClientUtils.loadHeaders();
+        this.api = new GoTrueApi(this.url, this.headers, transport);
+    }
+
     protected GoTrueClient(Map<String, String> headers) throws UrlNotFoundException, MalformedHeadersException {
         this.url = ClientUtils.loadUrl();
         this.headers = headers != null ? headers : ClientUtils.loadHeaders();
@@ -51,10 +84,17 @@ public class GoTrueClient {
      * @throws MalformedHeadersException if the default headers are specified but in an invalid format.
      */
     public static GoTrueClient getInstance() throws UrlNotFoundException, MalformedHeadersException {
-        if (client == null) {
-            client = new GoTrueClient();
+        GoTrueClient current = client;
+        if (current == null) {
+            synchronized (GoTrueClient.class) {
+                current = client;
+                if (current == null) {
+                    current = new GoTrueClient();
+                    client = current;
+                }
+            }
         }
-        return client;
+        return current;
     }
 
     /**
@@ -70,6 +110,152 @@ public class GoTrueClient {
     }
 
 
+    /**
+     * Gets the sessions of the users of this client, which are safe to use from many threads unlike the single
+     * current authentication.
+     *
+     * @return the sessions of this client.
+     */
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    /**
+     * Gets the coalescing of concurrent identical user and settings requests, its counters show how many
+     * requests were saved.
+     *
+     * @return the coalescing of the api of this client.
+     */
+    public SingleFlight<String> getSingleFlight() {
+        return api.getSingleFlight();
+    }
+
+    /**
+     * Caches the settings of {@link #settings()}, stale ones are refreshed in the background.
+     *
+     * @param ttlMillis how long fetched settings are fresh, in milliseconds, or 0 to disable the cache.
+     * @throws IllegalArgumentException if the ttl is negative.
+     */
+    public void setSettingsTtl(long ttlMillis) {
+        api.setSettingsTtl(ttlMillis);
+    }
+
+    /**
+     * @return the cache of the settings or null if they are not cached.
+     */
+    public SettingsCache getSettingsCache() {
+        return api.getSettingsCache();
+    }
+
+
+    /**
+     * Sets the retries and circuit breakers of the requests, see {@link GoTrueApi#setResilience(Resilience)}.
+     *
+     * @param resilience the resilience layer or null to send every request once.
+     */
+    public void setResilience(Resilience resilience) {
+        api.setResilience(resilience);
+    }
+
+    /**
+     * @return the resilience layer or null if requests are sent once.
+     */
+    public Resilience getResilience() {
+        return api.getResilience();
+    }
+
+    /**
+     * Sets the hedging of the idempotent requests, see {@link GoTrueApi#setHedging(Hedging)}.
+     *
+     * @param hedging the hedging or null to send a single request.
+     */
+    public void setHedging(Hedging hedging) {
+        api.setHedging(hedging);
+    }
+
+    /**
+     * @return the hedging or null if requests are not hedged.
+     */
+    public Hedging getHedging() {
+        return api.getHedging();
+    }
+
+    /**
+     * Sets the adaptive limit of the requests in flight, see {@link GoTrueApi#setConcurrencyLimiter(ConcurrencyLimiter)}.
+     *
+     * @param limiter the limiter or null to send requests without a limit.
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        api.setConcurrencyLimiter(limiter);
+    }
+
+    /**
+     * @return the limiter or null if requests are not limited.
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return api.getConcurrencyLimiter();
+    }
+
+    /**
+     * Sets the listener told about every request, see {@link GoTrueApi#setMetricsListener(MetricsListener)}.
+     *
+     * @param metricsListener the listener or null to record nothing.
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        api.setMetricsListener(metricsListener);
+    }
+
+    /**
+     * @return the listener or null if nothing is recorded.
+     */
+    public MetricsListener getMetricsListener() {
+        return api.getMetricsListener();
+    }
+
+    /**
+     * Sets the thresholds of the balancing over several endpoints, see {@link GoTrueApi#setLoadBalancerConfig(LoadBalancerConfig)}.
+     *
+     * @param config the thresholds of the balancer.
+     */
+    public void setLoadBalancerConfig(LoadBalancerConfig config) {
+        api.setLoadBalancerConfig(config);
+    }
+
+    /**
+     * @return the balancer with the figures of every endpoint or null if there is a single endpoint.
+     */
+    public LoadBalancer getLoadBalancer() {
+        return api.getLoadBalancer();
+    }
+
+    /**
+     * Sets the cache of {@link #getUser(String)}. Cached users are dropped when they are updated or signed out
+     * through this client.
+     *
+     * @param userCache the cache to use or null to always fetch the user.
+     */
+    public void setUserCache(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    /**
+     * @return the cache of the users or null if they are not cached.
+     */
+    public UserCache getUserCache() {
+        return userCache;
+    }
+
+
+    /**
+     * Sets the verifier used to parse and validate jwt tokens.
+     * If no verifier is set, one is built from the specified jwt secret.
+     *
+     * @param jwtVerifier the verifier to use or null to use the specified jwt secret.
+     */
+    public void setJwtVerifier(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+    }
+
     /**
      * Parses a jwt token.
      *
@@ -81,7 +267,7 @@ public class GoTrueClient {
      */
     public ParsedToken parseJwt(String jwt) throws JwtSecretNotFoundException {
         checkParam(jwt, "jwt");
-        return ClientUtils.parseJwt(jwt);
+        return jwtVerifier().parse(jwt);
     }
 
 
@@ -95,13 +281,40 @@ public class GoTrueClient {
      */
     public boolean validate(String jwt) throws JwtSecretNotFoundException {
         checkParam(jwt, "jwt");
-        try {
-            ClientUtils.parseJwt(jwt);
-            // no error -> valid
-            return true;
-        } catch (JwtException e) {
-            return false;
+        return jwtVerifier().isValid(jwt);
+    }
+
+
+    /**
+     * Parses many jwt tokens at once, the work is split across all cores.
+     * Invalid tokens do not throw, their result holds the reason they were rejected.
+     *
+     * @param jwts tokens to be parsed.
+     * @return one result per token, in the iteration order of the given tokens.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified
+     * @throws IllegalArgumentException   if the tokens are not specified.
+     */
+    public List<VerificationResult> parseAll(Collection<String> jwts) throws JwtSecretNotFoundException {
+        checkParam(jwts, "jwts");
+        return jwtVerifier().parseAll(jwts);
+    }
+
+
+    /**
+     * Checks whether many jwt tokens are valid, the work is split across all cores.
+     *
+     * @param jwts tokens to be validated.
+     * @return whether the given tokens are valid, in the iteration order of the given tokens.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified
+     * @throws IllegalArgumentException   if the tokens are not specified.
+     */
+    public List<Boolean> validateAll(Collection<String> jwts) throws JwtSecretNotFoundException {
+        List<VerificationResult> results = parseAll(jwts);
+        List<Boolean> valid = new ArrayList<>(results.size());
+        for (VerificationResult result : results) {
+            valid.add(result.isValid());
         }
+        return valid;
     }
 
 
@@ -110,10 +323,11 @@ public class GoTrueClient {
      *
      * @return Details of the current user.
      * @throws IllegalArgumentException if you are currently not logged in.
+     * @deprecated the current authentication is shared by every caller, use {@link #getSessionManager()}.
      */
+    @Deprecated
     public UserDto getCurrentUser() {
-        checkAuthState();
-        return currentAuth.getUser();
+        return currentAuth().getUser();
     }
 
 
@@ -122,10 +336,11 @@ public class GoTrueClient {
      *
      * @return Details of the current authentication.
      * @throws IllegalArgumentException if you are currently not logged in.
+     * @deprecated the current authentication is shared by every caller, use {@link #getSessionManager()}.
      */
+    @Deprecated
     public AuthenticationDto getCurrentAuth() {
-        checkAuthState();
-        return currentAuth;
+        return currentAuth();
     }
 
     /**
@@ -140,8 +355,9 @@ public class GoTrueClient {
     public AuthenticationDto signIn(String email, String password) throws ApiException {
         checkParam(email, "email");
         checkParam(password, "password");
-        currentAuth = api.signInWithEmail(email, password);
-        return currentAuth;
+        AuthenticationDto auth = api.signInWithEmail(email, password);
+        currentAuth = auth;
+        return auth;
     }
 
     /**
@@ -171,8 +387,9 @@ public class GoTrueClient {
     public AuthenticationDto signUp(String email, String password) throws ApiException {
         checkParam(email, "email");
         checkParam(password, "password");
-        currentAuth = api.signUpWithEmail(email, password);
-        return currentAuth;
+        AuthenticationDto auth = api.signUpWithEmail(email, password);
+        currentAuth = auth;
+        return auth;
     }
 
     /**
@@ -187,8 +404,9 @@ public class GoTrueClient {
         checkParam(credentials, "credentials");
         checkParam(credentials.getEmail(), "credentials.email");
         checkParam(credentials.getPassword(), "credentials.password");
-        currentAuth = api.signUpWithEmail(credentials);
-        return currentAuth;
+        AuthenticationDto auth = api.signUpWithEmail(credentials);
+        currentAuth = auth;
+        return auth;
     }
 
     /**
@@ -199,11 +417,13 @@ public class GoTrueClient {
      * @throws ApiException             if the underlying http request throws an error of any kind.
      * @throws IllegalArgumentException if you are currently not logged in.
      * @throws IllegalArgumentException if the attributes are not specified.
+     * @deprecated the current authentication is shared by every caller, use {@link #getSessionManager()}.
      */
+    @Deprecated
     public UserUpdatedDto update(UserAttributesDto attributes) throws ApiException {
-        checkAuthState();
+        AuthenticationDto auth = currentAuth();
         checkParam(attributes, "attributes");
-        return api.updateUser(currentAuth.getAccessToken(), attributes);
+        return update(auth.getAccessToken(), attributes);
     }
 
     /**
@@ -219,7 +439,11 @@ public class GoTrueClient {
     public UserUpdatedDto update(String jwt, UserAttributesDto attributes) throws ApiException {
         checkParam(jwt, "jwt");
         checkParam(attributes, "attributes");
-        return api.updateUser(jwt, attributes);
+        try {
+            return api.updateUser(jwt, attributes);
+        } finally {
+            invalidateUser(jwt);
+        }
     }
 
     /**
@@ -227,10 +451,11 @@ public class GoTrueClient {
      *
      * @throws ApiException             if the underlying http request throws an error of any kind.
      * @throws IllegalArgumentException if you are currently not logged in.
+     * @deprecated the current authentication is shared by every caller, use {@link #getSessionManager()}.
      */
+    @Deprecated
     public void signOut() throws ApiException {
-        checkAuthState();
-        api.signOut(currentAuth.getAccessToken());
+        signOut(currentAuth().getAccessToken());
     }
 
     /**
@@ -242,7 +467,11 @@ public class GoTrueClient {
      */
     public void signOut(String jwt) throws ApiException {
         checkParam(jwt, "jwt");
-        api.signOut(jwt);
+        try {
+            api.signOut(jwt);
+        } finally {
+            invalidateUser(jwt);
+        }
     }
 
     /**
@@ -261,14 +490,15 @@ public class GoTrueClient {
      * @return The updated information with the refreshed token
      * @throws ApiException             if the underlying http request throws an error of any kind.
      * @throws IllegalArgumentException if you are currently not logged in.
+     * @deprecated the current authentication is shared by every caller, use {@link #getSessionManager()}.
      */
+    @Deprecated
     public AuthenticationDto refresh() throws ApiException {
-        checkAuthState();
-        return api.refreshAccessToken(currentAuth.getRefreshToken());
+        return api.refreshAccessToken(currentAuth().getRefreshToken());
     }
 
     /**
-     * Gets details about the user.
+     * Gets details about the user, from the user cache if one is set.
      *
      * @param jwt A valid, logged-in JWT.
      * @return UserDto details about the user.
@@ -277,7 +507,22 @@ public class GoTrueClient {
      */
     public UserDto getUser(String jwt) throws ApiException {
         checkParam(jwt, "jwt");
-        return api.getUser(jwt);
+        UserCache cache = userCache;
+        if (cache == null) {
+            return api.getUser(jwt);
+        }
+        UserDto user = cache.get(jwt);
+        if (user == null) {
+            // an update or sign out while the user is fetched must not be undone by caching it, so the stamp is
+            // taken by the shared call, as callers joining it may have arrived after such an invalidation
+            StampedUser fetched = api.getSingleFlight().execute("GET /user#cached " + jwt, () -> {
+                long stamp = cache.stamp(jwt);
+                return new StampedUser(cache, api.fetchUser(jwt), stamp);
+            });
+            fetched.cache.put(jwt, fetched.user, fetched.stamp);
+            user = fetched.user;
+        }
+        return user;
     }
 
 
@@ -306,10 +551,50 @@ public class GoTrueClient {
         api.recoverPassword(email);
     }
 
-    private void checkAuthState() {
-        if (currentAuth == null) {
+    /**
+     * Runs a blocking call of this client on a thread of its own, which is a virtual thread on Java 21+
+     * and a pooled platform thread on older versions, see {@link ExecutionMode}.
+     *
+     * @param call the call, e.g. {@code c -> c.signIn(email, password)}.
+     * @param <T>  the type of the result.
+     * @return a future completed with the result of the call or the exception it threw.
+     * @throws IllegalArgumentException if the call is not specified.
+     */
+    public <T> CompletableFuture<T> submit(Call<T> call) {
+        checkParam(call, "call");
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ExecutionMode.callExecutor().execute(() -> {
+            try {
+                future.complete(call.call(this));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private void invalidateUser(String jwt) {
+        UserCache cache = userCache;
+        if (cache != null) {
+            cache.invalidate(jwt);
+        }
+    }
+
+    private JwtVerifier jwtVerifier() throws JwtSecretNotFoundException {
+        JwtVerifier v = jwtVerifier;
+        return v != null ? v : ClientUtils.getJwtVerifier();
+    }
+
+    GoTrueApi api() {
+        return api;
+    }
+
+    private AuthenticationDto currentAuth() {
+        AuthenticationDto auth = currentAuth;
+        if (auth == null) {
             throw new IllegalArgumentException("You need to be logged in to use this method!");
         }
+        return auth;
     }
 
     private void checkParam(Object obj, String name) {
@@ -320,4 +605,26 @@ public class GoTrueClient {
         }
         if (invalid) throw new IllegalArgumentException(String.format("The parameter >%s< is required!", name));
     }
+
+    /**
+     * A blocking call of a {@link GoTrueClient}, see {@link #submit(Call)}.
+     *
+     * @param <T> the type of the result.
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call(GoTrueClient client) throws Exception;
+    }
+
+    private static final class StampedUser {
+        private final UserCache cache;
+        private final UserDto user;
+        private final long stamp;
+
+        private StampedUser(UserCache cache, UserDto user, long stamp) {
+            this.cache = cache;
+            this.user = user;
+            this.stamp = stamp;
+        }
+    }
 }
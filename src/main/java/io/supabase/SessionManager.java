@@ -0,0 +1,373 @@
+package io.supabase;
+
+import io.supabase.data.dto.AuthenticationDto;
+import io.supabase.data.dto.UserAttributesDto;
+import io.supabase.data.dto.UserDto;
+import io.supabase.data.dto.UserUpdatedDto;
+import io.supabase.exceptions.ApiException;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * The sessions of many users of a {@link GoTrueClient}, keyed by a random session id, e.g. to keep them on a
+ * server which hands the id out as a cookie. Unlike the current authentication of the client, they are not
+ * shared between all callers.
+ * <p>
+ * Sessions live in a {@link ConcurrentHashMap}, lookups take no lock and adding or removing a session only locks
+ * its bin. Operations on one session never wait for another one. Concurrent refreshes of the same session send a
+ * single request and share its result; the others wait on a future, not on a monitor, so a virtual thread
+ * waiting for a refresh does not pin its carrier.
+ * <p>
+ * A session which was not used for the maximum idle time, 24 hours by default, expires. Expired sessions are
+ * dropped when they are looked up, and every new session checks two others, so the map stays bounded by the
+ * sessions used within the idle time without a background thread. {@link #sweep()} drops all expired ones at once.
+ * <p>
+ * The bookkeeping of a session, its map node, table slot, session object and id, takes about 140 bytes on
+ * Java 9+ and 160 bytes on Java 8, measured on a 64-bit JVM with compressed references, i.e. 140 to 160 MB for
+ * a million sessions. The {@link AuthenticationDto} GoTrue returned comes on top; with its access token and user
+ * it usually takes 2 to 4 KB, so a million live sessions need 2 to 4 GB of heap.
+ */
+public class SessionManager {
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final int SWEEP_PER_ADD = 2;
+
+    private final GoTrueClient client;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private final LongAdder expirations = new LongAdder();
+    private volatile long maxIdleMillis = TimeUnit.HOURS.toMillis(24);
+    // guarded by sweepLock, where the sweep of the new sessions goes on
+    private Iterator<Session> cursor;
+
+    /**
+     * @param client the client the requests of the sessions are sent with.
+     * @throws IllegalArgumentException if the client is not specified.
+     */
+    public SessionManager(GoTrueClient client) {
+        this(client, System::currentTimeMillis);
+    }
+
+    SessionManager(GoTrueClient client, LongSupplier clock) {
+        if (client == null) {
+            throw new IllegalArgumentException("The parameter >client< is required!");
+        }
+        this.client = client;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets after how long without being used a session expires.
+     *
+     * @param maxIdleMillis the maximum idle time in milliseconds, or 0 to keep sessions until they are removed.
+     * @throws IllegalArgumentException if the maximum idle time is negative.
+     */
+    public void setMaxIdle(long maxIdleMillis) {
+        if (maxIdleMillis < 0) {
+            throw new IllegalArgumentException("The parameter >maxIdleMillis< must not be negative!");
+        }
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    /**
+     * @return the maximum idle time in milliseconds, 0 if sessions do not expire.
+     */
+    public long getMaxIdle() {
+        return maxIdleMillis;
+    }
+
+    /**
+     * Logs in an existing user and starts a session for them.
+     *
+     * @param email    The email address of the user.
+     * @param password The password of the user.
+     * @return the new session.
+     * @throws ApiException             if the underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException if the either or both email and password are not specified.
+     */
+    public Session signIn(String email, String password) throws ApiException {
+        checkParam(email, "email");
+        checkParam(password, "password");
+        return add(client.api().signInWithEmail(email, password));
+    }
+
+    /**
+     * Creates a new user and starts a session for them.
+     *
+     * @param email    The email address of the user.
+     * @param password The password of the user.
+     * @return the new session.
+     * @throws ApiException             if the underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException if the either or both email and password are not specified.
+     */
+    public Session signUp(String email, String password) throws ApiException {
+        checkParam(email, "email");
+        checkParam(password, "password");
+        return add(client.api().signUpWithEmail(email, password));
+    }
+
+    /**
+     * Starts a session for an authentication obtained elsewhere.
+     *
+     * @param auth the authentication.
+     * @return the new session.
+     * @throws IllegalArgumentException if the authentication is not specified.
+     */
+    public Session add(AuthenticationDto auth) {
+        if (auth == null) {
+            throw new IllegalArgumentException("The parameter >auth< is required!");
+        }
+        sweep(SWEEP_PER_ADD);
+        byte[] bytes = new byte[16];
+        while (true) {
+            random.nextBytes(bytes);
+            Session session = new Session(encoder.encodeToString(bytes), auth, clock.getAsLong());
+            if (sessions.putIfAbsent(session.id, session) == null) {
+                return session;
+            }
+        }
+    }
+
+    /**
+     * Looks up a session, which counts as using it.
+     *
+     * @param id the id of the session.
+     * @return the session or null if there is none with this id or it expired.
+     */
+    public Session get(String id) {
+        Session session = id != null ? sessions.get(id) : null;
+        if (session == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (expired(session, now)) {
+            if (sessions.remove(id, session)) {
+                expirations.increment();
+            }
+            return null;
+        }
+        session.lastUsed = now;
+        return session;
+    }
+
+    /**
+     * Generates a new JWT for a session. A caller which comes while another one refreshes the session gets the
+     * result of that refresh, since the refresh token is only valid once.
+     *
+     * @param id the id of the session.
+     * @return the updated information with the refreshed token.
+     * @throws ApiException             if the underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException if there is no session with this id.
+     */
+    public AuthenticationDto refresh(String id) throws ApiException {
+        Session session = session(id);
+        CompletableFuture<AuthenticationDto> flight = new CompletableFuture<>();
+        while (!Session.REFRESHING.compareAndSet(session, null, flight)) {
+            CompletableFuture<AuthenticationDto> current = session.refreshing;
+            if (current != null) {
+                return await(current);
+            }
+        }
+        try {
+            AuthenticationDto auth = client.refresh(session.auth.getRefreshToken());
+            session.auth = auth;
+            flight.complete(auth);
+            return auth;
+        } catch (ApiException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            session.refreshing = null;
+        }
+    }
+
+    /**
+     * Updates the user of a session.
+     *
+     * @param id         the id of the session.
+     * @param attributes The data you want to update
+     * @return details of the updated user.
+     * @throws ApiException             if the underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException if there is no session with this id or the attributes are not specified.
+     */
+    public UserUpdatedDto update(String id, UserAttributesDto attributes) throws ApiException {
+        return client.update(session(id).auth.getAccessToken(), attributes);
+    }
+
+    /**
+     * Gets details about the user of a session, from the user cache of the client if one is set.
+     *
+     * @param id the id of the session.
+     * @return details about the user.
+     * @throws ApiException             if the underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException if there is no session with this id.
+     */
+    public UserDto getUser(String id) throws ApiException {
+        return client.getUser(session(id).auth.getAccessToken());
+    }
+
+    /**
+     * Signs out the user of a session. The session is removed even if GoTrue fails.
+     *
+     * @param id the id of the session.
+     * @throws ApiException             if the underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException if there is no session with this id.
+     */
+    public void signOut(String id) throws ApiException {
+        Session session = id != null ? sessions.remove(id) : null;
+        if (session == null) {
+            throw new IllegalArgumentException("There is no session with this id!");
+        }
+        client.signOut(session.auth.getAccessToken());
+    }
+
+    /**
+     * Removes a session without signing it out at GoTrue.
+     *
+     * @param id the id of the session.
+     * @return the removed session or null if there was none with this id.
+     */
+    public Session remove(String id) {
+        return id != null ? sessions.remove(id) : null;
+    }
+
+    /**
+     * Drops every expired session, e.g. from a scheduled task. This walks all sessions.
+     *
+     * @return how many sessions were dropped.
+     */
+    public int sweep() {
+        if (maxIdleMillis == 0) {
+            return 0;
+        }
+        int dropped = 0;
+        long now = clock.getAsLong();
+        for (Session session : sessions.values()) {
+            if (expired(session, now) && sessions.remove(session.id, session)) {
+                expirations.increment();
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * @return the number of sessions, including expired ones which were not dropped yet.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * @return how many sessions expired.
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    private void sweep(int count) {
+        if (maxIdleMillis == 0 || !sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = clock.getAsLong();
+            for (int i = 0; i < count; i++) {
+                if (cursor == null || !cursor.hasNext()) {
+                    cursor = sessions.values().iterator();
+                    if (!cursor.hasNext()) {
+                        return;
+                    }
+                }
+                Session session = cursor.next();
+                if (expired(session, now) && sessions.remove(session.id, session)) {
+                    expirations.increment();
+                }
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private boolean expired(Session session, long now) {
+        long maxIdle = maxIdleMillis;
+        return maxIdle > 0 && now - session.lastUsed > maxIdle;
+    }
+
+    private static AuthenticationDto await(CompletableFuture<AuthenticationDto> flight) throws ApiException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted waiting for the refresh", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ApiException) {
+                throw (ApiException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    private static void checkParam(String s, String name) {
+        if (s == null || s.isEmpty()) {
+            throw new IllegalArgumentException(String.format("The parameter >%s< is required!", name));
+        }
+    }
+
+    private Session session(String id) {
+        Session session = get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("There is no session with this id!");
+        }
+        return session;
+    }
+
+    /**
+     * The session of a user.
+     */
+    public static final class Session {
+        // a field updater instead of an AtomicReference saves an object per session
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Session, CompletableFuture> REFRESHING =
+                AtomicReferenceFieldUpdater.newUpdater(Session.class, CompletableFuture.class, "refreshing");
+
+        private final String id;
+        private volatile AuthenticationDto auth;
+        private volatile CompletableFuture<AuthenticationDto> refreshing;
+        private volatile long lastUsed;
+
+        private Session(String id, AuthenticationDto auth, long now) {
+            this.id = id;
+            this.auth = auth;
+            this.lastUsed = now;
+        }
+
+        /**
+         * @return the random id of the session, 22 url-safe characters.
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return the latest authentication of the session.
+         */
+        public AuthenticationDto getAuth() {
+            return auth;
+        }
+    }
+}
@@ -1,25 +1,131 @@
 package io.supabase.data.jwt;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
 
+/**
+ * The claims of a verified token. An instance is immutable, verified tokens are cached and shared by callers.
+ */
 @Getter
-@Setter
 public class ParsedToken {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final byte[] EMPTY = new byte[0];
+
     @JsonProperty("exp")
-    Date exp;
+    @Getter(AccessLevel.NONE)
+    final Date exp;
     @JsonProperty("sub")
-    String sub;
+    final String sub;
     @JsonProperty("email")
-    String email;
+    final String email;
     @JsonProperty("app_metadata")
-    Map<String, String> appMetadata;
+    volatile Map<String, String> appMetadata;
     @JsonProperty("user_metadata")
-    Map<String, String> userMetadata;
+    volatile Map<String, String> userMetadata;
     @JsonProperty("role")
-    String role;
+    final String role;
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    final byte[] payload;
+
+    /**
+     * @param exp          the expiration or null if the token does not expire.
+     * @param sub          the subject.
+     * @param email        the email.
+     * @param appMetadata  the app metadata or null for none.
+     * @param userMetadata the user metadata or null for none.
+     * @param role         the role.
+     */
+    @JsonCreator
+    public ParsedToken(@JsonProperty("exp") Date exp, @JsonProperty("sub") String sub,
+                       @JsonProperty("email") String email, @JsonProperty("app_metadata") Map<String, String> appMetadata,
+                       @JsonProperty("user_metadata") Map<String, String> userMetadata, @JsonProperty("role") String role) {
+        this(exp, sub, email, role, EMPTY);
+        // missing metadata maps are created empty on first access
+        this.appMetadata = appMetadata != null ? Collections.unmodifiableMap(appMetadata) : null;
+        this.userMetadata = userMetadata != null ? Collections.unmodifiableMap(userMetadata) : null;
+    }
+
+    /**
+     * Creates a token whose metadata maps are decoded from its raw JSON payload on first access.
+     *
+     * @param exp     the expiration or null if the token does not expire.
+     * @param sub     the subject.
+     * @param email   the email.
+     * @param role    the role.
+     * @param payload the UTF-8 encoded payload, which must not be modified afterwards, or null if the token has
+     *                no metadata.
+     */
+    public ParsedToken(Date exp, String sub, String email, String role, byte[] payload) {
+        this.exp = exp != null ? new Date(exp.getTime()) : null;
+        this.sub = sub;
+        this.email = email;
+        this.role = role;
+        this.payload = payload != null ? payload : EMPTY;
+    }
+
+    /**
+     * @return a copy of the expiration or null if the token does not expire.
+     */
+    public Date getExp() {
+        return exp != null ? new Date(exp.getTime()) : null;
+    }
+
+    /**
+     * @return the unmodifiable app metadata, decoded from the payload on first access.
+     */
+    public Map<String, String> getAppMetadata() {
+        Map<String, String> metadata = appMetadata;
+        if (metadata == null) {
+            metadata = decode("app_metadata");
+            appMetadata = metadata;
+        }
+        return metadata;
+    }
+
+    /**
+     * @return the unmodifiable user metadata, decoded from the payload on first access.
+     */
+    public Map<String, String> getUserMetadata() {
+        Map<String, String> metadata = userMetadata;
+        if (metadata == null) {
+            metadata = decode("user_metadata");
+            userMetadata = metadata;
+        }
+        return metadata;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> decode(String claim) {
+        Map<String, String> metadata = null;
+        if (payload.length > 0) {
+            try (JsonParser parser = mapper.getFactory().createParser(payload)) {
+                parser.nextToken();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if (claim.equals(name)) {
+                        // like a map the last occurrence wins
+                        metadata = value == JsonToken.START_OBJECT ? mapper.readValue(parser, Map.class) : null;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("The token payload can not be decoded", e);
+            }
+        }
+        return metadata != null ? Collections.unmodifiableMap(metadata) : Collections.emptyMap();
+    }
 }
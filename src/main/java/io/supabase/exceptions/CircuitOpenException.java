@@ -0,0 +1,7 @@
+package io.supabase.exceptions;
+
+public class CircuitOpenException extends ApiException {
+    public CircuitOpenException(String endpoint) {
+        super(String.format("The circuit breaker of %s is open", endpoint), null);
+    }
+}
@@ -0,0 +1,7 @@
+package io.supabase.exceptions;
+
+public class LimitExceededException extends ApiException {
+    public LimitExceededException(int limit) {
+        super(String.format("The concurrency limit of %d requests is reached", limit), null);
+    }
+}
@@ -0,0 +1,133 @@
+package io.supabase.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.DefaultJwtParser;
+import io.jsonwebtoken.impl.TextCodec;
+import io.jsonwebtoken.impl.crypto.JwtSignatureValidator;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * HS256 key material of a single secret, set up once.
+ * The HMAC-SHA256 state is kept in one {@link Mac} per thread.
+ */
+final class HmacKey {
+    static final SignatureAlgorithm ALGORITHM = SignatureAlgorithm.HS256;
+    static final int SIGNATURE_LENGTH = 32;
+
+    private final String kid;
+    private final String secret;
+    private final Key key;
+    private final ThreadLocal<Mac> mac;
+    private final JwtParser parser;
+    private final HmacKey[] self = {this};
+
+    HmacKey(String kid, String secret) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("The parameter >secret< is required!");
+        }
+        this.kid = kid;
+        this.secret = secret;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM.getJcaName());
+        this.mac = ThreadLocal.withInitial(this::newMac);
+        this.parser = new Parser().setSigningKey(key);
+        // fail fast if HmacSHA256 is not available
+        mac.get();
+    }
+
+    String getKid() {
+        return kid;
+    }
+
+    String getSecret() {
+        return secret;
+    }
+
+    /**
+     * @return an array holding only this key, to hand out as candidate list without allocating.
+     */
+    HmacKey[] asArray() {
+        return self;
+    }
+
+    /**
+     * Parses a token with jjwt, signed with this key.
+     */
+    Jws<Claims> parse(String jwt) {
+        return parser.parseClaimsJws(jwt);
+    }
+
+    /**
+     * Checks a signature over the raw ASCII bytes of header and payload.
+     *
+     * @param raw          the token bytes.
+     * @param signedLength the length of header, period and payload.
+     * @param signature    the decoded signature, {@link #SIGNATURE_LENGTH} bytes.
+     * @param scratch      buffer of {@link #SIGNATURE_LENGTH} bytes for the expected signature.
+     */
+    boolean isSignatureValid(byte[] raw, int signedLength, byte[] signature, byte[] scratch) {
+        Mac m = mac.get();
+        m.update(raw, 0, signedLength);
+        try {
+            m.doFinal(scratch, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        int diff = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            diff |= scratch[i] ^ signature[i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Signature check with jjwt's contract, used when jjwt parses a token.
+     */
+    private boolean isSignatureValid(String jwtWithoutSignature, String base64UrlSignature) {
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(base64UrlSignature);
+        } catch (IllegalArgumentException e) {
+            // jjwt decodes leniently, keep its behaviour for odd encodings
+            signature = TextCodec.BASE64URL.decode(base64UrlSignature);
+        }
+        byte[] expected = mac.get().doFinal(jwtWithoutSignature.getBytes(StandardCharsets.US_ASCII));
+        return MessageDigest.isEqual(expected, signature);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac m = Mac.getInstance(ALGORITHM.getJcaName());
+            m.init(key);
+            return m;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * jjwt parser which validates HS256 signatures with the thread-local {@link Mac}
+     * instead of creating a new one for every token.
+     */
+    private class Parser extends DefaultJwtParser {
+        private final JwtSignatureValidator validator = HmacKey.this::isSignatureValid;
+
+        @Override
+        protected JwtSignatureValidator createSignatureValidator(SignatureAlgorithm alg, Key key) {
+            if (alg == ALGORITHM && key == HmacKey.this.key) {
+                return validator;
+            }
+            return super.createSignatureValidator(alg, key);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package io.supabase.jwt;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.impl.TextCodec;
+import io.supabase.data.jwt.ParsedToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Allocation-light decoder for the HS256 tokens GoTrue issues.
+ * <p>
+ * The token is Base64url decoded into reusable per-thread buffers, the signature is checked over the raw bytes
+ * with the keys of a {@link JwtKeyring} and the payload is stream-parsed straight into a {@link ParsedToken}.
+ * The decoder only ever accepts tokens jjwt accepts as well. Anything it is not sure about,
+ * be it an unusual header or an unexpected claim type, is left to jjwt.
+ * <p>
+ * Tokens are rejected in stages, each cheaper than the next: on their structure, on the {@code alg} of the header,
+ * on the signature and finally on an expired {@code exp} claim, before the {@link ParsedToken} is built.
+ * Unlike jjwt, which decodes Base64 leniently, tokens that are not in the compact serialization of RFC 7515
+ * are rejected as malformed.
+ */
+public final class Hs256TokenDecoder {
+    /**
+     * Longest token that is decoded at all, far above what GoTrue issues even with large metadata.
+     */
+    static final int MAX_TOKEN_LENGTH = 64 * 1024;
+    private static final int ENCODED_SIGNATURE_LENGTH = 43;
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final byte[] DECODE = new byte[128];
+    private static final int HEADER_SIMPLE = 0;
+    private static final int HEADER_UNUSUAL = 1;
+    private static final int HEADER_INVALID = 2;
+    private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final JwtKeyring keyring;
+
+    /**
+     * Creates a decoder for the given secret.
+     *
+     * @param secret the GoTrue JWT secret.
+     * @throws IllegalArgumentException if the secret is not specified.
+     */
+    public Hs256TokenDecoder(String secret) {
+        this(new JwtKeyring(secret));
+    }
+
+    /**
+     * Creates a decoder for the secrets of the given keyring.
+     *
+     * @param keyring the GoTrue JWT secrets.
+     * @throws IllegalArgumentException if the keyring is not specified.
+     */
+    Hs256TokenDecoder(JwtKeyring keyring) {
+        if (keyring == null) {
+            throw new IllegalArgumentException("The parameter >keyring< is required!");
+        }
+        this.keyring = keyring;
+    }
+
+    /**
+     * Decodes a valid, unexpired HS256 token.
+     *
+     * @param jwt the token to be decoded.
+     * @return the parsed token or null if the token has to be checked by jjwt.
+     */
+    public ParsedToken decode(String jwt) {
+        // rejected tokens are left to jjwt, which may still accept an odd encoding
+        VerificationResult result = verify(jwt, false);
+        return result != null ? result.getToken() : null;
+    }
+
+    /**
+     * Verifies a token without throwing.
+     *
+     * @param jwt        the token to be verified.
+     * @param asymmetric whether RS256 and ES256 tokens are verified by the caller or rejected as unsupported.
+     * @return the result or null if the token has to be checked by jjwt.
+     */
+    VerificationResult verify(String jwt, boolean asymmetric) {
+        if (checkStructure(jwt) != null) {
+            return VerificationResult.rejected(RejectionReason.MALFORMED);
+        }
+        int length = jwt.length();
+        int headerEnd = jwt.indexOf('.');
+        int payloadEnd = jwt.indexOf('.', headerEnd + 1);
+        Buffers b = buffers.get();
+        byte[] raw = b.raw(length);
+        for (int i = 0; i < length; i++) {
+            raw[i] = (byte) jwt.charAt(i);
+        }
+
+        byte[] decoded = b.decoded(length);
+        int headerLength = decode(raw, 0, headerEnd, decoded, 0);
+        int header = parseHeader(decoded, headerLength, b);
+        if (header == HEADER_INVALID) {
+            return VerificationResult.rejected(RejectionReason.MALFORMED);
+        }
+        if (!isSupported(b.alg, asymmetric)) {
+            return VerificationResult.rejected(RejectionReason.UNSUPPORTED);
+        }
+        if (payloadEnd == length - 1) {
+            // jjwt treats a token without signature as unsigned
+            return VerificationResult.rejected(RejectionReason.UNSUPPORTED);
+        }
+        if (header == HEADER_UNUSUAL || !HmacKey.ALGORITHM.getValue().equals(b.alg)) {
+            return null;
+        }
+
+        if (length - payloadEnd - 1 != ENCODED_SIGNATURE_LENGTH
+                || decode(raw, payloadEnd + 1, length, b.signature, 0) != HmacKey.SIGNATURE_LENGTH) {
+            return VerificationResult.rejected(RejectionReason.INVALID_SIGNATURE);
+        }
+        if (!isSignatureValid(raw, payloadEnd, b)) {
+            // header and signature decode the same way in jjwt, so it rejects the token as well
+            return VerificationResult.rejected(RejectionReason.INVALID_SIGNATURE);
+        }
+
+        int payloadLength = decode(raw, headerEnd + 1, payloadEnd, decoded, 0);
+        return parsePayload(decoded, payloadLength);
+    }
+
+    /**
+     * Checks the structure of a token without decoding anything: its length, the three segments
+     * and the Base64url alphabet without padding.
+     *
+     * @param jwt the token to be checked.
+     * @return {@link RejectionReason#MALFORMED} or null if the token is well-formed.
+     */
+    static RejectionReason checkStructure(String jwt) {
+        int length = jwt.length();
+        if (length > MAX_TOKEN_LENGTH) {
+            return RejectionReason.MALFORMED;
+        }
+        int headerEnd = -1;
+        int payloadEnd = -1;
+        for (int i = 0; i < length; i++) {
+            char c = jwt.charAt(i);
+            if (c == '.') {
+                if (headerEnd < 0) {
+                    headerEnd = i;
+                } else if (payloadEnd < 0) {
+                    payloadEnd = i;
+                } else {
+                    return RejectionReason.MALFORMED;
+                }
+            } else if (c >= 128 || DECODE[c] < 0) {
+                return RejectionReason.MALFORMED;
+            }
+        }
+        // a single remaining character can not encode a byte
+        if (payloadEnd < 0 || headerEnd == 0 || payloadEnd == headerEnd + 1
+                || headerEnd % 4 == 1 || (payloadEnd - headerEnd - 1) % 4 == 1 || (length - payloadEnd - 1) % 4 == 1) {
+            return RejectionReason.MALFORMED;
+        }
+        return null;
+    }
+
+    /**
+     * Reads the header of a token the decoder could not decode itself.
+     *
+     * @param jwt the token.
+     * @return the header or an empty map if it can not be read.
+     */
+    static Map<?, ?> header(String jwt) {
+        int headerEnd = jwt.indexOf('.');
+        if (headerEnd <= 0) {
+            return Collections.emptyMap();
+        }
+        try {
+            Map<?, ?> header = mapper.readValue(TextCodec.BASE64URL.decode(jwt.substring(0, headerEnd).trim()), Map.class);
+            return header != null ? header : Collections.emptyMap();
+        } catch (IOException | RuntimeException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    private boolean isSignatureValid(byte[] raw, int signedLength, Buffers b) {
+        for (HmacKey key : keyring.candidates(b.kid)) {
+            if (key.isSignatureValid(raw, signedLength, b.signature, b.expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Accepts the HMAC algorithms jjwt verifies with the secrets, spelled in any case as jjwt does,
+     * and the asymmetric ones if the caller verifies those.
+     */
+    private static boolean isSupported(String alg, boolean asymmetric) {
+        if (alg == null) {
+            return false;
+        }
+        if (alg.equalsIgnoreCase("HS256") || alg.equalsIgnoreCase("HS384") || alg.equalsIgnoreCase("HS512")) {
+            return true;
+        }
+        return asymmetric && JwksKeyProvider.isSupported(alg);
+    }
+
+    /**
+     * Reads alg and kid of the header into the buffers.
+     *
+     * @return {@link #HEADER_SIMPLE} if the header only holds alg, kid and typ, {@link #HEADER_UNUSUAL} if jjwt
+     * has to check it or {@link #HEADER_INVALID} if it is not a JSON object.
+     */
+    private static int parseHeader(byte[] json, int length, Buffers b) {
+        b.alg = null;
+        b.kid = null;
+        if (!isJsonObject(json, length)) {
+            return HEADER_INVALID;
+        }
+        int header = HEADER_SIMPLE;
+        try (JsonParser parser = mapper.getFactory().createParser(json, 0, length)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("alg".equals(name)) {
+                    b.alg = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    if (value != JsonToken.VALUE_STRING && value != JsonToken.VALUE_NULL) {
+                        header = HEADER_UNUSUAL;
+                        parser.skipChildren();
+                    }
+                } else if ("kid".equals(name)) {
+                    if (value == JsonToken.VALUE_STRING) {
+                        b.kid = parser.getText();
+                    } else if (value == JsonToken.VALUE_NULL) {
+                        b.kid = null;
+                    } else {
+                        header = HEADER_UNUSUAL;
+                        parser.skipChildren();
+                    }
+                } else {
+                    // e.g. zip, leave those to jjwt
+                    if (!"typ".equals(name)) {
+                        header = HEADER_UNUSUAL;
+                    }
+                    parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                return HEADER_INVALID;
+            }
+        } catch (IOException e) {
+            return HEADER_INVALID;
+        }
+        return header;
+    }
+
+    private static VerificationResult parsePayload(byte[] json, int length) {
+        // jjwt only treats payloads which start with { and end with } as claims
+        if (!isJsonObject(json, length) || json[length - 1] != '}') {
+            return null;
+        }
+        // the claims are only collected here, the token is built once it is known not to be expired
+        String sub = null;
+        String email = null;
+        String role = null;
+        long exp = 0;
+        boolean hasExp = false;
+        boolean hasMetadata = false;
+        try (JsonParser parser = mapper.getFactory().createParser(json, 0, length)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (name) {
+                    case "exp":
+                        if (value == JsonToken.VALUE_NULL) {
+                            hasExp = false;
+                        } else if (value == JsonToken.VALUE_NUMBER_INT
+                                && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                            exp = parser.getLongValue();
+                            hasExp = true;
+                        } else {
+                            return null;
+                        }
+                        break;
+                    case "nbf":
+                        return null;
+                    case "sub":
+                    case "email":
+                    case "role":
+                        if (value != JsonToken.VALUE_STRING && value != JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                        if ("sub".equals(name)) {
+                            sub = text;
+                        } else if ("email".equals(name)) {
+                            email = text;
+                        } else {
+                            role = text;
+                        }
+                        break;
+                    case "app_metadata":
+                    case "user_metadata":
+                        // only checked here, the maps are decoded from the payload on first access
+                        if (value == JsonToken.START_OBJECT) {
+                            parser.skipChildren();
+                            hasMetadata = true;
+                        } else if (value != JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        // same arithmetic as jjwt, which rejects a token once now is after exp
+        long expMillis = exp * 1000;
+        if (hasExp && System.currentTimeMillis() > expMillis) {
+            return VerificationResult.rejected(RejectionReason.EXPIRED);
+        }
+        return VerificationResult.valid(new ParsedToken(hasExp ? new Date(expMillis) : null, sub, email, role,
+                hasMetadata ? Arrays.copyOf(json, length) : null));
+    }
+
+    /**
+     * Checks for an object in plain UTF-8, Jackson would otherwise guess UTF-16/32 from zero bytes
+     * while jjwt always decodes UTF-8.
+     */
+    private static boolean isJsonObject(byte[] json, int length) {
+        if (length < 2 || json[0] != '{') {
+            return false;
+        }
+        for (int i = 1; i < Math.min(length, 4); i++) {
+            if (json[i] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes unpadded Base64url, the characters and the length are already known to be valid.
+     *
+     * @return the number of decoded bytes.
+     */
+    private static int decode(byte[] in, int from, int to, byte[] out, int offset) {
+        int o = offset;
+        int i = from;
+        for (; i + 4 <= to; i += 4) {
+            int bits = DECODE[in[i]] << 18 | DECODE[in[i + 1]] << 12 | DECODE[in[i + 2]] << 6 | DECODE[in[i + 3]];
+            out[o++] = (byte) (bits >> 16);
+            out[o++] = (byte) (bits >> 8);
+            out[o++] = (byte) bits;
+        }
+        int rest = to - i;
+        if (rest == 2) {
+            int bits = DECODE[in[i]] << 18 | DECODE[in[i + 1]] << 12;
+            out[o++] = (byte) (bits >> 16);
+        } else if (rest == 3) {
+            int bits = DECODE[in[i]] << 18 | DECODE[in[i + 1]] << 12 | DECODE[in[i + 2]] << 6;
+            out[o++] = (byte) (bits >> 16);
+            out[o++] = (byte) (bits >> 8);
+        }
+        return o - offset;
+    }
+
+    private static final class Buffers {
+        private final byte[] expected = new byte[HmacKey.SIGNATURE_LENGTH];
+        private final byte[] signature = new byte[HmacKey.SIGNATURE_LENGTH];
+        private String alg;
+        private String kid;
+        private byte[] raw = new byte[1024];
+        private byte[] decoded = new byte[1024];
+
+        private byte[] raw(int length) {
+            if (raw.length < length) {
+                raw = new byte[length];
+            }
+            return raw;
+        }
+
+        private byte[] decoded(int length) {
+            int max = length / 4 * 3 + 3;
+            if (decoded.length < max) {
+                decoded = new byte[max];
+            }
+            return decoded;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.supabase.jwt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Loads a JWKS document, e.g. from the {@code /.well-known/jwks.json} endpoint of GoTrue.
+ */
+@FunctionalInterface
+public interface JwksFetcher {
+    /**
+     * Loads the current JWKS document.
+     *
+     * @return the JSON document.
+     * @throws IOException if the document could not be loaded.
+     */
+    String fetch() throws IOException;
+
+    /**
+     * Creates a fetcher which loads the document from an url.
+     *
+     * @param url the url of the document, http(s) or file.
+     * @return the fetcher.
+     * @throws IllegalArgumentException if the url is not specified or not valid.
+     */
+    static JwksFetcher fromUrl(String url) {
+        if (url == null || url.isEmpty()) {
+            throw new IllegalArgumentException("The parameter >url< is required!");
+        }
+        URL location;
+        try {
+            location = new URL(url);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The parameter >url< is not valid!", e);
+        }
+        return () -> {
+            URLConnection connection = location.openConnection();
+            connection.setConnectTimeout(5_000);
+            connection.setReadTimeout(5_000);
+            connection.setRequestProperty("Accept", "application/json");
+            try (InputStream in = connection.getInputStream()) {
+                if (connection instanceof HttpURLConnection) {
+                    int status = ((HttpURLConnection) connection).getResponseCode();
+                    if (status != HttpURLConnection.HTTP_OK) {
+                        throw new IOException("Fetching the JWKS failed with status " + status);
+                    }
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int n; (n = in.read(buffer)) > 0; ) {
+                    out.write(buffer, 0, n);
+                }
+                return new String(out.toByteArray(), StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Creates a fetcher which reads the document from a file.
+     *
+     * @param path the file.
+     * @return the fetcher.
+     * @throws IllegalArgumentException if the path is not specified.
+     */
+    static JwksFetcher fromFile(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("The parameter >path< is required!");
+        }
+        return () -> new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,373 @@
+package io.supabase.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.impl.DefaultJwtParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The public keys of a JWKS document, for tokens signed with RS256, RS384, RS512, ES256, ES384 or ES512.
+ * <p>
+ * The keys are parsed once and indexed by {@code kid}. The document is loaded again in the background on a fixed
+ * schedule and when a token names a {@code kid} that is not known yet. Refreshes for unknown kids are rate limited,
+ * so a flood of such tokens results in at most one fetch per minimum refresh interval. Verifications read an
+ * immutable snapshot of the keys and never lock. A failed refresh keeps the previous keys.
+ * <p>
+ * The provider owns a daemon thread and should be closed when it is no longer used.
+ */
+public class JwksKeyProvider implements Closeable {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(10);
+    private static final Duration DEFAULT_MIN_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    private final JwksFetcher fetcher;
+    private final long minRefreshNanos;
+    private final ScheduledExecutorService scheduler;
+    private final JwtParser parser;
+    private final AtomicLong lastRefresh;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+    private volatile Keys keys = Keys.EMPTY;
+
+    /**
+     * Creates a provider which refreshes the document every 10 minutes,
+     * and for unknown kids at most every 30 seconds.
+     *
+     * @param fetcher loads the JWKS document.
+     * @throws IllegalArgumentException if the fetcher is not specified.
+     */
+    public JwksKeyProvider(JwksFetcher fetcher) {
+        this(fetcher, DEFAULT_REFRESH_INTERVAL, DEFAULT_MIN_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Creates a provider and loads the document once.
+     *
+     * @param fetcher            loads the JWKS document.
+     * @param refreshInterval    how often the document is loaded in the background or null for never.
+     * @param minRefreshInterval the minimum time between two loads caused by unknown kids.
+     * @throws IllegalArgumentException if the fetcher or the minimum refresh interval is not specified.
+     */
+    public JwksKeyProvider(JwksFetcher fetcher, Duration refreshInterval, Duration minRefreshInterval) {
+        if (fetcher == null) {
+            throw new IllegalArgumentException("The parameter >fetcher< is required!");
+        }
+        if (minRefreshInterval == null || minRefreshInterval.isNegative()) {
+            throw new IllegalArgumentException("The parameter >minRefreshInterval< is required!");
+        }
+        this.fetcher = fetcher;
+        this.minRefreshNanos = minRefreshInterval.toNanos();
+        this.lastRefresh = new AtomicLong(System.nanoTime() - minRefreshNanos);
+        this.parser = new DefaultJwtParser().setSigningKeyResolver(new Resolver());
+        tryRefresh();
+        if (refreshInterval != null) {
+            long period = refreshInterval.toMillis();
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "gotrue-jwks-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::tryRefresh, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Loads the document and replaces the keys. Keys that can not be parsed or are not meant
+     * for signatures are skipped.
+     *
+     * @throws IOException if the document could not be loaded or is not a JWKS document.
+     */
+    public void refresh() throws IOException {
+        lastRefresh.set(System.nanoTime());
+        try {
+            Keys loaded = parseDocument(fetcher.fetch());
+            if (!loaded.all.equals(keys.all)) {
+                keys = loaded;
+                generation.incrementAndGet();
+            }
+            refreshes.increment();
+        } catch (IOException | RuntimeException e) {
+            failedRefreshes.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the public key with the given id, loading the document again if the id is unknown
+     * and the last load is older than the minimum refresh interval.
+     *
+     * @param kid the key id.
+     * @return the key or null if there is none with the given id.
+     */
+    public PublicKey getKey(String kid) {
+        Jwk key = keys.byKid.get(kid);
+        if (key == null && refreshForUnknownKid()) {
+            key = keys.byKid.get(kid);
+        }
+        return key != null ? key.key : null;
+    }
+
+    /**
+     * @return the ids of the currently known keys.
+     */
+    public Set<String> getKeyIds() {
+        return keys.byKid.keySet();
+    }
+
+    /**
+     * @return how often the document was loaded.
+     */
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * @return how often loading the document failed.
+     */
+    public long getFailedRefreshCount() {
+        return failedRefreshes.sum();
+    }
+
+    /**
+     * Stops the background refresh.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies a token signed with one of the keys.
+     */
+    Jws<Claims> parse(String jwt) {
+        return parser.parseClaimsJws(jwt);
+    }
+
+    /**
+     * @return a number which changes whenever the keys change.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    static boolean isSupported(String alg) {
+        try {
+            SignatureAlgorithm algorithm = SignatureAlgorithm.forName(alg);
+            return algorithm.isRsa() && alg.regionMatches(true, 0, "RS", 0, 2) || algorithm.isEllipticCurve();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private boolean refreshForUnknownKid() {
+        long last = lastRefresh.get();
+        long now = System.nanoTime();
+        if (now - last < minRefreshNanos || !lastRefresh.compareAndSet(last, now)) {
+            return false;
+        }
+        return tryRefresh();
+    }
+
+    private boolean tryRefresh() {
+        try {
+            refresh();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // keep the previous keys, the next refresh will try again
+            return false;
+        }
+    }
+
+    private Jwk find(String kid, SignatureAlgorithm alg) {
+        if (kid != null) {
+            Jwk key = keys.byKid.get(kid);
+            if (key == null && refreshForUnknownKid()) {
+                key = keys.byKid.get(kid);
+            }
+            return key != null && key.supports(alg) ? key : null;
+        }
+        for (Jwk key : keys.all) {
+            if (key.supports(alg)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private static Keys parseDocument(String document) throws IOException {
+        Object keys = mapper.readValue(document, Map.class).get("keys");
+        if (!(keys instanceof List)) {
+            throw new IOException("The JWKS document has no keys");
+        }
+        List<Jwk> parsed = new ArrayList<>();
+        for (Object entry : (List<?>) keys) {
+            if (!(entry instanceof Map)) {
+                continue;
+            }
+            Map<?, ?> jwk = (Map<?, ?>) entry;
+            if (jwk.get("use") != null && !"sig".equals(jwk.get("use"))) {
+                continue;
+            }
+            PublicKey key;
+            try {
+                key = toPublicKey(jwk);
+            } catch (GeneralSecurityException | RuntimeException e) {
+                continue;
+            }
+            if (key != null) {
+                Object kid = jwk.get("kid");
+                Object alg = jwk.get("alg");
+                parsed.add(new Jwk(kid != null ? String.valueOf(kid) : null, key, alg != null ? String.valueOf(alg) : null));
+            }
+        }
+        return new Keys(parsed);
+    }
+
+    private static PublicKey toPublicKey(Map<?, ?> jwk) throws GeneralSecurityException {
+        Object kty = jwk.get("kty");
+        if ("RSA".equals(kty)) {
+            RSAPublicKeySpec spec = new RSAPublicKeySpec(number(jwk, "n"), number(jwk, "e"));
+            return KeyFactory.getInstance("RSA").generatePublic(spec);
+        }
+        if ("EC".equals(kty)) {
+            String curve = curveName(jwk.get("crv"));
+            if (curve == null) {
+                return null;
+            }
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(curve));
+            ECPoint point = new ECPoint(number(jwk, "x"), number(jwk, "y"));
+            ECPublicKeySpec spec = new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class));
+            return KeyFactory.getInstance("EC").generatePublic(spec);
+        }
+        return null;
+    }
+
+    private static String curveName(Object crv) {
+        if ("P-256".equals(crv)) {
+            return "secp256r1";
+        } else if ("P-384".equals(crv)) {
+            return "secp384r1";
+        } else if ("P-521".equals(crv)) {
+            return "secp521r1";
+        }
+        return null;
+    }
+
+    private static BigInteger number(Map<?, ?> jwk, String name) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get(name)));
+    }
+
+    private static final class Keys {
+        private static final Keys EMPTY = new Keys(Collections.emptyList());
+
+        private final List<Jwk> all;
+        private final Map<String, Jwk> byKid;
+
+        private Keys(List<Jwk> keys) {
+            all = keys;
+            Map<String, Jwk> map = new LinkedHashMap<>();
+            for (Jwk key : keys) {
+                if (key.kid != null) {
+                    map.putIfAbsent(key.kid, key);
+                }
+            }
+            byKid = Collections.unmodifiableMap(map);
+        }
+    }
+
+    private static final class Jwk {
+        private final String kid;
+        private final PublicKey key;
+        private final String alg;
+
+        private Jwk(String kid, PublicKey key, String alg) {
+            this.kid = kid;
+            this.key = key;
+            this.alg = alg;
+        }
+
+        private boolean supports(SignatureAlgorithm algorithm) {
+            if (alg != null && !alg.equals(algorithm.getValue())) {
+                return false;
+            }
+            if (algorithm.isRsa() && algorithm.getValue().startsWith("RS")) {
+                return key instanceof RSAPublicKey;
+            }
+            if (algorithm.isEllipticCurve() && key instanceof ECPublicKey) {
+                int size = ((ECPublicKey) key).getParams().getCurve().getField().getFieldSize();
+                return algorithm == SignatureAlgorithm.ES256 ? size == 256
+                        : algorithm == SignatureAlgorithm.ES384 ? size == 384 : size == 521;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Jwk)) return false;
+            Jwk jwk = (Jwk) o;
+            return Objects.equals(kid, jwk.kid) && key.equals(jwk.key) && Objects.equals(alg, jwk.alg);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+    }
+
+    /**
+     * Resolves the key by the kid and algorithm of the token, which must match the key type.
+     */
+    private class Resolver extends SigningKeyResolverAdapter {
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            SignatureAlgorithm alg = SignatureAlgorithm.forName(header.getAlgorithm());
+            Jwk key = find(header.getKeyId(), alg);
+            if (key == null) {
+                throw new SignatureException("No JWKS key found to verify the JWT signature.");
+            }
+            return key.key;
+        }
+    }
+}
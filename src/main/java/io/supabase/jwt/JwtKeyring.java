@@ -0,0 +1,176 @@
+package io.supabase.jwt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * The HS256 secrets tokens may be signed with, e.g. the old and the new one during a secret rotation.
+ * <p>
+ * Each secret is set up once. A token with a {@code kid} header is checked against the key with that id only,
+ * tokens without a {@code kid}, or with one no key has, are checked against the keys without an id in order.
+ * Keys can be changed at any time, verifications read an immutable snapshot and never lock.
+ */
+public class JwtKeyring {
+    private final AtomicReference<Keys> keys = new AtomicReference<>(Keys.EMPTY);
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Creates an empty keyring.
+     */
+    public JwtKeyring() {
+    }
+
+    /**
+     * Creates a keyring with the given secrets, tried in the given order.
+     *
+     * @param secrets the GoTrue JWT secrets.
+     * @throws IllegalArgumentException if a secret is not specified.
+     */
+    public JwtKeyring(String... secrets) {
+        setSecrets(secrets);
+    }
+
+    /**
+     * Adds a key, which is tried before the existing ones. An existing key with the same id is replaced.
+     *
+     * @param kid    the key id or null if the tokens signed with the key carry no kid.
+     * @param secret the secret.
+     * @throws IllegalArgumentException if the secret is not specified.
+     */
+    public void add(String kid, String secret) {
+        HmacKey key = new HmacKey(kid, secret);
+        update(k -> {
+            List<HmacKey> list = new ArrayList<>();
+            list.add(key);
+            for (HmacKey existing : k.all) {
+                if (kid == null || !kid.equals(existing.getKid())) {
+                    list.add(existing);
+                }
+            }
+            return new Keys(list);
+        });
+    }
+
+    /**
+     * Removes the key with the given id.
+     *
+     * @param kid the key id.
+     * @return whether a key was removed.
+     */
+    public boolean remove(String kid) {
+        return removeIf(kid, null);
+    }
+
+    /**
+     * Removes all keys with the given secret.
+     *
+     * @param secret the secret.
+     * @return whether a key was removed.
+     */
+    public boolean removeSecret(String secret) {
+        return removeIf(null, secret);
+    }
+
+    /**
+     * Replaces all keys with keys without id, tried in the given order.
+     *
+     * @param secrets the secrets.
+     * @throws IllegalArgumentException if a secret is not specified.
+     */
+    public void setSecrets(String... secrets) {
+        List<HmacKey> list = new ArrayList<>();
+        for (String secret : secrets) {
+            list.add(new HmacKey(null, secret));
+        }
+        keys.set(new Keys(list));
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return the number of keys.
+     */
+    public int size() {
+        return keys.get().all.length;
+    }
+
+    /**
+     * @return a number which changes whenever keys are added or removed.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Gets the keys a token has to be checked against.
+     *
+     * @param kid the kid header of the token or null.
+     * @return the keys to try in order, possibly none.
+     */
+    HmacKey[] candidates(String kid) {
+        return keys.get().candidates(kid);
+    }
+
+    private boolean removeIf(String kid, String secret) {
+        boolean[] removed = new boolean[1];
+        update(k -> {
+            List<HmacKey> list = new ArrayList<>();
+            for (HmacKey existing : k.all) {
+                boolean match = kid != null ? kid.equals(existing.getKid()) : existing.getSecret().equals(secret);
+                if (!match) {
+                    list.add(existing);
+                }
+            }
+            removed[0] = list.size() != k.all.length;
+            return removed[0] ? new Keys(list) : k;
+        });
+        return removed[0];
+    }
+
+    private void update(UnaryOperator<Keys> change) {
+        Keys before;
+        Keys after;
+        do {
+            before = keys.get();
+            after = change.apply(before);
+        } while (!keys.compareAndSet(before, after));
+        if (after != before) {
+            generation.incrementAndGet();
+        }
+    }
+
+    private static final class Keys {
+        private static final Keys EMPTY = new Keys(Collections.emptyList());
+
+        private final HmacKey[] all;
+        private final HmacKey[] unnamed;
+        private final Map<String, HmacKey> byKid;
+
+        private Keys(List<HmacKey> keys) {
+            all = keys.toArray(new HmacKey[0]);
+            List<HmacKey> withoutKid = new ArrayList<>();
+            byKid = new HashMap<>();
+            for (HmacKey key : all) {
+                if (key.getKid() == null) {
+                    withoutKid.add(key);
+                } else {
+                    byKid.putIfAbsent(key.getKid(), key);
+                }
+            }
+            unnamed = withoutKid.toArray(new HmacKey[0]);
+        }
+
+        private HmacKey[] candidates(String kid) {
+            if (kid == null) {
+                return all;
+            }
+            HmacKey key = byKid.get(kid);
+            return key != null ? key.asArray() : unnamed;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package io.supabase.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.utils.JwtVerificationEvent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Verifies HS256 signed GoTrue tokens, and asymmetrically signed ones if a {@link JwksKeyProvider} is given.
+ * <p>
+ * The key material and the jjwt parsers are set up once per secret of a {@link JwtKeyring}, the HMAC-SHA256 state
+ * is kept in one {@link javax.crypto.Mac} per thread. Tokens are decoded by the {@link Hs256TokenDecoder} first,
+ * jjwt only parses the tokens the decoder leaves to it. An instance is thread-safe and meant to be long-lived.
+ * Every verification is recorded as a {@link JwtVerificationEvent}.
+ */
+public class JwtVerifier {
+    private final String secret;
+    private final JwtKeyring keyring;
+    private final JwksKeyProvider jwks;
+    private final Hs256TokenDecoder decoder;
+    private final VerifiedTokenCache cache;
+    private volatile long generation;
+
+    /**
+     * Creates a verifier for the given secret.
+     *
+     * @param secret the GoTrue JWT secret.
+     * @throws IllegalArgumentException if the secret is not specified.
+     */
+    public JwtVerifier(String secret) {
+        this(secret, null);
+    }
+
+    /**
+     * Creates a verifier for the given secret which remembers the tokens it verified.
+     *
+     * @param secret the GoTrue JWT secret.
+     * @param cache  the cache for verified tokens or null to verify every token.
+     * @throws IllegalArgumentException if the secret is not specified.
+     */
+    public JwtVerifier(String secret, VerifiedTokenCache cache) {
+        this(secret, new JwtKeyring(secret), null, cache);
+    }
+
+    /**
+     * Creates a verifier for the secrets of the given keyring, which may change at any time.
+     *
+     * @param keyring the GoTrue JWT secrets.
+     * @throws IllegalArgumentException if the keyring is not specified.
+     */
+    public JwtVerifier(JwtKeyring keyring) {
+        this(keyring, null);
+    }
+
+    /**
+     * Creates a verifier for the secrets of the given keyring which remembers the tokens it verified.
+     * The cache is cleared whenever the keyring changes.
+     *
+     * @param keyring the GoTrue JWT secrets.
+     * @param cache   the cache for verified tokens or null to verify every token.
+     * @throws IllegalArgumentException if the keyring is not specified.
+     */
+    public JwtVerifier(JwtKeyring keyring, VerifiedTokenCache cache) {
+        this(keyring, null, cache);
+    }
+
+    /**
+     * Creates a verifier for the secrets of the given keyring and the public keys of a JWKS document.
+     * The cache is cleared whenever the keyring or the JWKS keys change.
+     *
+     * @param keyring the GoTrue JWT secrets, may be empty if all tokens are signed asymmetrically.
+     * @param jwks    the keys for RS256 and ES256 signed tokens or null to only accept HS256 signed ones.
+     * @param cache   the cache for verified tokens or null to verify every token.
+     * @throws IllegalArgumentException if the keyring is not specified.
+     */
+    public JwtVerifier(JwtKeyring keyring, JwksKeyProvider jwks, VerifiedTokenCache cache) {
+        this(null, keyring, jwks, cache);
+    }
+
+    private JwtVerifier(String secret, JwtKeyring keyring, JwksKeyProvider jwks, VerifiedTokenCache cache) {
+        this.secret = secret;
+        this.decoder = new Hs256TokenDecoder(keyring);
+        this.keyring = keyring;
+        this.jwks = jwks;
+        this.cache = cache;
+        this.generation = generation();
+    }
+
+    /**
+     * Verifies the signature and the standard claims of a token.
+     *
+     * @param jwt the token to be verified.
+     * @return the verified claims.
+     * @throws JwtException if the given token is expired, malformed, unsupported or wrongly signed
+     */
+    public Jws<Claims> verify(String jwt) {
+        Map<?, ?> header = Hs256TokenDecoder.header(jwt);
+        Object alg = header.get("alg");
+        if (jwks != null && alg instanceof String && JwksKeyProvider.isSupported((String) alg)) {
+            return jwks.parse(jwt);
+        }
+        Object kid = header.get("kid");
+        HmacKey[] keys = keyring.candidates(kid != null ? String.valueOf(kid) : null);
+        if (keys.length == 0) {
+            throw new SignatureException("No key found to verify the JWT signature.");
+        }
+        SignatureException last = null;
+        for (HmacKey key : keys) {
+            try {
+                return key.parse(jwt);
+            } catch (SignatureException e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    /**
+     * Verifies and parses a token. Tokens which are not in the compact serialization of RFC 7515, e.g. padded or
+     * with whitespace, are rejected as malformed, as {@link #tryParse(String)} does.
+     *
+     * @param jwt the token to be parsed.
+     * @return the parsed token.
+     * @throws JwtException if the given token is expired, malformed, unsupported or wrongly signed
+     */
+    public ParsedToken parse(String jwt) {
+        JwtVerificationEvent event = new JwtVerificationEvent();
+        if (!event.isEnabled()) {
+            return parseUnrecorded(jwt);
+        }
+        event.begin();
+        String outcome = "VALID";
+        try {
+            return parseUnrecorded(jwt);
+        } catch (RuntimeException e) {
+            RejectionReason reason = RejectionReason.of(e);
+            outcome = reason != null ? reason.name() : e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            if (event.shouldCommit()) {
+                event.setOutcome(outcome);
+                event.commit();
+            }
+        }
+    }
+
+    private ParsedToken parseUnrecorded(String jwt) {
+        // null and empty tokens are left to jjwt, which rejects them with an IllegalArgumentException
+        if (jwt != null && !jwt.isEmpty() && Hs256TokenDecoder.checkStructure(jwt) != null) {
+            throw new MalformedJwtException("The JWT is not in the compact serialization.");
+        }
+        if (cache == null) {
+            return decode(jwt);
+        }
+        long keys = checkGeneration();
+        ParsedToken parsed = cache.get(jwt);
+        if (parsed == null) {
+            parsed = decode(jwt);
+            putIfUnchanged(jwt, parsed, keys);
+        }
+        return parsed;
+    }
+
+    /**
+     * Verifies and parses a token without throwing for invalid tokens.
+     * <p>
+     * Malformed tokens and ones with an unsupported {@code alg} are rejected before their signature is checked,
+     * expired ones before their claims are read. A token is valid exactly if {@link #parse(String)} accepts it.
+     *
+     * @param jwt the token to be parsed.
+     * @return the parsed token or the reason the token was rejected.
+     */
+    public VerificationResult tryParse(String jwt) {
+        JwtVerificationEvent event = new JwtVerificationEvent();
+        if (!event.isEnabled()) {
+            return tryParseUnrecorded(jwt);
+        }
+        event.begin();
+        VerificationResult result = tryParseUnrecorded(jwt);
+        if (event.shouldCommit()) {
+            event.setOutcome(result.isValid() ? "VALID" : result.getRejectionReason().name());
+            event.commit();
+        }
+        return result;
+    }
+
+    private VerificationResult tryParseUnrecorded(String jwt) {
+        if (jwt == null || Hs256TokenDecoder.checkStructure(jwt) != null) {
+            return VerificationResult.rejected(RejectionReason.MALFORMED);
+        }
+        long keys = 0;
+        if (cache != null) {
+            keys = checkGeneration();
+            ParsedToken parsed = cache.get(jwt);
+            if (parsed != null) {
+                return VerificationResult.valid(parsed);
+            }
+        }
+        VerificationResult result = decoder.verify(jwt, jwks != null);
+        if (result == null) {
+            result = verifyWithJjwt(jwt);
+        }
+        if (cache != null && result.isValid()) {
+            putIfUnchanged(jwt, result.getToken(), keys);
+        }
+        return result;
+    }
+
+    /**
+     * Verifies and parses many tokens at once, the work is split across the common fork-join pool.
+     *
+     * @param jwts the tokens to be parsed.
+     * @return one result per token, in the iteration order of the given tokens.
+     */
+    public List<VerificationResult> parseAll(Collection<String> jwts) {
+        return parseAll(jwts, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Verifies and parses many tokens at once, the work is split across the given fork-join pool.
+     *
+     * @param jwts the tokens to be parsed.
+     * @param pool the pool to run the verification in.
+     * @return one result per token, in the iteration order of the given tokens.
+     */
+    public List<VerificationResult> parseAll(Collection<String> jwts, ForkJoinPool pool) {
+        String[] tokens = jwts.toArray(new String[0]);
+        VerificationResult[] results = new VerificationResult[tokens.length];
+        pool.invoke(new BatchTask(tokens, results, 0, tokens.length));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Checks whether a token is valid.
+     *
+     * @param jwt the token to be validated.
+     * @return whether the given token is valid.
+     */
+    public boolean isValid(String jwt) {
+        return tryParse(jwt).isValid();
+    }
+
+    /**
+     * @return the cache for verified tokens or null if every token is verified.
+     */
+    public VerifiedTokenCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the secrets tokens are verified with.
+     */
+    public JwtKeyring getKeyring() {
+        return keyring;
+    }
+
+    /**
+     * @return the public keys asymmetrically signed tokens are verified with or null if there are none.
+     */
+    public JwksKeyProvider getJwks() {
+        return jwks;
+    }
+
+    /**
+     * Checks whether this verifier was built from the given secret.
+     *
+     * @param secret the secret to compare with.
+     * @return true if the secrets are equal, false for verifiers built from a keyring.
+     */
+    public boolean hasSecret(String secret) {
+        return this.secret != null && this.secret.equals(secret);
+    }
+
+    @SuppressWarnings("unchecked")
+    static ParsedToken toParsedToken(Claims claims) {
+        // missing metadata maps are created empty on first access
+        return new ParsedToken(claims.getExpiration(), claims.getSubject(), (String) claims.get("email"),
+                (Map<String, String>) claims.get("app_metadata"), (Map<String, String>) claims.get("user_metadata"),
+                (String) claims.get("role"));
+    }
+
+    /**
+     * Drops the cached tokens once the keys changed, a removed secret must not keep its tokens valid.
+     */
+    private long checkGeneration() {
+        long current = generation();
+        if (current != generation) {
+            generation = current;
+            cache.clear();
+        }
+        return current;
+    }
+
+    private long generation() {
+        // both only grow, so the sum changes whenever one of them does
+        return jwks != null ? keyring.generation() + jwks.generation() : keyring.generation();
+    }
+
+    private void putIfUnchanged(String jwt, ParsedToken parsed, long keys) {
+        // the token may have been verified with a key removed in the meantime
+        if (generation() == keys) {
+            cache.put(jwt, parsed);
+        }
+    }
+
+    private ParsedToken decode(String jwt) {
+        ParsedToken parsed = decoder.decode(jwt);
+        // rejected tokens go through jjwt as well to throw its exceptions
+        return parsed != null ? parsed : toParsedToken(verify(jwt).getBody());
+    }
+
+    private VerificationResult verifyWithJjwt(String jwt) {
+        try {
+            return VerificationResult.valid(toParsedToken(verify(jwt).getBody()));
+        } catch (JwtException | IllegalArgumentException | ClassCastException e) {
+            return VerificationResult.rejected(RejectionReason.of(e));
+        }
+    }
+
+    private class BatchTask extends RecursiveAction {
+        private static final int THRESHOLD = 128;
+        private final String[] tokens;
+        private final VerificationResult[] results;
+        private final int from;
+        private final int to;
+
+        private BatchTask(String[] tokens, VerificationResult[] results, int from, int to) {
+            this.tokens = tokens;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = tryParse(tokens[i]);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BatchTask(tokens, results, from, middle), new BatchTask(tokens, results, middle, to));
+            }
+        }
+    }
+}
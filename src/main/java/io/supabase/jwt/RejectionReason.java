@@ -0,0 +1,65 @@
+package io.supabase.jwt;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+
+/**
+ * Why a token was rejected.
+ */
+public enum RejectionReason {
+    /**
+     * The token is not a well-formed signed JWT.
+     */
+    MALFORMED,
+    /**
+     * The token is not signed or uses a signature algorithm that is not supported.
+     */
+    UNSUPPORTED,
+    /**
+     * The signature does not match the token.
+     */
+    INVALID_SIGNATURE,
+    /**
+     * The token is expired.
+     */
+    EXPIRED,
+    /**
+     * The token must not be used yet.
+     */
+    PREMATURE,
+    /**
+     * A claim has an unexpected type.
+     */
+    INVALID_CLAIMS;
+
+    /**
+     * Gets the reason a token was rejected with an exception of {@link JwtVerifier#parse(String)}.
+     *
+     * @param e the exception.
+     * @return the reason or null if the exception does not reject the token.
+     */
+    public static RejectionReason of(RuntimeException e) {
+        if (e instanceof ExpiredJwtException) {
+            return EXPIRED;
+        }
+        if (e instanceof PrematureJwtException) {
+            return PREMATURE;
+        }
+        if (e instanceof SignatureException) {
+            return INVALID_SIGNATURE;
+        }
+        if (e instanceof UnsupportedJwtException) {
+            return UNSUPPORTED;
+        }
+        if (e instanceof JwtException || e instanceof IllegalArgumentException) {
+            return MALFORMED;
+        }
+        if (e instanceof ClassCastException) {
+            return INVALID_CLAIMS;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package io.supabase.jwt;
+
+import io.supabase.data.jwt.ParsedToken;
+
+/**
+ * The outcome of verifying a single token: either the parsed token or the reason it was rejected.
+ */
+public final class VerificationResult {
+    private static final VerificationResult[] REJECTED = new VerificationResult[RejectionReason.values().length];
+
+    static {
+        for (RejectionReason reason : RejectionReason.values()) {
+            REJECTED[reason.ordinal()] = new VerificationResult(null, reason);
+        }
+    }
+
+    private final ParsedToken token;
+    private final RejectionReason rejectionReason;
+
+    private VerificationResult(ParsedToken token, RejectionReason rejectionReason) {
+        this.token = token;
+        this.rejectionReason = rejectionReason;
+    }
+
+    static VerificationResult valid(ParsedToken token) {
+        return new VerificationResult(token, null);
+    }
+
+    static VerificationResult rejected(RejectionReason reason) {
+        return REJECTED[reason.ordinal()];
+    }
+
+    /**
+     * @return whether the token is valid.
+     */
+    public boolean isValid() {
+        return token != null;
+    }
+
+    /**
+     * @return the parsed token or null if the token was rejected.
+     */
+    public ParsedToken getToken() {
+        return token;
+    }
+
+    /**
+     * @return why the token was rejected or null if it is valid.
+     */
+    public RejectionReason getRejectionReason() {
+        return rejectionReason;
+    }
+}
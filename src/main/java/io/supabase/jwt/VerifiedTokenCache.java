@@ -0,0 +1,191 @@
+package io.supabase.jwt;
+
+import io.supabase.data.jwt.ParsedToken;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of already verified tokens.
+ * <p>
+ * Tokens are keyed by themselves, so a hit costs a string hash and comparison rather than a digest, which would
+ * cost about as much as verifying the HMAC again. The cached tokens take about as much memory as their claims.
+ * An entry is dropped once its token expires or when it is the least recently used one of a full cache,
+ * whichever comes first. The cache is split into segments to keep lock contention low.
+ * <p>
+ * Cached tokens are shared between callers and must not be modified.
+ */
+public class VerifiedTokenCache {
+    private final Segment[] segments;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Creates a cache which holds at most about the given number of tokens.
+     *
+     * @param maximumSize the maximum number of cached tokens.
+     * @throws IllegalArgumentException if the maximum size is not positive.
+     */
+    public VerifiedTokenCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The parameter >maximumSize< must be positive!");
+        }
+        int count = 1;
+        int target = Math.min(Runtime.getRuntime().availableProcessors() * 2, maximumSize);
+        while (count < target) {
+            count <<= 1;
+        }
+        int perSegment = (maximumSize + count - 1) / count;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        mask = count - 1;
+    }
+
+    /**
+     * Gets an already verified token.
+     *
+     * @param jwt the token.
+     * @return the cached token or null if it is not cached or expired.
+     */
+    public ParsedToken get(String jwt) {
+        Segment segment = segmentFor(jwt);
+        ParsedToken parsed = null;
+        synchronized (segment) {
+            Entry entry = segment.get(jwt);
+            if (entry != null) {
+                if (entry.isExpired(System.currentTimeMillis())) {
+                    segment.remove(jwt);
+                    expirations.increment();
+                } else {
+                    parsed = entry.parsed;
+                }
+            }
+        }
+        if (parsed != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return parsed;
+    }
+
+    /**
+     * Caches a verified token until it expires or gets evicted.
+     *
+     * @param jwt    the token.
+     * @param parsed the verified token.
+     */
+    public void put(String jwt, ParsedToken parsed) {
+        long exp = parsed.getExp() != null ? parsed.getExp().getTime() : Long.MAX_VALUE;
+        long now = System.currentTimeMillis();
+        if (now > exp) {
+            return;
+        }
+        Segment segment = segmentFor(jwt);
+        synchronized (segment) {
+            segment.put(jwt, new Entry(parsed, exp));
+            // drop an expired eldest entry right away instead of waiting for it to be evicted
+            Iterator<Entry> eldest = segment.values().iterator();
+            if (eldest.hasNext() && eldest.next().isExpired(now)) {
+                eldest.remove();
+                expirations.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached tokens.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached tokens.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return how often a token was found in the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how often a token was not found in the cache.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return how many tokens were evicted because the cache was full.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return how many tokens were dropped because they expired.
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    private Segment segmentFor(String jwt) {
+        int h = jwt.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static final class Entry {
+        private final ParsedToken parsed;
+        private final long exp;
+
+        private Entry(ParsedToken parsed, long exp) {
+            this.parsed = parsed;
+            this.exp = exp;
+        }
+
+        private boolean isExpired(long now) {
+            return now > exp;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, Entry> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.supabase.metrics;
+
+import io.supabase.exceptions.ApiException;
+import org.springframework.http.converter.HttpMessageConversionException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Why a request to GoTrue failed.
+ */
+public enum ErrorKind {
+    /**
+     * The request succeeded.
+     */
+    NONE,
+    /**
+     * GoTrue answered with a 4xx status.
+     */
+    CLIENT_ERROR,
+    /**
+     * GoTrue answered with a 5xx status.
+     */
+    SERVER_ERROR,
+    /**
+     * GoTrue did not answer in time.
+     */
+    TIMEOUT,
+    /**
+     * GoTrue could not be reached or the connection broke.
+     */
+    CONNECTION,
+    /**
+     * A body could not be written or read as JSON.
+     */
+    MAPPING,
+    /**
+     * Any other error.
+     */
+    OTHER;
+
+    /**
+     * Classifies an error, looking at its cause if it is an {@link ApiException}.
+     *
+     * @param error the error or null if the request succeeded.
+     * @return the kind of the error.
+     */
+    public static ErrorKind of(Throwable error) {
+        if (error == null) {
+            return NONE;
+        }
+        Throwable cause = error instanceof ApiException && error.getCause() != null
+                ? error.getCause() : error;
+        if (cause instanceof RestClientResponseException) {
+            int status = ((RestClientResponseException) cause).getRawStatusCode();
+            return status >= 500 ? SERVER_ERROR : status >= 400 ? CLIENT_ERROR : OTHER;
+        }
+        if (cause instanceof ResourceAccessException) {
+            for (Throwable c = cause.getCause(); c != null; c = c.getCause()) {
+                // the one of java.net.http is not there on Java 8
+                if (c instanceof SocketTimeoutException || c.getClass().getSimpleName().endsWith("TimeoutException")) {
+                    return TIMEOUT;
+                }
+            }
+            return CONNECTION;
+        }
+        if (cause instanceof HttpMessageConversionException) {
+            return MAPPING;
+        }
+        return OTHER;
+    }
+}
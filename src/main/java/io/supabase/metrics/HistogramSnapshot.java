@@ -0,0 +1,94 @@
+package io.supabase.metrics;
+
+/**
+ * The latencies a {@link LatencyHistogram} recorded up to a point in time. All values are in microseconds.
+ */
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        this.count = total;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * @return how many latencies were recorded.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean latency, 0 if none was recorded.
+     */
+    public double getMeanMicros() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @return the longest latency, 0 if none was recorded.
+     */
+    public long getMaxMicros() {
+        return max;
+    }
+
+    /**
+     * Gets the latency a percentage of the recorded ones did not exceed, within the precision of the buckets.
+     *
+     * @param percentile the percentage, e.g. 99 for the p99.
+     * @return the latency, 0 if none was recorded.
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+     */
+    public long getPercentileMicros(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile has to be between 0 and 100!");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, LatencyHistogram.highestValue(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Gets the count of a bucket, e.g. to export the histogram. Bucket {@code i} holds the latencies from
+     * {@link #getBucketLowestMicros(int) getBucketLowestMicros(i)} up to the lowest one of bucket {@code i + 1}.
+     *
+     * @param bucket the index of the bucket.
+     * @return how many latencies fell into the bucket.
+     */
+    public long getBucketCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @param bucket the index of the bucket.
+     * @return the lowest latency counted in the bucket.
+     */
+    public long getBucketLowestMicros(int bucket) {
+        return bucket == 0 ? 0 : LatencyHistogram.highestValue(bucket - 1) + 1;
+    }
+
+    /**
+     * @return the number of buckets.
+     */
+    public int getBuckets() {
+        return counts.length;
+    }
+}
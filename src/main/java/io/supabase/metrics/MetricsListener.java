@@ -0,0 +1,24 @@
+package io.supabase.metrics;
+
+/**
+ * Gets told about every request sent to GoTrue, e.g. to export them to a metrics system.
+ * <p>
+ * It is called on the thread which sent the request, right after the response, so it has to be fast,
+ * thread-safe and must not throw. {@link RequestMetrics} is a built-in one.
+ */
+@FunctionalInterface
+public interface MetricsListener {
+    /**
+     * Records a request.
+     *
+     * @param operation     the name of the operation, e.g. {@code signInWithEmail}.
+     * @param endpoint      the endpoint the request was sent to, e.g. {@code POST /token}.
+     * @param durationNanos how long the request took, in nanoseconds.
+     * @param status        the status of the response or 0 if there was none.
+     * @param requestBytes  the size of the request body.
+     * @param responseBytes the size of the response body, as far as it was read.
+     * @param error         why the request failed or {@link ErrorKind#NONE}.
+     */
+    void onRequest(String operation, String endpoint, long durationNanos, int status, long requestBytes,
+                   long responseBytes, ErrorKind error);
+}
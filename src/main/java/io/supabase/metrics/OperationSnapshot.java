@@ -0,0 +1,78 @@
+package io.supabase.metrics;
+
+/**
+ * The figures {@link RequestMetrics} recorded for an operation up to a point in time.
+ */
+public class OperationSnapshot {
+    private final String endpoint;
+    private final HistogramSnapshot latency;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final long[] statusClasses;
+    private final long[] errors;
+
+    OperationSnapshot(String endpoint, HistogramSnapshot latency, long requestBytes, long responseBytes,
+                      long[] statusClasses, long[] errors) {
+        this.endpoint = endpoint;
+        this.latency = latency;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.statusClasses = statusClasses;
+        this.errors = errors;
+    }
+
+    /**
+     * @return the endpoint of the operation, e.g. {@code POST /token}.
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return the latencies of the requests.
+     */
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return how many requests were sent.
+     */
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    /**
+     * @return the size of all request bodies.
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return the size of all response bodies.
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @param statusClass the first digit of the status, e.g. 2 for 2xx, or 0 for requests without a response.
+     * @return how many responses had a status of the class.
+     * @throws IllegalArgumentException if the class is not between 0 and 5.
+     */
+    public long getStatusCount(int statusClass) {
+        if (statusClass < 0 || statusClass >= statusClasses.length) {
+            throw new IllegalArgumentException("The status class has to be between 0 and 5!");
+        }
+        return statusClasses[statusClass];
+    }
+
+    /**
+     * @param kind the kind of error, {@link ErrorKind#NONE} for the requests which succeeded.
+     * @return how many requests failed with the kind of error.
+     */
+    public long getErrorCount(ErrorKind kind) {
+        return errors[kind.ordinal()];
+    }
+}
@@ -0,0 +1,94 @@
+package io.supabase.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a {@link LatencyHistogram}, the body sizes, the status classes and the errors of every operation.
+ * <p>
+ * Recording takes no locks once an operation was seen, so it can stay on in production. The figures are read
+ * with {@link #getSnapshot()}. An instance is thread-safe.
+ */
+public class RequestMetrics implements MetricsListener {
+    private static final ErrorKind[] ERROR_KINDS = ErrorKind.values();
+
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRequest(String operation, String endpoint, long durationNanos, int status, long requestBytes,
+                          long responseBytes, ErrorKind error) {
+        Operation metrics = operations.get(operation);
+        if (metrics == null) {
+            metrics = operations.computeIfAbsent(operation, o -> new Operation(endpoint));
+        }
+        metrics.record(durationNanos, status, requestBytes, responseBytes, error);
+    }
+
+    /**
+     * @return the figures of every operation seen so far, by the name of the operation.
+     */
+    public Map<String, OperationSnapshot> getSnapshot() {
+        Map<String, OperationSnapshot> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * @param operation the name of the operation, e.g. {@code getUser}.
+     * @return the figures of the operation or null if it was not seen yet.
+     */
+    public OperationSnapshot getSnapshot(String operation) {
+        Operation metrics = operations.get(operation);
+        return metrics != null ? metrics.snapshot() : null;
+    }
+
+    private static final class Operation {
+        private final String endpoint;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        // by the first digit of the status, 0 for no response
+        private final LongAdder[] statusClasses = adders(6);
+        private final LongAdder[] errors = adders(ERROR_KINDS.length);
+
+        private Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private void record(long durationNanos, int status, long requestBytes, long responseBytes, ErrorKind error) {
+            latency.recordNanos(durationNanos);
+            this.requestBytes.add(requestBytes);
+            this.responseBytes.add(responseBytes);
+            int statusClass = status / 100;
+            statusClasses[statusClass > 0 && statusClass < 6 ? statusClass : 0].increment();
+            errors[error.ordinal()].increment();
+        }
+
+        private OperationSnapshot snapshot() {
+            return new OperationSnapshot(endpoint, latency.getSnapshot(), requestBytes.sum(), responseBytes.sum(),
+                    sums(statusClasses), sums(errors));
+        }
+
+        private static LongAdder[] adders(int length) {
+            LongAdder[] adders = new LongAdder[length];
+            for (int i = 0; i < length; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+
+        private static long[] sums(LongAdder[] adders) {
+            long[] sums = new long[adders.length];
+            for (int i = 0; i < adders.length; i++) {
+                sums[i] = adders[i].sum();
+            }
+            return sums;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package io.supabase.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.supabase.exceptions.ApiException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends requests to GoTrue without blocking the calling thread.
+ * <p>
+ * Requests are multiplexed by a non-blocking I/O reactor over a pool of keep-alive connections,
+ * so many requests in flight only take a few threads. Failed requests complete exceptionally with an
+ * {@link ApiException} caused by the same exceptions the {@link org.springframework.web.client.RestTemplate}
+ * of {@link RestUtils} throws. An instance is thread-safe and meant to be shared.
+ */
+public class AsyncHttpTransport implements Closeable {
+    // the readers and writers of the DTOs are shared with the blocking transports
+    private static final JsonHttpMessageConverter json = JsonHttpMessageConverter.getInstance();
+
+    private final CloseableHttpAsyncClient client;
+    private final PoolingNHttpClientConnectionManager pool;
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * Creates a transport with a connection pool.
+     *
+     * @param config the settings of the pool.
+     * @throws IllegalArgumentException if the config is not specified or a limit is not positive.
+     */
+    public AsyncHttpTransport(HttpTransportConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("The parameter >config< is required!");
+        }
+        if (config.getMaxConnections() <= 0 || config.getMaxConnectionsPerRoute() <= 0) {
+            throw new IllegalArgumentException("The maximum number of connections has to be positive!");
+        }
+        IOReactorConfig reactor = IOReactorConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSoTimeout(config.getReadTimeout())
+                .build();
+        try {
+            this.pool = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactor));
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("The I/O reactor can not be started", e);
+        }
+        pool.setMaxTotal(config.getMaxConnections());
+        pool.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        RequestConfig request = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getReadTimeout())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+                .build();
+        this.client = HttpAsyncClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(request)
+                .build();
+        client.start();
+
+        long idleTimeout = config.getIdleTimeout();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "gotrue-async-connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(() -> {
+            pool.closeExpiredConnections();
+            pool.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+        }, idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a request.
+     *
+     * @param method        the method of the request.
+     * @param body          the body of the request, will be parsed to json, or null to send none.
+     * @param responseClass the class of the response, Void.class to ignore it.
+     * @param headers       the headers that will be sent with the request.
+     * @param url           the url the request will be sent to.
+     * @param <R>           the type of the response.
+     * @return the response of the request parsed from json to R, completed with an {@link ApiException} on failure.
+     * Cancelling it aborts the request.
+     */
+    public <R> CompletableFuture<R> exchange(HttpMethod method, Object body, Class<R> responseClass, Map<String, String> headers, String url) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        String failure = method.name().charAt(0) + method.name().substring(1).toLowerCase() + " failed";
+        RequestBuilder request = RequestBuilder.create(method.name()).setUri(url);
+        request.setHeader("Accept", "application/json");
+        if (body != null) {
+            try {
+                request.setEntity(new ByteArrayEntity(json.writerFor(body.getClass()).writeValueAsBytes(body), ContentType.APPLICATION_JSON));
+            } catch (JsonProcessingException e) {
+                future.completeExceptionally(new ApiException("Object mapping failed", e));
+                return future;
+            }
+        }
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                request.addHeader(entry.getKey(), entry.getValue());
+            }
+        }
+        Future<HttpResponse> exchange = client.execute(request.build(), new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    HttpEntity entity = response.getEntity();
+                    byte[] bytes = entity != null ? EntityUtils.toByteArray(entity) : new byte[0];
+                    int status = response.getStatusLine().getStatusCode();
+                    HttpStatus resolved = HttpStatus.resolve(status);
+                    if (resolved == null || resolved.isError()) {
+                        future.completeExceptionally(new ApiException(failure, responseException(response, resolved, bytes)));
+                    } else if (responseClass == Void.class || bytes.length == 0) {
+                        future.complete(null);
+                    } else {
+                        future.complete(json.readerFor(responseClass).readValue(bytes));
+                    }
+                } catch (IOException e) {
+                    future.completeExceptionally(new ApiException("Object mapping failed", e));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                IOException cause = e instanceof IOException ? (IOException) e : new IOException(e);
+                String message = String.format("I/O error on %s request for \"%s\": %s", method, url, e.getMessage());
+                future.completeExceptionally(new ApiException(failure, new ResourceAccessException(message, cause)));
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+        // abort an abandoned request, which releases its connection
+        future.whenComplete((response, e) -> {
+            if (future.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Gets the usage of the connection pool, see {@link HttpTransport#getPoolStats()}.
+     *
+     * @return the number of leased, available and pending connections.
+     */
+    public PoolStats getPoolStats() {
+        return pool.getTotalStats();
+    }
+
+    /**
+     * Closes the pooled connections and stops the I/O reactor, requests in flight fail.
+     *
+     * @throws IOException if the reactor can not be stopped.
+     */
+    @Override
+    public void close() throws IOException {
+        evictor.shutdownNow();
+        client.close();
+    }
+
+    private static RestClientResponseException responseException(HttpResponse response, HttpStatus status, byte[] body) {
+        HttpHeaders headers = new HttpHeaders();
+        for (Header header : response.getAllHeaders()) {
+            headers.add(header.getName(), header.getValue());
+        }
+        String statusText = response.getStatusLine().getReasonPhrase();
+        if (status == null) {
+            return new UnknownHttpStatusCodeException(response.getStatusLine().getStatusCode(), statusText, headers, body, StandardCharsets.UTF_8);
+        }
+        if (status.is4xxClientError()) {
+            return HttpClientErrorException.create(status, statusText, headers, body, StandardCharsets.UTF_8);
+        }
+        return HttpServerErrorException.create(status, statusText, headers, body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,155 @@
+package io.supabase.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fails calls to an endpoint fast while it is down.
+ * <p>
+ * The breaker opens after a number of failed calls in a row. While it is open calls are short-circuited. Once
+ * the open duration passed it is half-open and lets a single trial call through, which closes it again if it
+ * succeeds and opens it again if it fails. An instance is thread-safe.
+ */
+public class CircuitBreaker {
+    /**
+     * The states of a breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private static final Status CLOSED = new Status(State.CLOSED, 0);
+
+    // the state and when it opened are swapped together, so a late failure never moves the open time
+    private final AtomicReference<Status> status = new AtomicReference<>(CLOSED);
+    private final AtomicInteger failures = new AtomicInteger();
+    private final LongAdder shortCircuits = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder halfOpened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+
+    /**
+     * @param config the thresholds of the breaker.
+     * @throws IllegalArgumentException if the config is not specified or a threshold is not positive.
+     */
+    public CircuitBreaker(CircuitBreakerConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("The parameter >config< is required!");
+        }
+        if (config.getFailureThreshold() <= 0 || config.getOpenDuration() <= 0) {
+            throw new IllegalArgumentException("The thresholds of the circuit breaker have to be positive!");
+        }
+        this.failureThreshold = config.getFailureThreshold();
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(config.getOpenDuration());
+    }
+
+    /**
+     * Asks whether a call may be sent.
+     *
+     * @return false if the call is short-circuited.
+     */
+    public boolean tryAcquire() {
+        Status current = status.get();
+        if (current.state == State.CLOSED) {
+            return true;
+        }
+        if (current.state == State.OPEN && System.nanoTime() - current.openedAt >= openNanos
+                && status.compareAndSet(current, new Status(State.HALF_OPEN, current.openedAt))) {
+            halfOpened.increment();
+            return true;
+        }
+        shortCircuits.increment();
+        return false;
+    }
+
+    /**
+     * Records a call the endpoint answered, which closes a half-open breaker.
+     */
+    public void onSuccess() {
+        failures.set(0);
+        Status current = status.get();
+        if (current.state == State.HALF_OPEN && status.compareAndSet(current, CLOSED)) {
+            closed.increment();
+        }
+    }
+
+    /**
+     * Records a failed call, which may open the breaker.
+     */
+    public void onFailure() {
+        Status current = status.get();
+        if (current.state == State.HALF_OPEN) {
+            open(current);
+        } else if (failures.incrementAndGet() >= failureThreshold) {
+            open(CLOSED);
+        }
+    }
+
+    /**
+     * Records a call which never reached the endpoint, e.g. rejected by the concurrency limit or interrupted.
+     * It counts neither as a success nor as a failure, a half-open breaker lets the next call try again.
+     */
+    public void onCancelled() {
+        Status current = status.get();
+        if (current.state == State.HALF_OPEN) {
+            // the open duration already passed, so the next call is the trial
+            status.compareAndSet(current, new Status(State.OPEN, current.openedAt));
+        }
+    }
+
+    private void open(Status from) {
+        if (status.compareAndSet(from, new Status(State.OPEN, System.nanoTime()))) {
+            failures.set(0);
+            opened.increment();
+        }
+    }
+
+    /**
+     * @return the current state.
+     */
+    public State getState() {
+        return status.get().state;
+    }
+
+    /**
+     * @return how many calls failed fast because the breaker was open.
+     */
+    public long getShortCircuitCount() {
+        return shortCircuits.sum();
+    }
+
+    /**
+     * @return how often the breaker opened.
+     */
+    public long getOpenCount() {
+        return opened.sum();
+    }
+
+    /**
+     * @return how often the breaker let a trial call through.
+     */
+    public long getHalfOpenCount() {
+        return halfOpened.sum();
+    }
+
+    /**
+     * @return how often a trial call closed the breaker again.
+     */
+    public long getCloseCount() {
+        return closed.sum();
+    }
+
+    private static final class Status {
+        private final State state;
+        private final long openedAt;
+
+        private Status(State state, long openedAt) {
+            this.state = state;
+            this.openedAt = openedAt;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.supabase.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the {@link CircuitBreaker} of an endpoint. All durations are in milliseconds.
+ */
+@Getter
+@Setter
+public class CircuitBreakerConfig {
+    /**
+     * After how many failed calls in a row the breaker opens.
+     */
+    int failureThreshold = 5;
+    /**
+     * How long an open breaker fails calls fast before it lets a trial call through.
+     */
+    long openDuration = 30_000;
+}
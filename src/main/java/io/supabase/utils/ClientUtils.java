@@ -1,26 +1,26 @@
 package io.supabase.utils;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import io.supabase.data.jwt.ParsedToken;
 import io.supabase.exceptions.JwtSecretNotFoundException;
 import io.supabase.exceptions.MalformedHeadersException;
 import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.VerifiedTokenCache;
 
-import javax.crypto.spec.SecretKeySpec;
-import java.security.Key;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ClientUtils {
+    private static volatile JwtVerifier verifier;
 
     private ClientUtils() {
     }
 
     /**
-     * Gets the GoTrue Url if specified.
+     * Gets the GoTrue Url if specified. It may be a comma-separated list of the urls of several GoTrue endpoints,
+     * see {@link #splitUrls(String)}.
      *
      * @return the specified GoTrue Url either from the environment or from the properties
      * @throws UrlNotFoundException if the Url is not specified.
@@ -36,6 +36,29 @@ public class ClientUtils {
         return url;
     }
 
+    /**
+     * Splits a comma-separated list of urls, e.g. {@code http://zone-a:9999, http://zone-b:9999}.
+     *
+     * @param urls the list of urls.
+     * @return the urls without surrounding whitespace and empty ones.
+     * @throws UrlNotFoundException if the list contains no url.
+     */
+    public static List<String> splitUrls(String urls) throws UrlNotFoundException {
+        List<String> res = new ArrayList<>();
+        if (urls != null) {
+            for (String url : urls.split(",")) {
+                String trimmed = url.trim();
+                if (!trimmed.isEmpty()) {
+                    res.add(trimmed);
+                }
+            }
+        }
+        if (res.isEmpty()) {
+            throw new UrlNotFoundException();
+        }
+        return res;
+    }
+
     /**
      * Gets the default headers if specified.
      *
@@ -75,15 +98,6 @@ public class ClientUtils {
         return headers.matches(regex);
     }
 
-    private static Jws<Claims> parseJwt(String jwt, String secret) {
-        Key hmacKey = new SecretKeySpec(secret.getBytes(),
-                SignatureAlgorithm.HS256.getJcaName());
-
-        return Jwts.parser()
-                .setSigningKey(hmacKey)
-                .parseClaimsJws(jwt);
-    }
-
     private static String getJwtSecret() {
         String secret = System.getenv("GOTRUE_JWT_SECRET");
         if (secret == null) {
@@ -92,22 +106,83 @@ public class ClientUtils {
         return secret;
     }
 
-    @SuppressWarnings("unchecked")
-    public static ParsedToken parseJwt(String jwt) throws JwtSecretNotFoundException {
+    private static VerifiedTokenCache loadJwtCache() {
+        String name = "GOTRUE_JWT_CACHE_SIZE";
+        String size = System.getenv(name);
+        if (size == null) {
+            name = "gotrue.jwt.cache.size";
+            size = System.getProperty(name);
+        }
+        if (size == null) {
+            return null;
+        }
+        int maximumSize;
+        try {
+            maximumSize = Integer.parseInt(size.trim());
+        } catch (NumberFormatException e) {
+            maximumSize = 0;
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException(String.format("The %s >%s< must be a positive number!", name, size));
+        }
+        return new VerifiedTokenCache(maximumSize);
+    }
+
+    /**
+     * Gets a verifier for the specified jwt secret.
+     * The secret and the cache size are read once, a changed secret is only picked up by
+     * {@link #reloadJwtVerifier()}. If a cache size is specified the verifier caches the tokens it verified.
+     *
+     * @return a verifier for the specified jwt secret.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified.
+     * @throws IllegalArgumentException   if the specified cache size is not a positive number.
+     */
+    public static JwtVerifier getJwtVerifier() throws JwtSecretNotFoundException {
+        JwtVerifier current = verifier;
+        if (current != null) {
+            return current;
+        }
+        synchronized (ClientUtils.class) {
+            current = verifier;
+            if (current == null) {
+                current = loadJwtVerifier();
+                verifier = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Reads the specified jwt secret and cache size again, e.g. after the secret was changed, and replaces the
+     * verifier returned by {@link #getJwtVerifier()}.
+     *
+     * @return the new verifier.
+     * @throws JwtSecretNotFoundException if the jwt secret is no longer specified, there is no verifier then.
+     * @throws IllegalArgumentException   if the specified cache size is not a positive number.
+     */
+    public static synchronized JwtVerifier reloadJwtVerifier() throws JwtSecretNotFoundException {
+        verifier = null;
+        JwtVerifier current = loadJwtVerifier();
+        verifier = current;
+        return current;
+    }
+
+    private static JwtVerifier loadJwtVerifier() throws JwtSecretNotFoundException {
         String secret = getJwtSecret();
         if (secret == null) {
             throw new JwtSecretNotFoundException();
         }
-        Jws<Claims> claims = parseJwt(jwt, secret);
-        ParsedToken parsed = new ParsedToken();
-        parsed.setExp(claims.getBody().getExpiration());
-        parsed.setSub(claims.getBody().getSubject());
-        parsed.setEmail((String) claims.getBody().get("email"));
-        Map<String, String> appData = (Map<String, String>) claims.getBody().get("app_metadata");
-        parsed.setAppMetadata(appData != null ? appData : new HashMap<>());
-        Map<String, String> userData = (Map<String, String>) claims.getBody().get("user_metadata");
-        parsed.setUserMetadata(userData != null ? userData : new HashMap<>());
-        parsed.setRole((String) claims.getBody().get("role"));
-        return parsed;
+        return new JwtVerifier(secret, loadJwtCache());
+    }
+
+    /**
+     * Parses a jwt token with the specified jwt secret.
+     *
+     * @param jwt token to be parsed.
+     * @return the parsed token.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified.
+     */
+    public static ParsedToken parseJwt(String jwt) throws JwtSecretNotFoundException {
+        return getJwtVerifier().parse(jwt);
     }
 }
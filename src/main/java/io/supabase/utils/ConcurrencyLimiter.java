@@ -0,0 +1,240 @@
+package io.supabase.utils;
+
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.LimitExceededException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many requests are in flight to GoTrue, adapting the limit to its latency.
+ * <p>
+ * Every response is compared to the long-term average latency. While responses are not much slower the limit
+ * grows by about its square root, once they are slower it shrinks in proportion, and a timeout or an overloaded
+ * response (429, 503, 504) cuts it by the backoff ratio. Requests over the limit wait for a free slot for a short
+ * time and are then rejected with a {@link LimitExceededException}, so an overloaded GoTrue is not flooded with
+ * requests which would time out anyway. An instance is thread-safe.
+ */
+public class ConcurrencyLimiter {
+    // the long-term latency follows about this many responses
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxQueueNanos;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+    // guarded by the lock
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double longRtt;
+    private long samples;
+
+    /**
+     * @param config the bounds of the limit and how it adapts.
+     * @throws IllegalArgumentException if the config is not specified or invalid.
+     */
+    public ConcurrencyLimiter(ConcurrencyLimiterConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("The parameter >config< is required!");
+        }
+        if (config.getMinLimit() <= 0 || config.getMaxLimit() < config.getMinLimit()
+                || config.getInitialLimit() < config.getMinLimit() || config.getInitialLimit() > config.getMaxLimit()
+                || config.getMaxQueueTime() < 0 || config.getTolerance() < 1
+                || config.getSmoothing() <= 0 || config.getSmoothing() > 1
+                || config.getBackoffRatio() <= 0 || config.getBackoffRatio() >= 1) {
+            throw new IllegalArgumentException("The settings of the concurrency limiter are invalid!");
+        }
+        this.minLimit = config.getMinLimit();
+        this.maxLimit = config.getMaxLimit();
+        this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxQueueTime());
+        this.tolerance = config.getTolerance();
+        this.smoothing = config.getSmoothing();
+        this.backoffRatio = config.getBackoffRatio();
+        this.limit = config.getInitialLimit();
+    }
+
+    /**
+     * Runs a request once a slot is free.
+     *
+     * @param call the request.
+     * @param <R>  the type of the result.
+     * @return the result of the request.
+     * @throws LimitExceededException if no slot got free in time.
+     * @throws ApiException           if the request failed or the thread was interrupted while waiting.
+     */
+    public <R> R execute(Resilience.Call<R> call) throws ApiException {
+        acquire();
+        long start = System.nanoTime();
+        boolean sample = true;
+        boolean drop = false;
+        try {
+            return call.call();
+        } catch (ApiException e) {
+            // a cancelled request, e.g. the loser of a hedge, says nothing about GoTrue
+            sample = !Resilience.isCancelled(e);
+            drop = sample && isOverload(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            // says nothing about GoTrue
+            sample = false;
+            throw e;
+        } finally {
+            release(System.nanoTime() - start, sample, drop);
+        }
+    }
+
+    /**
+     * @return how many requests may currently be in flight.
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many requests are in flight.
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many requests wait for a free slot.
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the long-term average latency in milliseconds, 0 before the first response.
+     */
+    public double getLatencyMillis() {
+        lock.lock();
+        try {
+            return longRtt / 1_000_000;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many requests were rejected because no slot got free in time.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return how many requests timed out or were answered with an overload status.
+     */
+    public long getDropCount() {
+        return drops.sum();
+    }
+
+    private void acquire() throws ApiException {
+        lock.lock();
+        try {
+            // requests already waiting go first
+            if (queued == 0 && inFlight < (int) limit) {
+                inFlight++;
+                return;
+            }
+            long nanos = maxQueueNanos;
+            queued++;
+            try {
+                while (inFlight >= (int) limit) {
+                    if (nanos <= 0) {
+                        rejected.increment();
+                        throw new LimitExceededException((int) limit);
+                    }
+                    nanos = released.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException("Interrupted waiting for a free slot", e);
+            } finally {
+                queued--;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long rtt, boolean sample, boolean drop) {
+        lock.lock();
+        try {
+            int used = inFlight--;
+            if (drop) {
+                drops.increment();
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (sample) {
+                update(rtt, used);
+            }
+            // the limit may have grown
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(long rtt, int used) {
+        rtt = Math.max(1, rtt);
+        samples++;
+        longRtt += (rtt - longRtt) / Math.min(samples, LONG_WINDOW);
+        if (longRtt > 2 * rtt) {
+            // GoTrue recovered, forget the slow past faster
+            longRtt = longRtt * 0.95 + rtt * 0.05;
+        }
+        double gradient = Math.max(0.5, tolerance * longRtt / rtt);
+        double estimate;
+        if (gradient < 1) {
+            estimate = limit * gradient;
+        } else if (used * 2 >= limit) {
+            estimate = limit + Math.sqrt(limit);
+        } else {
+            // a limit which is not used would grow without bound
+            return;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + estimate * smoothing));
+    }
+
+    static boolean isOverload(ApiException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ResourceAccessException) {
+            return true;
+        }
+        if (cause instanceof RestClientResponseException) {
+            int status = ((RestClientResponseException) cause).getRawStatusCode();
+            return status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || status == HttpStatus.GATEWAY_TIMEOUT.value();
+        }
+        return false;
+    }
+}
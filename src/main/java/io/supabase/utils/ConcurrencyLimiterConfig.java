@@ -0,0 +1,40 @@
+package io.supabase.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the {@link ConcurrencyLimiter}. All durations are in milliseconds.
+ */
+@Getter
+@Setter
+public class ConcurrencyLimiterConfig {
+    /**
+     * How many requests may be in flight before any latency was observed.
+     */
+    int initialLimit = 20;
+    /**
+     * The lowest limit, no matter how slow GoTrue answers.
+     */
+    int minLimit = 1;
+    /**
+     * The highest limit, no matter how fast GoTrue answers.
+     */
+    int maxLimit = 200;
+    /**
+     * How long a request waits for a free slot before it is rejected, 0 to reject it right away.
+     */
+    long maxQueueTime = 50;
+    /**
+     * How much slower than the long-term latency a response may be before the limit shrinks, e.g. 2 for twice as slow.
+     */
+    double tolerance = 2;
+    /**
+     * How much of a new limit estimate is taken over per response, between 0 and 1.
+     */
+    double smoothing = 0.2;
+    /**
+     * The factor the limit is multiplied with when a request timed out or GoTrue was overloaded.
+     */
+    double backoffRatio = 0.9;
+}
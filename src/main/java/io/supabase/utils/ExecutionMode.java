@@ -0,0 +1,71 @@
+package io.supabase.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the threads blocking GoTrue calls run on and the HTTP client they are sent with.
+ * <p>
+ * This is the Java 8 version: calls run on pooled platform threads and are sent over the
+ * {@link HttpTransport} connection pool. The jar is a multi-release jar, on Java 21+ a version of this class
+ * running calls on virtual threads and sending them with {@code java.net.http.HttpClient} is loaded instead.
+ */
+public final class ExecutionMode {
+    private static volatile ExecutorService callExecutor;
+
+    private ExecutionMode() {
+    }
+
+    /**
+     * @return whether calls run on virtual threads.
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * Gets the executor shared by all calls submitted to a {@link io.supabase.GoTrueClient}.
+     * It is created on first use and its threads do not keep the JVM alive.
+     *
+     * @return the shared executor.
+     */
+    public static ExecutorService callExecutor() {
+        ExecutorService executor = callExecutor;
+        if (executor == null) {
+            synchronized (ExecutionMode.class) {
+                executor = callExecutor;
+                if (executor == null) {
+                    executor = newCallExecutor();
+                    callExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Creates an executor running each blocking call on a thread of its own, platform threads are reused.
+     *
+     * @return a new executor, it has to be shut down by the caller.
+     */
+    public static ExecutorService newCallExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "gotrue-call-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the transport blocking calls are sent with.
+     *
+     * @param config the settings of the connections.
+     * @return a new transport backed by a connection pool.
+     * @throws IllegalArgumentException if the config is not specified or a limit is not positive.
+     */
+    public static HttpTransport newTransport(HttpTransportConfig config) {
+        return new HttpTransport(config);
+    }
+}
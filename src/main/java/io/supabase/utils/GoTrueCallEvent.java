@@ -0,0 +1,46 @@
+package io.supabase.utils;
+
+/**
+ * A Flight Recorder event of a request to GoTrue.
+ * <p>
+ * This is the Java 8 version, which records nothing. The jar is a multi-release jar, on Java 11+ a version of
+ * this class which is a {@code jdk.jfr.Event} named {@code io.supabase.GoTrueCall} is loaded instead.
+ */
+public class GoTrueCallEvent {
+    /**
+     * @return whether the event is recorded at all.
+     */
+    public boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Starts timing the request.
+     */
+    public void begin() {
+    }
+
+    /**
+     * @return whether the request took long enough to be recorded.
+     */
+    public boolean shouldCommit() {
+        return false;
+    }
+
+    /**
+     * Records the event.
+     */
+    public void commit() {
+    }
+
+    /**
+     * @param operation     the name of the operation, e.g. {@code signInWithEmail}.
+     * @param endpoint      the endpoint the request was sent to, e.g. {@code POST /token}.
+     * @param status        the status of the response or 0 if there was none.
+     * @param requestBytes  the size of the request body.
+     * @param responseBytes the size of the response body.
+     * @param error         why the request failed or null.
+     */
+    public void set(String operation, String endpoint, int status, long requestBytes, long responseBytes, String error) {
+    }
+}
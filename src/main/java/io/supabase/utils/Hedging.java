@@ -0,0 +1,310 @@
+package io.supabase.utils;
+
+import io.supabase.exceptions.ApiException;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Cuts the tail latency of idempotent calls by hedging them.
+ * <p>
+ * A call which did not answer within the configured percentile of the recent latencies of its operation gets
+ * a second, identical request, and the first response wins. The latencies are those of the first requests,
+ * including failed and cancelled ones, measured from when they start running. The other request is cancelled:
+ * its thread is interrupted, which aborts a request of the Java 21 transport; a request of the Apache transport
+ * runs until it is answered and is discarded. The cancelled request is neither a failure nor a response of its
+ * endpoint, it is not failed over and not recorded as an error. An error only wins if the other request failed
+ * as well.
+ * <p>
+ * The extra load is capped by a budget: every call earns a fraction of a hedge, a hedge spends a whole one,
+ * and a few hedges can be saved up for a burst.
+ * Calls run on the {@link ExecutionMode#callExecutor()}. An instance is thread-safe.
+ */
+public class Hedging {
+    // the budget is kept in thousandths of a hedge, at most this many hedges are saved up
+    private static final long MAX_SAVED_HEDGES = 10;
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final HedgingConfig config;
+    private final ExecutorService executor;
+    private final LongSupplier ticker;
+    private final long budgetPerCall;
+    private final AtomicLong budget;
+    private final ConcurrentMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * @param config the thresholds and the budget.
+     * @throws IllegalArgumentException if the config is not specified or invalid.
+     */
+    public Hedging(HedgingConfig config) {
+        this(config, ExecutionMode.callExecutor());
+    }
+
+    /**
+     * @param config   the thresholds and the budget.
+     * @param executor runs the requests.
+     * @throws IllegalArgumentException if the config or the executor is not specified or the config is invalid.
+     */
+    public Hedging(HedgingConfig config, ExecutorService executor) {
+        this(config, executor, System::nanoTime);
+    }
+
+    /**
+     * @param config   the thresholds and the budget.
+     * @param executor runs the requests.
+     * @param ticker   the time source the latencies are measured with, in nanoseconds.
+     * @throws IllegalArgumentException if the config, the executor or the ticker is not specified or the config is
+     *                                  invalid.
+     */
+    public Hedging(HedgingConfig config, ExecutorService executor, LongSupplier ticker) {
+        if (config == null) {
+            throw new IllegalArgumentException("The parameter >config< is required!");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("The parameter >executor< is required!");
+        }
+        if (ticker == null) {
+            throw new IllegalArgumentException("The parameter >ticker< is required!");
+        }
+        if (config.getPercentile() <= 0 || config.getPercentile() > 100 || config.getWindowSize() <= 0
+                || config.getMinSamples() <= 0 || config.getBudgetPercent() < 0
+                || config.getMinDelay() < 0 || config.getMaxDelay() < config.getMinDelay()) {
+            throw new IllegalArgumentException("The hedging config is invalid!");
+        }
+        this.config = config;
+        this.executor = executor;
+        this.ticker = ticker;
+        this.budgetPerCall = Math.round(config.getBudgetPercent() * 10);
+        this.budget = new AtomicLong(budgetPerCall > 0 ? MAX_SAVED_HEDGES * 1000 : 0);
+    }
+
+    /**
+     * Runs a call, hedging it if it is slow.
+     *
+     * @param operation the name of the operation, whose latencies the delay of the hedge is taken from.
+     * @param call      the idempotent call.
+     * @param <R>       the type of the result.
+     * @return the result of the request which answered first.
+     * @throws ApiException if the requests failed or the thread was interrupted while waiting.
+     */
+    public <R> R execute(String operation, Resilience.Call<R> call) throws ApiException {
+        LatencyWindow window = windows.computeIfAbsent(operation, o -> new LatencyWindow(config.getWindowSize()));
+        calls.increment();
+        deposit();
+        CompletableFuture<Response<R>> result = new CompletableFuture<>();
+        // the requests which did not complete yet, the last one to fail completes the result
+        AtomicInteger pending = new AtomicInteger(1);
+        Future<?> primary = submit(call, result, pending, window, false);
+        Future<?> hedge = null;
+        try {
+            try {
+                return result.get(delayNanos(window), TimeUnit.NANOSECONDS).value;
+            } catch (TimeoutException e) {
+                if (!withdraw()) {
+                    budgetExhausted.increment();
+                    return result.get().value;
+                }
+                if (!pending.compareAndSet(1, 2)) {
+                    // the primary completed after all
+                    refund();
+                    return result.get().value;
+                }
+                hedges.increment();
+                hedge = submit(call, result, pending, null, true);
+                Response<R> response = result.get();
+                if (response.hedge) {
+                    hedgeWins.increment();
+                }
+                return response.value;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted waiting for the response", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Gets the current delay of the hedge of an operation.
+     *
+     * @param operation the name of the operation.
+     * @return the delay in milliseconds.
+     */
+    public long getDelayMillis(String operation) {
+        LatencyWindow window = windows.get(operation);
+        long nanos = window != null ? delayNanos(window) : TimeUnit.MILLISECONDS.toNanos(config.getInitialDelay());
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * @return how many calls were run.
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return how many second requests were sent.
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return how often the second request answered first.
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * @return how often a slow call was not hedged because the budget was spent.
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.sum();
+    }
+
+    private <R> Future<?> submit(Resilience.Call<R> call, CompletableFuture<Response<R>> result, AtomicInteger pending,
+                                 LatencyWindow window, boolean hedge) {
+        return executor.submit(() -> {
+            long start = ticker.getAsLong();
+            R value;
+            try {
+                value = call.call();
+            } catch (Throwable e) {
+                // failed and cancelled, i.e. interrupted, primaries count as well, or slow ones would be missing
+                record(window, start);
+                if (pending.decrementAndGet() == 0) {
+                    result.completeExceptionally(e);
+                }
+                return;
+            }
+            record(window, start);
+            pending.decrementAndGet();
+            result.complete(new Response<>(value, hedge));
+        });
+    }
+
+    private void record(LatencyWindow window, long start) {
+        if (window != null) {
+            window.record(ticker.getAsLong() - start, config);
+        }
+    }
+
+    private long delayNanos(LatencyWindow window) {
+        long nanos = window.getThresholdNanos();
+        if (nanos < 0) {
+            nanos = TimeUnit.MILLISECONDS.toNanos(config.getInitialDelay());
+        }
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(config.getMinDelay()),
+                Math.min(TimeUnit.MILLISECONDS.toNanos(config.getMaxDelay()), nanos));
+    }
+
+    private void deposit() {
+        long max = MAX_SAVED_HEDGES * 1000;
+        long current;
+        do {
+            current = budget.get();
+            if (current >= max) {
+                return;
+            }
+        } while (!budget.compareAndSet(current, Math.min(max, current + budgetPerCall)));
+    }
+
+    private void refund() {
+        budget.addAndGet(1000);
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < 1000) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - 1000));
+        return true;
+    }
+
+    private static ApiException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ApiException) {
+            return (ApiException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new ApiException("Hedged request failed", cause);
+    }
+
+    /**
+     * The result of the request which answered first.
+     */
+    private static final class Response<R> {
+        private final R value;
+        private final boolean hedge;
+
+        private Response(R value, boolean hedge) {
+            this.value = value;
+            this.hedge = hedge;
+        }
+    }
+
+    /**
+     * The recent latencies of an operation, the percentile is recomputed every few samples.
+     */
+    private static final class LatencyWindow {
+        private final AtomicLongArray samples;
+        private final AtomicLong count = new AtomicLong();
+        private volatile long thresholdNanos = -1;
+
+        private LatencyWindow(int size) {
+            samples = new AtomicLongArray(size);
+        }
+
+        private void record(long nanos, HedgingConfig config) {
+            long n = count.getAndIncrement();
+            samples.set((int) (n % samples.length()), nanos);
+            long recorded = n + 1;
+            if (recorded >= config.getMinSamples() && (recorded % RECOMPUTE_EVERY == 0 || recorded == config.getMinSamples())) {
+                int size = (int) Math.min(recorded, samples.length());
+                long[] sorted = new long[size];
+                for (int i = 0; i < size; i++) {
+                    sorted[i] = samples.get(i);
+                }
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(config.getPercentile() / 100 * size) - 1;
+                thresholdNanos = sorted[Math.max(0, Math.min(size - 1, index))];
+            }
+        }
+
+        private long getThresholdNanos() {
+            return thresholdNanos;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.supabase.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of {@link Hedging}. All durations are in milliseconds.
+ */
+@Getter
+@Setter
+public class HedgingConfig {
+    /**
+     * The percentile of the recent latencies after which a second request is sent, e.g. 95 for the p95.
+     */
+    double percentile = 95;
+    /**
+     * How many recent latencies of an operation the percentile is taken from.
+     */
+    int windowSize = 1_000;
+    /**
+     * How many latencies are needed for the percentile, until then the initial delay is used.
+     */
+    int minSamples = 20;
+    /**
+     * After how long a second request is sent while there are not enough latencies.
+     */
+    long initialDelay = 100;
+    /**
+     * The shortest delay before a second request, no matter how fast the recent requests were.
+     */
+    long minDelay = 5;
+    /**
+     * The longest delay before a second request, no matter how slow the recent requests were.
+     */
+    long maxDelay = 2_000;
+    /**
+     * How many second requests may be sent, in percent of all calls.
+     */
+    double budgetPercent = 10;
+}
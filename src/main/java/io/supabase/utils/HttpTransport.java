@@ -0,0 +1,123 @@
+package io.supabase.utils;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link RestTemplate} requests to GoTrue are sent with.
+ * <p>
+ * A transport built from a {@link HttpTransportConfig} keeps a pool of keep-alive connections, so requests
+ * do not pay for a new TCP and TLS handshake. Idle connections are closed by a background thread until
+ * the transport is closed. The status and body sizes of requests sent by a thread with a {@link RequestMeter}
+ * are counted. An instance is thread-safe and meant to be shared.
+ */
+public class HttpTransport implements Closeable {
+    private final RestTemplate rest;
+    private final PoolingHttpClientConnectionManager pool;
+    private final CloseableHttpClient client;
+
+    /**
+     * Creates a transport with a connection pool.
+     *
+     * @param config the settings of the pool.
+     * @throws IllegalArgumentException if the config is not specified or a limit is not positive.
+     */
+    public HttpTransport(HttpTransportConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("The parameter >config< is required!");
+        }
+        if (config.getMaxConnections() <= 0 || config.getMaxConnectionsPerRoute() <= 0) {
+            throw new IllegalArgumentException("The maximum number of connections has to be positive!");
+        }
+        this.pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(config.getMaxConnections());
+        pool.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        pool.setValidateAfterInactivity(config.getValidateAfterInactivity());
+        this.client = HttpClients.custom()
+                .setConnectionManager(pool)
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getIdleTimeout(), TimeUnit.MILLISECONDS)
+                .build();
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(client);
+        factory.setConnectTimeout(config.getConnectTimeout());
+        factory.setReadTimeout(config.getReadTimeout());
+        factory.setConnectionRequestTimeout(config.getConnectionRequestTimeout());
+        this.rest = newRestTemplate(factory);
+    }
+
+    /**
+     * Creates a transport which sends requests with the given factory, e.g. of another HTTP client.
+     * Bodies are read and written by the shared {@link JsonHttpMessageConverter}.
+     *
+     * @param factory the factory of the requests.
+     * @throws IllegalArgumentException if the factory is not specified.
+     */
+    public HttpTransport(ClientHttpRequestFactory factory) {
+        if (factory == null) {
+            throw new IllegalArgumentException("The parameter >factory< is required!");
+        }
+        this.rest = newRestTemplate(factory);
+        this.pool = null;
+        this.client = null;
+    }
+
+    /**
+     * Creates a transport which sends requests with the given template, e.g. one with interceptors.
+     *
+     * @param rest the template for the requests.
+     * @throws IllegalArgumentException if the template is not specified.
+     */
+    public HttpTransport(RestTemplate rest) {
+        if (rest == null) {
+            throw new IllegalArgumentException("The parameter >rest< is required!");
+        }
+        this.rest = rest;
+        this.pool = null;
+        this.client = null;
+    }
+
+    private static RestTemplate newRestTemplate(ClientHttpRequestFactory factory) {
+        RestTemplate template = new RestTemplate(new MeteringRequestFactory(factory));
+        // ahead of the String and Jackson converters of the template
+        template.getMessageConverters().add(0, JsonHttpMessageConverter.getInstance());
+        return template;
+    }
+
+    /**
+     * @return the template requests are sent with.
+     */
+    public RestTemplate getRestTemplate() {
+        return rest;
+    }
+
+    /**
+     * Gets the usage of the connection pool. Requests wait for a connection when the pool is saturated,
+     * i.e. all connections are leased, which shows as pending requests.
+     *
+     * @return the number of leased, available and pending connections or null if the transport has no pool.
+     */
+    public PoolStats getPoolStats() {
+        return pool != null ? pool.getTotalStats() : null;
+    }
+
+    /**
+     * Closes the pooled connections and stops the thread evicting idle ones.
+     *
+     * @throws IOException if a connection can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.supabase.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the connection pool of a {@link HttpTransport}. All durations are in milliseconds.
+ */
+@Getter
+@Setter
+public class HttpTransportConfig {
+    /**
+     * Maximum number of pooled connections.
+     */
+    int maxConnections = 50;
+    /**
+     * Maximum number of pooled connections to a single host, GoTrue usually is the only one.
+     */
+    int maxConnectionsPerRoute = 50;
+    /**
+     * How long to wait for a connection to be established, 0 waits forever.
+     */
+    int connectTimeout = 10_000;
+    /**
+     * How long to wait for data of the response, 0 waits forever. With {@code java.net.http.HttpClient} on
+     * Java 21+, which has no socket timeout, how long to wait for the headers of the response after sending
+     * the request.
+     */
+    int readTimeout = 30_000;
+    /**
+     * How long to wait for a free connection of a saturated pool, 0 waits forever.
+     */
+    int connectionRequestTimeout = 10_000;
+    /**
+     * After how long an unused connection is closed.
+     */
+    long idleTimeout = 30_000;
+    /**
+     * After how long an unused connection is checked before it is reused, the server may have closed it.
+     */
+    int validateAfterInactivity = 2_000;
+}
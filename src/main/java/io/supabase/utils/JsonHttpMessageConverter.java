@@ -0,0 +1,86 @@
+package io.supabase.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads and writes the DTOs of GoTrue as JSON, straight from the response stream and to the request stream.
+ * <p>
+ * The {@link ObjectReader} and {@link ObjectWriter} of a DTO class are built once and reused, so a request
+ * neither serializes its body to an intermediate String nor looks up the (de)serializers of its types again.
+ * The mapper is configured like the one of Spring's Jackson converter, e.g. unknown properties are ignored.
+ * An instance is thread-safe and meant to be shared.
+ */
+public class JsonHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+    private static final JsonHttpMessageConverter instance = new JsonHttpMessageConverter();
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public JsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+    }
+
+    /**
+     * @return the converter shared by all transports.
+     */
+    public static JsonHttpMessageConverter getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param type the class of the DTO.
+     * @return the reader of the DTO, built on first use.
+     */
+    public ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    /**
+     * @param type the class of the DTO.
+     * @return the writer of the DTO, built on first use.
+     */
+    public ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(type, mapper::writerFor);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        // plain bodies are left to the other converters, a response of Void is not read at all
+        return clazz != String.class && clazz != byte[].class && clazz != Void.class;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return readerFor(clazz).readValue(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getOriginalMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object object, HttpOutputMessage outputMessage) throws IOException {
+        try {
+            // the request closes its stream itself
+            writerFor(object.getClass()).writeValue(StreamUtils.nonClosing(outputMessage.getBody()), object);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Could not write JSON: " + e.getOriginalMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package io.supabase.utils;
+
+/**
+ * A Flight Recorder event of the verification of a token by {@link io.supabase.jwt.JwtVerifier#parse(String)}
+ * or {@link io.supabase.jwt.JwtVerifier#tryParse(String)}.
+ * <p>
+ * This is the Java 8 version, which records nothing. The jar is a multi-release jar, on Java 11+ a version of
+ * this class which is a {@code jdk.jfr.Event} named {@code io.supabase.JwtVerification} is loaded instead.
+ */
+public class JwtVerificationEvent {
+    /**
+     * @return whether the event is recorded at all.
+     */
+    public boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Starts timing the verification.
+     */
+    public void begin() {
+    }
+
+    /**
+     * @return whether the verification took long enough to be recorded.
+     */
+    public boolean shouldCommit() {
+        return false;
+    }
+
+    /**
+     * Records the event.
+     */
+    public void commit() {
+    }
+
+    /**
+     * @param outcome {@code VALID}, the {@link io.supabase.jwt.RejectionReason} of a rejected token or the name
+     *                of another error.
+     */
+    public void setOutcome(String outcome) {
+    }
+}
@@ -0,0 +1,348 @@
+package io.supabase.utils;
+
+import io.supabase.exceptions.ApiException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.Closeable;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spreads requests over several GoTrue endpoints, e.g. replicas in different zones.
+ * <p>
+ * Every request picks two healthy endpoints at random and goes to the one with the lower cost, its peak-EWMA
+ * latency times its requests in flight plus one. The latency decays over time, so an endpoint which was slow
+ * once gets requests again. An endpoint failing a number of requests in a row, with an I/O error, a 5xx or a 429
+ * response, is ejected and probed in the background until it is healthy again. If every endpoint is ejected
+ * requests go to all of them anyway. A failed idempotent request fails over to an
+ * endpoint it did not try yet, other requests only if they could not connect at all. Requests rejected by the
+ * concurrency limit or interrupted are thrown as they are, they say nothing about the endpoint.
+ * An instance is thread-safe. The probes run on a shared daemon thread, a balancer which is no longer used should
+ * be closed to stop them.
+ */
+public class LoadBalancer implements Closeable {
+    private static volatile ScheduledExecutorService prober;
+
+    private final List<Endpoint> endpoints;
+    private final int failureThreshold;
+    private final long probeInterval;
+    private final double decayNanos;
+    private final Probe probe;
+    private final LongAdder failovers = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * @param urls   the urls of the GoTrue endpoints.
+     * @param config the thresholds of the balancer.
+     * @param probe  the health probe of an ejected endpoint.
+     * @throws IllegalArgumentException if the urls, the config or the probe are not specified or invalid.
+     */
+    public LoadBalancer(List<String> urls, LoadBalancerConfig config, Probe probe) {
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalArgumentException("The parameter >urls< is required!");
+        }
+        if (config == null) {
+            throw new IllegalArgumentException("The parameter >config< is required!");
+        }
+        if (probe == null) {
+            throw new IllegalArgumentException("The parameter >probe< is required!");
+        }
+        if (config.getFailureThreshold() <= 0 || config.getProbeInterval() <= 0
+                || config.getDecayTime() <= 0) {
+            throw new IllegalArgumentException("The settings of the load balancer are invalid!");
+        }
+        List<Endpoint> list = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            if (url == null || url.isEmpty()) {
+                throw new IllegalArgumentException("The parameter >urls< must not contain empty urls!");
+            }
+            list.add(new Endpoint(url));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+        this.failureThreshold = config.getFailureThreshold();
+        this.probeInterval = config.getProbeInterval();
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(config.getDecayTime());
+        this.probe = probe;
+    }
+
+    /**
+     * Sends a request to the endpoint with the lowest cost of two random healthy ones, failing over to the
+     * others if it fails.
+     *
+     * @param idempotent whether the request may be sent again after GoTrue may have received it.
+     * @param request    the request.
+     * @param <R>        the type of the result.
+     * @return the result of the request.
+     * @throws ApiException if the request failed at every endpoint it was sent to.
+     */
+    public <R> R execute(boolean idempotent, Request<R> request) throws ApiException {
+        boolean[] tried = new boolean[endpoints.size()];
+        for (int attempt = 1; ; attempt++) {
+            int index = choose(tried);
+            tried[index] = true;
+            Endpoint endpoint = endpoints.get(index);
+            endpoint.inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                R result = request.send(endpoint.url);
+                endpoint.inFlight.decrementAndGet();
+                onResponse(endpoint, System.nanoTime() - start);
+                return result;
+            } catch (ApiException e) {
+                endpoint.inFlight.decrementAndGet();
+                if (Resilience.isCancelled(e)) {
+                    throw e;
+                }
+                if (!Resilience.isFailure(e)) {
+                    // GoTrue answered, e.g. with a 4xx
+                    onResponse(endpoint, System.nanoTime() - start);
+                    throw e;
+                }
+                onFailure(endpoint, System.nanoTime() - start);
+                if (attempt >= endpoints.size() || !(idempotent || notConnected(e))) {
+                    throw e;
+                }
+                failovers.increment();
+            } catch (RuntimeException | Error e) {
+                endpoint.inFlight.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return the endpoints with their figures.
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return how often a failed request was sent to another endpoint.
+     */
+    public long getFailoverCount() {
+        return failovers.sum();
+    }
+
+    /**
+     * Stops probing the ejected endpoints. Requests may still be sent, an ejected endpoint stays ejected.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Endpoint endpoint : endpoints) {
+            ScheduledFuture<?> probing = endpoint.probing;
+            if (probing != null) {
+                probing.cancel(false);
+            }
+        }
+    }
+
+    private int choose(boolean[] tried) {
+        int size = endpoints.size();
+        if (size == 1) {
+            return 0;
+        }
+        int[] candidates = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!tried[i] && endpoints.get(i).isHealthy()) {
+                candidates[count++] = i;
+            }
+        }
+        if (count == 0) {
+            // every endpoint left is ejected
+            for (int i = 0; i < size; i++) {
+                if (!tried[i]) {
+                    candidates[count++] = i;
+                }
+            }
+        }
+        if (count == 1) {
+            return candidates[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(count);
+        int second = random.nextInt(count - 1);
+        if (second >= first) {
+            second++;
+        }
+        return endpoints.get(candidates[first]).cost(decayNanos) <= endpoints.get(candidates[second]).cost(decayNanos)
+                ? candidates[first] : candidates[second];
+    }
+
+    private void onResponse(Endpoint endpoint, long nanos) {
+        endpoint.requests.increment();
+        endpoint.failuresInRow.set(0);
+        endpoint.recordLatency(nanos, decayNanos);
+    }
+
+    private void onFailure(Endpoint endpoint, long nanos) {
+        endpoint.requests.increment();
+        endpoint.failures.increment();
+        endpoint.recordLatency(nanos, decayNanos);
+        if (endpoint.failuresInRow.incrementAndGet() >= failureThreshold && endpoint.ejected.compareAndSet(false, true)) {
+            endpoint.ejections.increment();
+            scheduleProbe(endpoint);
+        }
+    }
+
+    private void scheduleProbe(Endpoint endpoint) {
+        if (closed) {
+            return;
+        }
+        endpoint.probing = prober().schedule(() -> {
+            if (closed) {
+                return;
+            }
+            try {
+                probe.probe(endpoint.url);
+                endpoint.failuresInRow.set(0);
+                endpoint.ejected.set(false);
+            } catch (Exception | Error e) {
+                scheduleProbe(endpoint);
+            }
+        }, probeInterval, TimeUnit.MILLISECONDS);
+        if (closed) {
+            // closed while scheduling, close may have missed the new probe
+            endpoint.probing.cancel(false);
+        }
+    }
+
+    private static ScheduledExecutorService prober() {
+        ScheduledExecutorService current = prober;
+        if (current == null) {
+            synchronized (LoadBalancer.class) {
+                current = prober;
+                if (current == null) {
+                    current = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "gotrue-health-probe");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    prober = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static boolean notConnected(ApiException e) {
+        return e.getCause() instanceof ResourceAccessException && e.getCause().getCause() instanceof ConnectException;
+    }
+
+    /**
+     * A GoTrue endpoint and its figures.
+     */
+    public static final class Endpoint {
+        private final String url;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger failuresInRow = new AtomicInteger();
+        private final AtomicBoolean ejected = new AtomicBoolean();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder ejections = new LongAdder();
+        private volatile ScheduledFuture<?> probing;
+        // guarded by this, in nanoseconds
+        private double latency;
+        private long updated = System.nanoTime();
+
+        private Endpoint(String url) {
+            this.url = url;
+        }
+
+        private synchronized void recordLatency(long nanos, double decayNanos) {
+            long now = System.nanoTime();
+            double weight = Math.exp(-(now - updated) / decayNanos);
+            latency = nanos > latency ? nanos : latency * weight + nanos * (1 - weight);
+            updated = now;
+        }
+
+        private synchronized double cost(double decayNanos) {
+            // an idle endpoint decays toward 0, so it gets requests again
+            double decayed = latency * Math.exp(-(System.nanoTime() - updated) / decayNanos);
+            return decayed * (inFlight.get() + 1);
+        }
+
+        /**
+         * @return the url of the endpoint.
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * @return whether the endpoint gets requests, i.e. it is not ejected.
+         */
+        public boolean isHealthy() {
+            return !ejected.get();
+        }
+
+        /**
+         * @return the peak-EWMA latency in milliseconds, 0 before the first response.
+         */
+        public synchronized double getLatencyMillis() {
+            return latency / 1_000_000;
+        }
+
+        /**
+         * @return how many requests are in flight.
+         */
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * @return how many requests were sent.
+         */
+        public long getRequestCount() {
+            return requests.sum();
+        }
+
+        /**
+         * @return how many requests failed.
+         */
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        /**
+         * @return how often the endpoint was ejected.
+         */
+        public long getEjectionCount() {
+            return ejections.sum();
+        }
+    }
+
+    /**
+     * A request to an endpoint.
+     *
+     * @param <R> the type of the result.
+     */
+    @FunctionalInterface
+    public interface Request<R> {
+        R send(String url) throws ApiException;
+    }
+
+    /**
+     * The health probe of an ejected endpoint.
+     */
+    @FunctionalInterface
+    public interface Probe {
+        /**
+         * @param url the url of the endpoint.
+         * @throws Exception if the endpoint is not healthy.
+         */
+        void probe(String url) throws Exception;
+    }
+}
@@ -0,0 +1,25 @@
+package io.supabase.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the {@link LoadBalancer}. All durations are in milliseconds.
+ */
+@Getter
+@Setter
+public class LoadBalancerConfig {
+    /**
+     * After how many failed requests in a row an endpoint is ejected until a health probe succeeds.
+     */
+    int failureThreshold = 3;
+    /**
+     * How often an ejected endpoint is probed.
+     */
+    long probeInterval = 5_000;
+    /**
+     * How fast the latency of an endpoint decays, the time after which it has fallen to 1/e of its value.
+     * Slower latencies are taken over at once, faster ones and idle time decay it.
+     */
+    long decayTime = 10_000;
+}
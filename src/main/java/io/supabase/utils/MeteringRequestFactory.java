@@ -0,0 +1,141 @@
+package io.supabase.utils;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+/**
+ * Counts the status and the body sizes of the requests of a metered thread into its {@link RequestMeter},
+ * requests of other threads are passed through as they are.
+ */
+final class MeteringRequestFactory implements ClientHttpRequestFactory {
+    private final ClientHttpRequestFactory delegate;
+
+    MeteringRequestFactory(ClientHttpRequestFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        ClientHttpRequest request = delegate.createRequest(uri, httpMethod);
+        RequestMeter meter = RequestMeter.current();
+        return meter != null ? new MeteredRequest(request, meter) : request;
+    }
+
+    private static final class MeteredRequest implements ClientHttpRequest {
+        private final ClientHttpRequest delegate;
+        private final RequestMeter meter;
+
+        private MeteredRequest(ClientHttpRequest delegate, RequestMeter meter) {
+            this.delegate = delegate;
+            this.meter = meter;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            ClientHttpResponse response = delegate.execute();
+            meter.setStatus(response.getRawStatusCode());
+            return new MeteredResponse(response, meter);
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return new FilterOutputStream(delegate.getBody()) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    meter.addRequestBytes(1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    meter.addRequestBytes(len);
+                }
+            };
+        }
+
+        @Override
+        public String getMethodValue() {
+            return delegate.getMethodValue();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private static final class MeteredResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final RequestMeter meter;
+
+        private MeteredResponse(ClientHttpResponse delegate, RequestMeter meter) {
+            this.delegate = delegate;
+            this.meter = meter;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return delegate.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return new FilterInputStream(delegate.getBody()) {
+                @Override
+                public int read() throws IOException {
+                    int b = in.read();
+                    if (b >= 0) {
+                        meter.addResponseBytes(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = in.read(b, off, len);
+                    if (n > 0) {
+                        meter.addResponseBytes(n);
+                    }
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+}
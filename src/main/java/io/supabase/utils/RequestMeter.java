@@ -0,0 +1,72 @@
+package io.supabase.utils;
+
+/**
+ * The status and body sizes of the requests a thread sends while it is metered, filled in by the
+ * {@link HttpTransport}. Requests of a transport created from a {@link org.springframework.web.client.RestTemplate}
+ * are not metered.
+ */
+public final class RequestMeter {
+    private static final ThreadLocal<RequestMeter> CURRENT = new ThreadLocal<>();
+
+    private int status;
+    private long requestBytes;
+    private long responseBytes;
+
+    private RequestMeter() {
+    }
+
+    /**
+     * Meters the requests the current thread sends until {@link #stop()}.
+     *
+     * @return the meter of the current thread.
+     */
+    public static RequestMeter start() {
+        RequestMeter meter = new RequestMeter();
+        CURRENT.set(meter);
+        return meter;
+    }
+
+    /**
+     * Stops metering the requests of the current thread.
+     */
+    public void stop() {
+        CURRENT.remove();
+    }
+
+    static RequestMeter current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the status of the last response or 0 if there was none.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the size of the request bodies written.
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return the size of the response bodies read.
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    void setStatus(int status) {
+        this.status = status;
+    }
+
+    void addRequestBytes(long bytes) {
+        requestBytes += bytes;
+    }
+
+    void addResponseBytes(long bytes) {
+        responseBytes += bytes;
+    }
+}
@@ -0,0 +1,243 @@
+package io.supabase.utils;
+
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.CircuitOpenException;
+import io.supabase.exceptions.LimitExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retries failed calls to GoTrue and fails them fast while their endpoint is down.
+ * <p>
+ * Every endpoint has a {@link CircuitBreaker}. Idempotent operations are retried with the default
+ * {@link RetryPolicy}, others are not unless a policy is set for them. I/O errors, 5xx and 429 responses
+ * count as failures, other errors mean GoTrue is up and are thrown right away. Calls rejected by the concurrency
+ * limit or interrupted never reached GoTrue, they are thrown as they are and count neither way.
+ * An instance is thread-safe.
+ */
+public class Resilience {
+    private final RetryPolicy defaultPolicy;
+    private final CircuitBreakerConfig breakerConfig;
+    private final ConcurrentMap<String, RetryPolicy> policies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * Creates a layer with the default policy and breaker settings.
+     */
+    public Resilience() {
+        this(new RetryPolicy(), new CircuitBreakerConfig());
+    }
+
+    /**
+     * @param defaultPolicy the retries of idempotent operations.
+     * @param breakerConfig the settings of the breaker of every endpoint.
+     * @throws IllegalArgumentException if the policy or the config is not specified.
+     */
+    public Resilience(RetryPolicy defaultPolicy, CircuitBreakerConfig breakerConfig) {
+        if (defaultPolicy == null) {
+            throw new IllegalArgumentException("The parameter >defaultPolicy< is required!");
+        }
+        if (breakerConfig == null) {
+            throw new IllegalArgumentException("The parameter >breakerConfig< is required!");
+        }
+        this.defaultPolicy = defaultPolicy;
+        this.breakerConfig = breakerConfig;
+    }
+
+    /**
+     * Sets the retries of an operation, overriding whether it is idempotent.
+     *
+     * @param operation the name of the operation, e.g. {@code getUser}.
+     * @param policy    the retries or null to use the default ones.
+     */
+    public void setRetryPolicy(String operation, RetryPolicy policy) {
+        if (policy == null) {
+            policies.remove(operation);
+        } else {
+            policies.put(operation, policy);
+        }
+    }
+
+    /**
+     * Runs a call, retrying it according to the policy of its operation.
+     *
+     * @param operation  the name of the operation, e.g. {@code getUser}.
+     * @param endpoint   the endpoint the call is sent to, e.g. {@code GET /user}.
+     * @param idempotent whether the call may be retried by default.
+     * @param call       the call.
+     * @param <R>        the type of the result.
+     * @return the result of the call.
+     * @throws CircuitOpenException if the breaker of the endpoint is open.
+     * @throws ApiException         if the last attempt failed or the thread was interrupted while waiting.
+     */
+    public <R> R execute(String operation, String endpoint, boolean idempotent, Call<R> call) throws ApiException {
+        CircuitBreaker breaker = getCircuitBreaker(endpoint);
+        RetryPolicy policy = policies.get(operation);
+        if (policy == null) {
+            policy = idempotent ? defaultPolicy : RetryPolicy.none();
+        }
+        long delay = policy.getBaseDelay();
+        for (int attempt = 1; ; attempt++) {
+            if (!breaker.tryAcquire()) {
+                throw new CircuitOpenException(endpoint);
+            }
+            try {
+                R result = call.call();
+                breaker.onSuccess();
+                return result;
+            } catch (ApiException e) {
+                if (isCancelled(e)) {
+                    breaker.onCancelled();
+                    throw e;
+                }
+                if (!isFailure(e)) {
+                    breaker.onSuccess();
+                    throw e;
+                }
+                breaker.onFailure();
+                long retryAfter = retryAfter(e);
+                if (attempt >= policy.getMaxAttempts() || retryAfter > policy.getMaxRetryAfter()) {
+                    throw e;
+                }
+                delay = nextDelay(policy, delay);
+                sleep(Math.max(delay, retryAfter), e);
+                retries.increment();
+            } catch (RuntimeException | Error e) {
+                // not caused by the endpoint, only releases a trial call
+                breaker.onCancelled();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Gets the breaker of an endpoint, it is created on first use.
+     *
+     * @param endpoint the endpoint, e.g. {@code GET /user}.
+     * @return the breaker of the endpoint.
+     */
+    public CircuitBreaker getCircuitBreaker(String endpoint) {
+        return breakers.computeIfAbsent(endpoint, e -> new CircuitBreaker(breakerConfig));
+    }
+
+    /**
+     * @return the breakers of all endpoints called so far.
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(breakers);
+    }
+
+    /**
+     * @return how often a call was retried.
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    static boolean isFailure(ApiException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ResourceAccessException) {
+            return true;
+        }
+        if (cause instanceof RestClientResponseException) {
+            int status = ((RestClientResponseException) cause).getRawStatusCode();
+            return status >= 500 || status == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a call was given up before GoTrue answered it, i.e. the concurrency limit rejected it or its
+     * thread was interrupted, e.g. as the loser of a hedge. Such a call says nothing about the endpoint.
+     *
+     * @param e the error of the call.
+     * @return whether the call was cancelled.
+     */
+    public static boolean isCancelled(ApiException e) {
+        if (e instanceof LimitExceededException || Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof ClosedByInterruptException
+                    || (cause instanceof InterruptedIOException && !isTimeout(cause))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        // the connect and pool timeouts of the Apache client are InterruptedIOExceptions as well
+        return e instanceof SocketTimeoutException || e.getClass().getSimpleName().endsWith("TimeoutException");
+    }
+
+    /**
+     * @return how long a 429 or 503 response asked to wait in milliseconds, 0 if it did not.
+     */
+    static long retryAfter(ApiException e) {
+        if (!(e.getCause() instanceof RestClientResponseException)) {
+            return 0;
+        }
+        RestClientResponseException response = (RestClientResponseException) e.getCause();
+        int status = response.getRawStatusCode();
+        HttpHeaders headers = response.getResponseHeaders();
+        if ((status != HttpStatus.TOO_MANY_REQUESTS.value() && status != HttpStatus.SERVICE_UNAVAILABLE.value())
+                || headers == null) {
+            return 0;
+        }
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException ignored) {
+            // an HTTP date
+        }
+        try {
+            return Math.max(0, headers.getFirstDate(HttpHeaders.RETRY_AFTER) - System.currentTimeMillis());
+        } catch (IllegalArgumentException ignored) {
+            return 0;
+        }
+    }
+
+    private static long nextDelay(RetryPolicy policy, long previous) {
+        long base = Math.max(0, policy.getBaseDelay());
+        long upper = Math.max(base, Math.min(policy.getMaxDelay(), previous * 3));
+        return upper > base ? ThreadLocalRandom.current().nextLong(base, upper + 1) : base;
+    }
+
+    private static void sleep(long millis, ApiException failure) throws ApiException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ApiException interrupted = new ApiException("Interrupted waiting to retry", e);
+            interrupted.addSuppressed(failure);
+            throw interrupted;
+        }
+    }
+
+    /**
+     * A call which may be retried.
+     *
+     * @param <R> the type of the result.
+     */
+    @FunctionalInterface
+    public interface Call<R> {
+        R call() throws ApiException;
+    }
+}
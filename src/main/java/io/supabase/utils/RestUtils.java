@@ -1,27 +1,75 @@
 package io.supabase.utils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.supabase.exceptions.ApiException;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientResponseException;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class RestUtils {
-    private static final ObjectMapper mapper = new ObjectMapper();
-    private static final RestTemplate rest = new RestTemplate();
+    private static volatile HttpTransport defaultTransport;
+    private static volatile AsyncHttpTransport defaultAsyncTransport;
+    // not a monitor, a virtual thread waiting for it does not pin its carrier
+    private static final Lock defaultTransportLock = new ReentrantLock();
 
 
     private RestUtils() {
     }
 
+    /**
+     * Gets the transport shared by all requests which are not sent with a transport of their own.
+     * It is created by {@link ExecutionMode#newTransport(HttpTransportConfig)} with the default config on first use.
+     *
+     * @return the shared transport.
+     */
+    public static HttpTransport getDefaultTransport() {
+        HttpTransport transport = defaultTransport;
+        if (transport == null) {
+            defaultTransportLock.lock();
+            try {
+                transport = defaultTransport;
+                if (transport == null) {
+                    transport = ExecutionMode.newTransport(new HttpTransportConfig());
+                    defaultTransport = transport;
+                }
+            } finally {
+                defaultTransportLock.unlock();
+            }
+        }
+        return transport;
+    }
+
+
+    /**
+     * Gets the non-blocking transport shared by all asynchronous requests which are not sent with a transport
+     * of their own. It is created with the default {@link HttpTransportConfig} on first use.
+     *
+     * @return the shared non-blocking transport.
+     */
+    public static AsyncHttpTransport getDefaultAsyncTransport() {
+        AsyncHttpTransport transport = defaultAsyncTransport;
+        if (transport == null) {
+            defaultTransportLock.lock();
+            try {
+                transport = defaultAsyncTransport;
+                if (transport == null) {
+                    transport = new AsyncHttpTransport(new HttpTransportConfig());
+                    defaultAsyncTransport = transport;
+                }
+            } finally {
+                defaultTransportLock.unlock();
+            }
+        }
+        return transport;
+    }
 
     /**
      * Sends a Put request.
@@ -35,12 +83,28 @@ public class RestUtils {
      * @throws ApiException if a Exception is thrown.
      */
     public static <R> R put(Object body, Class<R> responseClass, Map<String, String> headers, String url) throws ApiException {
+        return put(getDefaultTransport(), body, responseClass, headers, url);
+    }
+
+    /**
+     * Sends a Put request with the given transport.
+     *
+     * @param transport     the transport the request will be sent with.
+     * @param body          the body of the request, will be parsed to json.
+     * @param responseClass the class of the response.
+     * @param headers       the headers that will be sent with the request.
+     * @param url           the url the request will be sent to.
+     * @param <R>           the type of the response.
+     * @return the response of the request parsed from json to R.
+     * @throws ApiException if a Exception is thrown.
+     */
+    public static <R> R put(HttpTransport transport, Object body, Class<R> responseClass, Map<String, String> headers, String url) throws ApiException {
         try {
-            HttpEntity<String> entity = toEntity(body, headers);
-            return rest.exchange(url, HttpMethod.PUT, entity, responseClass).getBody();
+            HttpEntity<Object> entity = toEntity(body, headers);
+            return transport.getRestTemplate().exchange(url, HttpMethod.PUT, entity, responseClass).getBody();
         } catch (RestClientResponseException | ResourceAccessException e) {
             throw new ApiException("Put failed", e);
-        } catch (JsonProcessingException e) {
+        } catch (HttpMessageNotWritableException e) {
             throw new ApiException("Object mapping failed", e);
         }
     }
@@ -56,10 +120,40 @@ public class RestUtils {
      * @throws ApiException if a Exception is thrown.
      */
     public static <R> R get(Class<R> responseClass, Map<String, String> headers, String url) throws ApiException {
+        return get(getDefaultTransport(), responseClass, headers, url);
+    }
+
+    /**
+     * Sends a Get request with the given transport.
+     *
+     * @param transport     the transport the request will be sent with.
+     * @param responseClass the class of the response.
+     * @param headers       the headers that will be sent with the request.
+     * @param url           the url the request will be sent to.
+     * @param <R>           the type of the response.
+     * @return the response of the request parsed from json to R.
+     * @throws ApiException if a Exception is thrown.
+     */
+    public static <R> R get(HttpTransport transport, Class<R> responseClass, Map<String, String> headers, String url) throws ApiException {
+        return getEntity(transport, responseClass, headers, url).getBody();
+    }
+
+    /**
+     * Sends a Get request with the given transport and keeps the status and the headers of the response,
+     * e.g. for conditional requests answered with 304 Not Modified and no body.
+     *
+     * @param transport     the transport the request will be sent with.
+     * @param responseClass the class of the response.
+     * @param headers       the headers that will be sent with the request.
+     * @param url           the url the request will be sent to.
+     * @param <R>           the type of the response.
+     * @return the response of the request with its body parsed from json to R.
+     * @throws ApiException if a Exception is thrown.
+     */
+    public static <R> ResponseEntity<R> getEntity(HttpTransport transport, Class<R> responseClass, Map<String, String> headers, String url) throws ApiException {
         try {
-            HttpEntity<String> entity = toEntity(headers);
-            ResponseEntity<R> res = rest.exchange(url, HttpMethod.GET, entity, responseClass);
-            return res.getBody();
+            HttpEntity<Object> entity = toEntity(headers);
+            return transport.getRestTemplate().exchange(url, HttpMethod.GET, entity, responseClass);
         } catch (RestClientResponseException | ResourceAccessException e) {
             throw new ApiException("Get failed", e);
         }
@@ -74,9 +168,21 @@ public class RestUtils {
      * @throws ApiException if a Exception is thrown.
      */
     public static void post(Map<String, String> headers, String url) throws ApiException {
+        post(getDefaultTransport(), headers, url);
+    }
+
+    /**
+     * Sends a Post request with the given transport.
+     *
+     * @param transport the transport the request will be sent with.
+     * @param headers   the headers that will be sent with the request.
+     * @param url       the url the request will be sent to.
+     * @throws ApiException if a Exception is thrown.
+     */
+    public static void post(HttpTransport transport, Map<String, String> headers, String url) throws ApiException {
         try {
-            HttpEntity<String> entity = toEntity(headers);
-            rest.postForObject(url, entity, Void.class);
+            HttpEntity<Object> entity = toEntity(headers);
+            transport.getRestTemplate().postForObject(url, entity, Void.class);
         } catch (RestClientResponseException | ResourceAccessException e) {
             throw new ApiException("Post failed", e);
         }
@@ -91,7 +197,20 @@ public class RestUtils {
      * @throws ApiException if a Exception is thrown.
      */
     public static void post(Object body, Map<String, String> headers, String url) throws ApiException {
-        post(body, Void.class, headers, url);
+        post(getDefaultTransport(), body, Void.class, headers, url);
+    }
+
+    /**
+     * Sends a Post request with the given transport.
+     *
+     * @param transport the transport the request will be sent with.
+     * @param body      the body of the request, will be parsed to json.
+     * @param headers   the headers that will be sent with the request.
+     * @param url       the url the request will be sent to.
+     * @throws ApiException if a Exception is thrown.
+     */
+    public static void post(HttpTransport transport, Object body, Map<String, String> headers, String url) throws ApiException {
+        post(transport, body, Void.class, headers, url);
     }
 
     /**
@@ -106,30 +225,49 @@ public class RestUtils {
      * @throws ApiException if a Exception is thrown.
      */
     public static <R> R post(Object body, Class<R> responseClass, Map<String, String> headers, String url) throws ApiException {
+        return post(getDefaultTransport(), body, responseClass, headers, url);
+    }
+
+    /**
+     * Sends a Post request with the given transport.
+     *
+     * @param transport     the transport the request will be sent with.
+     * @param body          the body of the request, will be parsed to json.
+     * @param responseClass the class of the response.
+     * @param headers       the headers that will be sent with the request.
+     * @param url           the url the request will be sent to.
+     * @param <R>           the type of the response.
+     * @return the response of the request parsed from json to R.
+     * @throws ApiException if a Exception is thrown.
+     */
+    public static <R> R post(HttpTransport transport, Object body, Class<R> responseClass, Map<String, String> headers, String url) throws ApiException {
         try {
-            HttpEntity<String> entity = toEntity(body, headers);
-            return rest.postForObject(url, entity, responseClass);
+            HttpEntity<Object> entity = toEntity(body, headers);
+            return transport.getRestTemplate().postForObject(url, entity, responseClass);
         } catch (RestClientResponseException | ResourceAccessException e) {
             throw new ApiException("Post failed", e);
-        } catch (JsonProcessingException e) {
+        } catch (HttpMessageNotWritableException e) {
             throw new ApiException("Object mapping failed", e);
         }
     }
 
-    private static HttpEntity<String> toEntity(Object object, Map<String, String> headers) throws JsonProcessingException {
-        return toEntity(mapper.writeValueAsString(object), headers);
+    /**
+     * Builds the entity of a request, its body is written as json by the message converters of the template.
+     */
+    private static HttpEntity<Object> toEntity(Object body, Map<String, String> headers) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                httpHeaders.add(entry.getKey(), entry.getValue());
+            }
+        }
+        if (body != null && !httpHeaders.containsKey(HttpHeaders.CONTENT_TYPE)) {
+            httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        }
+        return new HttpEntity<>(body, httpHeaders);
     }
 
-    private static HttpEntity<String> toEntity(Map<String, String> headers) {
+    private static HttpEntity<Object> toEntity(Map<String, String> headers) {
         return toEntity(null, headers);
     }
-
-    private static HttpEntity<String> toEntity(String jsonBody, Map<String, String> headers) {
-        HttpHeaders httpHeaders = new HttpHeaders();
-        headers = (headers != null) ? headers : new HashMap<>();
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            httpHeaders.add(entry.getKey(), entry.getValue());
-        }
-        return new HttpEntity<>(jsonBody, httpHeaders);
-    }
 }
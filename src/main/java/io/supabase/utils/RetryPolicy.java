@@ -0,0 +1,41 @@
+package io.supabase.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * When and how long a failed call is retried by {@link Resilience}. All durations are in milliseconds.
+ * <p>
+ * Only I/O errors, 5xx and 429 responses are retried. The delays follow decorrelated jitter: each one is random
+ * between the base delay and three times the previous one, capped by the maximum delay. A 429 or 503 response
+ * with a Retry-After header is not retried before that time.
+ */
+@Getter
+@Setter
+public class RetryPolicy {
+    /**
+     * How often a call is attempted at most, 1 does not retry.
+     */
+    int maxAttempts = 3;
+    /**
+     * The shortest delay before a retry.
+     */
+    long baseDelay = 100;
+    /**
+     * The longest delay before a retry.
+     */
+    long maxDelay = 2_000;
+    /**
+     * The longest Retry-After to wait for, a call asked to wait longer is not retried.
+     */
+    long maxRetryAfter = 10_000;
+
+    /**
+     * @return a policy which does not retry.
+     */
+    public static RetryPolicy none() {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setMaxAttempts(1);
+        return policy;
+    }
+}
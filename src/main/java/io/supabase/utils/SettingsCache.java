@@ -0,0 +1,164 @@
+package io.supabase.utils;
+
+import io.supabase.data.dto.SettingsDto;
+import io.supabase.exceptions.ApiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the settings of GoTrue, stale-while-revalidate.
+ * <p>
+ * Only the first call waits for the settings. Once they are older than the ttl, callers still get them right
+ * away while a single background refresh fetches them again. The refresh is a conditional request if the
+ * server sent an ETag, unchanged settings are then answered with 304 Not Modified and no body. A failed refresh
+ * keeps the stale settings, the next call tries again. Cached settings are shared and must not be modified.
+ */
+public class SettingsCache {
+    private final long ttlNanos;
+    private final Loader loader;
+    private final Executor executor;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile Entry entry;
+
+    /**
+     * @param ttlMillis how long fetched settings are fresh, in milliseconds.
+     * @param loader    fetches the settings.
+     * @param executor  runs the background refreshes.
+     * @throws IllegalArgumentException if the ttl is not positive or the loader or executor is not specified.
+     */
+    public SettingsCache(long ttlMillis, Loader loader, Executor executor) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("The parameter >ttlMillis< must be positive!");
+        }
+        if (loader == null) {
+            throw new IllegalArgumentException("The parameter >loader< is required!");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("The parameter >executor< is required!");
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.loader = loader;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the settings, fetching them only if they were never fetched.
+     *
+     * @return the cached settings, which may be stale while they are refreshed.
+     * @throws ApiException if the settings were never fetched and fetching them failed.
+     */
+    public SettingsDto get() throws ApiException {
+        Entry current = entry;
+        if (current == null) {
+            current = load(null);
+            entry = current;
+            return current.settings;
+        }
+        if (System.nanoTime() - current.fetchedAt < ttlNanos) {
+            hits.increment();
+        } else {
+            staleHits.increment();
+            refresh(current);
+        }
+        return current.settings;
+    }
+
+    /**
+     * Drops the cached settings, the next call fetches them again.
+     */
+    public void invalidate() {
+        entry = null;
+    }
+
+    /**
+     * @return how often fresh settings were returned.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how often stale settings were returned while they were refreshed.
+     */
+    public long getStaleHitCount() {
+        return staleHits.sum();
+    }
+
+    /**
+     * @return how often a refresh was answered with 304 Not Modified.
+     */
+    public long getNotModifiedCount() {
+        return notModified.sum();
+    }
+
+    /**
+     * @return how often a background refresh failed.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    private void refresh(Entry current) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    entry = load(current);
+                } catch (ApiException | RuntimeException e) {
+                    failures.increment();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+        }
+    }
+
+    private Entry load(Entry current) throws ApiException {
+        ResponseEntity<SettingsDto> response = loader.load(current != null ? current.etag : null);
+        long now = System.nanoTime();
+        if (current != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            notModified.increment();
+            return new Entry(current.settings, current.etag, now);
+        }
+        return new Entry(response.getBody(), response.getHeaders().getETag(), now);
+    }
+
+    /**
+     * Fetches the settings.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param etag the ETag of the cached settings to send as If-None-Match or null to fetch them unconditionally.
+         * @return the response, 304 Not Modified if the cached settings are still current.
+         * @throws ApiException if the request failed.
+         */
+        ResponseEntity<SettingsDto> load(String etag) throws ApiException;
+    }
+
+    private static final class Entry {
+        private final SettingsDto settings;
+        private final String etag;
+        private final long fetchedAt;
+
+        Entry(SettingsDto settings, String etag, long fetchedAt) {
+            this.settings = settings;
+            this.etag = etag;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
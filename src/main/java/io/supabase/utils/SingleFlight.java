@@ -0,0 +1,103 @@
+package io.supabase.utils;
+
+import io.supabase.exceptions.ApiException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent identical calls.
+ * <p>
+ * The first caller of a key runs the call, callers of the same key arriving while it is in flight wait for it
+ * and get the same result or exception. Nothing is kept once the call completed, the next caller runs it again.
+ * Shared results must not be modified.
+ *
+ * @param <K> the type of the keys identifying identical calls.
+ */
+public class SingleFlight<K> {
+    private final ConcurrentMap<K, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Runs a call or joins the identical one in flight.
+     *
+     * @param key  identifies identical calls, e.g. the url and the token.
+     * @param call the call.
+     * @param <V>  the type of the result.
+     * @return the result of the call, which may be shared with concurrent callers.
+     * @throws ApiException if the call failed or the thread was interrupted while waiting for it.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(K key, Call<V> call) throws ApiException {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            shared.increment();
+            return (V) await(inFlight);
+        }
+        calls.increment();
+        try {
+            V result = call.call();
+            flight.complete(result);
+            return result;
+        } catch (ApiException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return how many calls were run, i.e. the requests actually sent.
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return how many callers got the result of a call run by another one, i.e. the requests saved.
+     */
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    /**
+     * @return the number of calls currently in flight.
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    private static Object await(CompletableFuture<Object> flight) throws ApiException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted waiting for a shared request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ApiException) {
+                throw (ApiException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * A call which may be shared.
+     *
+     * @param <V> the type of the result.
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+        V call() throws ApiException;
+    }
+}
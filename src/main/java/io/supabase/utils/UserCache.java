@@ -0,0 +1,354 @@
+package io.supabase.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.supabase.data.dto.UserDto;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of users keyed by their access token.
+ * <p>
+ * A user is dropped when the {@code exp} of its token passes, after the maximum staleness or when it is the
+ * least recently used one of a full cache, whichever comes first. The cache is bounded by the number of users
+ * and optionally by their estimated memory, which is taken from the size of their JSON. The expiry is read from
+ * the token without verifying it, users are only cached after GoTrue accepted the token.
+ * <p>
+ * Cached users are shared between callers and must not be modified. A user fetched while its token is
+ * invalidated is not cached, see {@link #stamp(String)}.
+ */
+public class UserCache {
+    // references, headers and the map entry of a cached user
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // invalidations are counted in stripes of tokens instead of per token, which needs no tombstones
+    private static final int STAMPS = 1024;
+
+    private final Segment[] segments;
+    private final int mask;
+    private final long maxStalenessMillis;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMPS);
+    private final AtomicLong clears = new AtomicLong();
+
+    /**
+     * @param config the bounds of the cache.
+     * @throws IllegalArgumentException if the config is not specified, or the maximum number of entries or the
+     *                                  maximum staleness is not positive or the maximum bytes are negative.
+     */
+    public UserCache(UserCacheConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("The parameter >config< is required!");
+        }
+        if (config.getMaxEntries() <= 0 || config.getMaxStaleness() <= 0 || config.getMaxBytes() < 0) {
+            throw new IllegalArgumentException("The bounds of the cache have to be positive!");
+        }
+        int count = 1;
+        int target = Math.min(Runtime.getRuntime().availableProcessors() * 2, config.getMaxEntries());
+        while (count < target) {
+            count <<= 1;
+        }
+        int perSegment = (config.getMaxEntries() + count - 1) / count;
+        long bytesPerSegment = config.getMaxBytes() > 0 ? Math.max(1, config.getMaxBytes() / count) : Long.MAX_VALUE;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment, bytesPerSegment);
+        }
+        mask = count - 1;
+        maxStalenessMillis = config.getMaxStaleness();
+    }
+
+    /**
+     * Gets a cached user.
+     *
+     * @param jwt the access token of the user.
+     * @return the cached user or null if it is not cached or expired.
+     */
+    public UserDto get(String jwt) {
+        Segment segment = segmentFor(jwt);
+        UserDto user = null;
+        synchronized (segment) {
+            Entry entry = segment.get(jwt);
+            if (entry != null) {
+                if (entry.isExpired(System.currentTimeMillis())) {
+                    segment.removeEntry(jwt);
+                    expirations.increment();
+                } else {
+                    user = entry.user;
+                }
+            }
+        }
+        if (user != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return user;
+    }
+
+    /**
+     * Gets the invalidation stamp of a token, to be taken before its user is fetched and passed to
+     * {@link #put(String, UserDto, long)}. It changes whenever the token is invalidated or the cache is cleared.
+     *
+     * @param jwt the access token of the user.
+     * @return the stamp.
+     */
+    public long stamp(String jwt) {
+        // both only grow, so the sum changes whenever one of them does
+        return stamps.get(stampIndex(jwt)) + clears.get();
+    }
+
+    /**
+     * Caches a user until its token expires, it gets stale or evicted.
+     * Users of tokens which already expired or whose payload can not be read are not cached.
+     *
+     * @param jwt  the access token of the user.
+     * @param user the user.
+     */
+    public void put(String jwt, UserDto user) {
+        put(jwt, user, -1);
+    }
+
+    /**
+     * Caches a user like {@link #put(String, UserDto)}, unless its token was invalidated since the stamp was taken,
+     * e.g. because the user was updated or signed out while it was fetched.
+     *
+     * @param jwt   the access token of the user.
+     * @param user  the user.
+     * @param stamp the stamp of the token taken before the user was fetched, see {@link #stamp(String)}.
+     */
+    public void put(String jwt, UserDto user, long stamp) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + maxStalenessMillis;
+        Long exp = readExp(jwt);
+        if (exp == null) {
+            return;
+        }
+        if (exp > 0) {
+            expiresAt = Math.min(expiresAt, exp * 1000);
+        }
+        if (now > expiresAt) {
+            return;
+        }
+        Entry entry = new Entry(user, expiresAt, weigh(user));
+        Segment segment = segmentFor(jwt);
+        synchronized (segment) {
+            if (stamp >= 0 && stamp(jwt) != stamp) {
+                return;
+            }
+            segment.putEntry(jwt, entry);
+            // drop an expired eldest entry right away instead of waiting for it to be evicted
+            Iterator<Entry> eldest = segment.values().iterator();
+            if (eldest.hasNext()) {
+                Entry e = eldest.next();
+                if (e.isExpired(now)) {
+                    eldest.remove();
+                    segment.bytes -= e.bytes;
+                    expirations.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the cached user of a token, e.g. because it was updated or signed out.
+     *
+     * @param jwt the access token of the user.
+     */
+    public void invalidate(String jwt) {
+        Segment segment = segmentFor(jwt);
+        synchronized (segment) {
+            stamps.incrementAndGet(stampIndex(jwt));
+            if (segment.removeEntry(jwt) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached users.
+     */
+    public void clear() {
+        clears.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.bytes = 0;
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached users.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the estimated memory of the cached users in bytes.
+     */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return how often a user was found in the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how often a user was not found in the cache.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return how many users were evicted because the cache was full.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return how many users were dropped because their token expired or they got stale.
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return how many users were dropped because they were updated or signed out.
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Reads the expiry of a token without verifying it.
+     *
+     * @return the exp in seconds, 0 if the token has none or null if its payload can not be read.
+     */
+    static Long readExp(String jwt) {
+        int first = jwt.indexOf('.');
+        int second = jwt.indexOf('.', first + 1);
+        if (first < 0 || second < 0) {
+            return null;
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(jwt.substring(first + 1, second));
+            JsonNode exp = mapper.readTree(payload).get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() : 0L;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private static long weigh(UserDto user) {
+        try {
+            // the JSON size is close to the size of the strings of the user, which take up to 2 bytes per char
+            return ENTRY_OVERHEAD + 2L * mapper.writeValueAsBytes(user).length;
+        } catch (JsonProcessingException e) {
+            return ENTRY_OVERHEAD;
+        }
+    }
+
+    private Segment segmentFor(String jwt) {
+        int h = jwt.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static int stampIndex(String jwt) {
+        int h = jwt.hashCode();
+        return (h ^ (h >>> 16)) & (STAMPS - 1);
+    }
+
+    private static final class Entry {
+        private final UserDto user;
+        private final long expiresAt;
+        private final long bytes;
+
+        private Entry(UserDto user, long expiresAt, long bytes) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+
+        private boolean isExpired(long now) {
+            return now > expiresAt;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, Entry> {
+        private final int capacity;
+        private final long maxBytes;
+        private long bytes;
+
+        private Segment(int capacity, long maxBytes) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.maxBytes = maxBytes;
+        }
+
+        private void putEntry(String jwt, Entry entry) {
+            Entry previous = put(jwt, entry);
+            if (previous != null) {
+                bytes -= previous.bytes;
+            }
+            bytes += entry.bytes;
+            // a single user larger than the budget of a segment is kept until the next one comes
+            Iterator<Entry> eldest = values().iterator();
+            while (bytes > maxBytes && size() > 1) {
+                Entry e = eldest.next();
+                eldest.remove();
+                bytes -= e.bytes;
+                evictions.increment();
+            }
+        }
+
+        private Entry removeEntry(String jwt) {
+            Entry entry = remove(jwt);
+            if (entry != null) {
+                bytes -= entry.bytes;
+            }
+            return entry;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                bytes -= eldest.getValue().bytes;
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
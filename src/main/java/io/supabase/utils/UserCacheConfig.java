@@ -0,0 +1,24 @@
+package io.supabase.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of a {@link UserCache}. All durations are in milliseconds.
+ */
+@Getter
+@Setter
+public class UserCacheConfig {
+    /**
+     * Maximum number of cached users.
+     */
+    int maxEntries = 10_000;
+    /**
+     * Maximum estimated memory of the cached users in bytes, 0 bounds them by count only.
+     */
+    long maxBytes = 0;
+    /**
+     * How long a user is cached at most, it is dropped earlier when its access token expires.
+     */
+    long maxStaleness = 60_000;
+}
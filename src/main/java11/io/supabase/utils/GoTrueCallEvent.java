@@ -0,0 +1,53 @@
+package io.supabase.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event of a request to GoTrue, so its latency shows up next to GC pauses and lock contention
+ * of the same recording. It is enabled by default with a threshold of 0 and costs next to nothing while no
+ * recording is running.
+ */
+@Name("io.supabase.GoTrueCall")
+@Label("GoTrue Call")
+@Category({"Supabase", "GoTrue"})
+@Description("A request to the GoTrue server")
+@StackTrace(false)
+public class GoTrueCallEvent extends Event {
+    @Label("Operation")
+    private String operation;
+    @Label("Endpoint")
+    private String endpoint;
+    @Label("Status")
+    private int status;
+    @Label("Request Size")
+    @DataAmount
+    private long requestBytes;
+    @Label("Response Size")
+    @DataAmount
+    private long responseBytes;
+    @Label("Error")
+    private String error;
+
+    /**
+     * @param operation     the name of the operation, e.g. {@code signInWithEmail}.
+     * @param endpoint      the endpoint the request was sent to, e.g. {@code POST /token}.
+     * @param status        the status of the response or 0 if there was none.
+     * @param requestBytes  the size of the request body.
+     * @param responseBytes the size of the response body.
+     * @param error         why the request failed or null.
+     */
+    public void set(String operation, String endpoint, int status, long requestBytes, long responseBytes, String error) {
+        this.operation = operation;
+        this.endpoint = endpoint;
+        this.status = status;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.error = error;
+    }
+}
@@ -0,0 +1,31 @@
+package io.supabase.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event of the verification of a token by {@link io.supabase.jwt.JwtVerifier#parse(String)}
+ * or {@link io.supabase.jwt.JwtVerifier#tryParse(String)}.
+ * It is enabled by default with a threshold of 0 and costs next to nothing while no recording is running.
+ */
+@Name("io.supabase.JwtVerification")
+@Label("JWT Verification")
+@Category({"Supabase", "GoTrue"})
+@Description("The verification of a token")
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+    @Label("Outcome")
+    private String outcome;
+
+    /**
+     * @param outcome {@code VALID}, the {@link io.supabase.jwt.RejectionReason} of a rejected token or the name
+     *                of another error.
+     */
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,55 @@
+package io.supabase.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Picks the threads blocking GoTrue calls run on and the HTTP client they are sent with.
+ * <p>
+ * This is the Java 21+ version: each call runs on a virtual thread and is sent with
+ * {@code java.net.http.HttpClient}, so a call waiting for GoTrue parks its virtual thread instead of
+ * holding a platform thread. Nothing on the way of a request synchronizes on a monitor, which would pin
+ * the carrier thread.
+ */
+public final class ExecutionMode {
+    private static final ExecutorService callExecutor = newCallExecutor();
+
+    private ExecutionMode() {
+    }
+
+    /**
+     * @return whether calls run on virtual threads.
+     */
+    public static boolean isVirtual() {
+        return true;
+    }
+
+    /**
+     * Gets the executor shared by all calls submitted to a {@link io.supabase.GoTrueClient}.
+     *
+     * @return the shared executor.
+     */
+    public static ExecutorService callExecutor() {
+        return callExecutor;
+    }
+
+    /**
+     * Creates an executor running each blocking call on a new virtual thread.
+     *
+     * @return a new executor, it has to be shut down by the caller.
+     */
+    public static ExecutorService newCallExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gotrue-call-", 1).factory());
+    }
+
+    /**
+     * Creates the transport blocking calls are sent with.
+     *
+     * @param config the settings of the connections.
+     * @return a new transport backed by a {@code java.net.http.HttpClient}.
+     * @throws IllegalArgumentException if the config is not specified or a limit is not positive.
+     */
+    public static HttpTransport newTransport(HttpTransportConfig config) {
+        return new JdkHttpTransport(config);
+    }
+}
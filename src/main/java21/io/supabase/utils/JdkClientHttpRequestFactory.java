@@ -0,0 +1,210 @@
+package io.supabase.utils;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Creates the requests of a {@link org.springframework.web.client.RestTemplate} on top of
+ * {@code java.net.http.HttpClient}. Waiting for a permit or a response parks a virtual thread.
+ * <p>
+ * A request holds one of the {@code maxConnections} permits until its response is closed, so the body is read
+ * within the limit as with the pooled Apache client. The HttpClient has no socket timeout, the read timeout
+ * bounds the time from sending a request to receiving the headers of its response instead; reading the body,
+ * a small json document for GoTrue, is not bounded.
+ */
+class JdkClientHttpRequestFactory implements ClientHttpRequestFactory {
+    // set by the HttpClient itself, it refuses requests carrying them
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient client;
+    private final Semaphore permits;
+    private final Duration readTimeout;
+    private final long permitTimeout;
+
+    JdkClientHttpRequestFactory(HttpClient client, HttpTransportConfig config) {
+        this.client = client;
+        this.permits = new Semaphore(Math.min(config.getMaxConnections(), config.getMaxConnectionsPerRoute()));
+        this.readTimeout = config.getReadTimeout() > 0 ? Duration.ofMillis(config.getReadTimeout()) : null;
+        this.permitTimeout = config.getConnectionRequestTimeout();
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new JdkClientHttpRequest(uri, httpMethod);
+    }
+
+    private void acquire() throws IOException {
+        try {
+            if (permitTimeout <= 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(permitTimeout, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timeout waiting for connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for connection");
+        }
+    }
+
+    private class JdkClientHttpRequest implements ClientHttpRequest {
+        private final URI uri;
+        private final HttpMethod method;
+        private final HttpHeaders headers = new HttpHeaders();
+        private final Body body = new Body();
+
+        JdkClientHttpRequest(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return method.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .method(method.name(), body.size() == 0
+                            ? HttpRequest.BodyPublishers.noBody()
+                            : body.publisher());
+            if (readTimeout != null) {
+                builder.timeout(readTimeout);
+            }
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (!RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                    for (String value : header.getValue()) {
+                        builder.header(header.getKey(), value);
+                    }
+                }
+            }
+            acquire();
+            try {
+                return new JdkClientHttpResponse(client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream()));
+            } catch (InterruptedException e) {
+                permits.release();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the response");
+            } catch (IOException | RuntimeException | Error e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+
+    // hands its buffer to the client without copying it
+    private static class Body extends ByteArrayOutputStream {
+        Body() {
+            super(256);
+        }
+
+        HttpRequest.BodyPublisher publisher() {
+            return HttpRequest.BodyPublishers.ofByteArray(buf, 0, count);
+        }
+    }
+
+    // gives its permit back once, when either the response or its body is closed
+    private class JdkClientHttpResponse implements ClientHttpResponse {
+        private final HttpResponse<InputStream> response;
+        private final InputStream body;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private HttpHeaders headers;
+
+        JdkClientHttpResponse(HttpResponse<InputStream> response) {
+            this.response = response;
+            this.body = new FilterInputStream(response.body()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return HttpStatus.valueOf(response.statusCode());
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public String getStatusText() {
+            HttpStatus status = HttpStatus.resolve(response.statusCode());
+            return status != null ? status.getReasonPhrase() : "";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                HttpHeaders copy = new HttpHeaders();
+                response.headers().map().forEach(copy::addAll);
+                headers = copy;
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                body.close();
+            } catch (IOException ignored) {
+                // the connection is discarded by the client
+            }
+        }
+
+        private void release() {
+            if (closed.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.supabase.utils;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * A {@link HttpTransport} sending requests with {@code java.net.http.HttpClient}, which keeps its own pool
+ * of keep-alive connections. At most {@link HttpTransportConfig#getMaxConnections()} requests are in flight,
+ * further ones wait for one of them like they would for a pooled connection.
+ */
+class JdkHttpTransport extends HttpTransport {
+    private final HttpClient client;
+
+    JdkHttpTransport(HttpTransportConfig config) {
+        this(config, newClient(config));
+    }
+
+    private JdkHttpTransport(HttpTransportConfig config, HttpClient client) {
+        super(new JdkClientHttpRequestFactory(client, config));
+        this.client = client;
+    }
+
+    private static HttpClient newClient(HttpTransportConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("The parameter >config< is required!");
+        }
+        if (config.getMaxConnections() <= 0 || config.getMaxConnectionsPerRoute() <= 0) {
+            throw new IllegalArgumentException("The maximum number of connections has to be positive!");
+        }
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (config.getConnectTimeout() > 0) {
+            builder.connectTimeout(Duration.ofMillis(config.getConnectTimeout()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Closes the connections of the client, requests in flight are completed first.
+     */
+    @Override
+    public void close() {
+        client.close();
+    }
+}
@@ -2,6 +2,8 @@ package io.supabase;
 
 import io.supabase.exceptions.JwtSecretNotFoundException;
 import io.supabase.exceptions.MalformedHeadersException;
+import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.jwt.JwtVerifier;
 import io.supabase.utils.ClientUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -10,6 +12,7 @@ import org.junit.jupiter.api.Test;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.github.stefanbirkner.systemlambda.SystemLambda.withEnvironmentVariable;
@@ -20,6 +23,8 @@ class ClientUtilsTest {
         System.clearProperty("gotrue.headers");
         System.clearProperty("gotrue.url");
         System.clearProperty("gotrue.jwt.secret");
+        System.clearProperty("gotrue.jwt.cache.size");
+        Utils.resetJwtVerifier();
     }
 
     @Test
@@ -55,6 +60,14 @@ class ClientUtilsTest {
         Assertions.assertDoesNotThrow(ClientUtils::loadHeaders);
     }
 
+    @Test
+    void splitUrls() throws UrlNotFoundException {
+        Assertions.assertEquals(Arrays.asList("http://a:9999", "http://b:9999"),
+                ClientUtils.splitUrls(" http://a:9999,http://b:9999 ,"));
+        Assertions.assertEquals(Arrays.asList("http://a:9999"), ClientUtils.splitUrls("http://a:9999"));
+        Assertions.assertThrows(UrlNotFoundException.class, () -> ClientUtils.splitUrls(" , "));
+    }
+
     @Test
     void parseJwt_no_secret() {
         Assertions.assertThrows(JwtSecretNotFoundException.class, () -> ClientUtils.parseJwt("invalid"));
@@ -94,4 +107,47 @@ class ClientUtilsTest {
             Assertions.fail();
         }
     }
+
+    @Test
+    void getJwtVerifier_reused() {
+        System.setProperty("gotrue.jwt.secret", "superSecretJwtToken");
+        try {
+            JwtVerifier verifier = ClientUtils.getJwtVerifier();
+            Assertions.assertSame(verifier, ClientUtils.getJwtVerifier());
+            // a changed secret is only read on reload
+            System.setProperty("gotrue.jwt.secret", "anotherSecret");
+            Assertions.assertSame(verifier, ClientUtils.getJwtVerifier());
+            JwtVerifier reloaded = ClientUtils.reloadJwtVerifier();
+            Assertions.assertNotSame(verifier, reloaded);
+            Assertions.assertTrue(reloaded.hasSecret("anotherSecret"));
+            Assertions.assertSame(reloaded, ClientUtils.getJwtVerifier());
+            System.clearProperty("gotrue.jwt.secret");
+            Assertions.assertThrows(JwtSecretNotFoundException.class, ClientUtils::reloadJwtVerifier);
+            Assertions.assertThrows(JwtSecretNotFoundException.class, ClientUtils::getJwtVerifier);
+        } catch (JwtSecretNotFoundException e) {
+            Assertions.fail();
+        }
+    }
+
+    @Test
+    void getJwtVerifier_cache() {
+        System.setProperty("gotrue.jwt.secret", "cachedSecret");
+        System.setProperty("gotrue.jwt.cache.size", "100");
+        try {
+            Assertions.assertNotNull(ClientUtils.getJwtVerifier().getCache());
+        } catch (JwtSecretNotFoundException e) {
+            Assertions.fail();
+        }
+    }
+
+    @Test
+    void getJwtVerifier_cache_invalid() {
+        System.setProperty("gotrue.jwt.secret", "cachedSecret");
+        for (String size : new String[]{"1O0", "0", "-5"}) {
+            System.setProperty("gotrue.jwt.cache.size", size);
+            IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                    ClientUtils::reloadJwtVerifier);
+            Assertions.assertTrue(e.getMessage().contains("gotrue.jwt.cache.size"));
+        }
+    }
 }
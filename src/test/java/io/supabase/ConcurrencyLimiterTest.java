@@ -0,0 +1,199 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.LimitExceededException;
+import io.supabase.utils.ConcurrencyLimiter;
+import io.supabase.utils.ConcurrencyLimiterConfig;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class ConcurrencyLimiterTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static ConcurrencyLimiterConfig config(int initialLimit, long maxQueueTime) {
+        ConcurrencyLimiterConfig config = new ConcurrencyLimiterConfig();
+        config.setInitialLimit(initialLimit);
+        config.setMaxQueueTime(maxQueueTime);
+        return config;
+    }
+
+    private Future<String> blocked(ConcurrencyLimiter limiter, CountDownLatch latch) {
+        return executor.submit(() -> limiter.execute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new ApiException("Interrupted", e);
+            }
+            return "ok";
+        }));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitInFlight(ConcurrencyLimiter limiter, int inFlight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getInFlight() + limiter.getQueued() < inFlight && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(config(0, 0)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(config(201, 0)));
+        ConcurrencyLimiterConfig config = config(20, 0);
+        config.setBackoffRatio(1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(config));
+    }
+
+    @Test
+    void execute_rejected() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(config(2, 0));
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Future<String>> running = new ArrayList<>();
+        running.add(blocked(limiter, latch));
+        running.add(blocked(limiter, latch));
+        awaitInFlight(limiter, 2);
+        Assertions.assertEquals(2, limiter.getInFlight());
+        Assertions.assertThrows(LimitExceededException.class, () -> limiter.execute(() -> "over"));
+        Assertions.assertEquals(1, limiter.getRejectedCount());
+        latch.countDown();
+        for (Future<String> future : running) {
+            Assertions.assertEquals("ok", future.get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void execute_queued() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(config(1, 5_000));
+        CountDownLatch latch = new CountDownLatch(1);
+        Future<String> first = blocked(limiter, latch);
+        awaitInFlight(limiter, 1);
+        Future<String> second = executor.submit(() -> limiter.execute(() -> "queued"));
+        awaitInFlight(limiter, 2);
+        Assertions.assertEquals(1, limiter.getQueued());
+        latch.countDown();
+        Assertions.assertEquals("ok", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("queued", second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    void execute_timeout_backs_off() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(config(20, 0));
+        Assertions.assertThrows(ApiException.class, () -> limiter.execute(() -> {
+            throw new ApiException("Get failed", new ResourceAccessException("Read timed out"));
+        }));
+        Assertions.assertEquals(18, limiter.getLimit());
+        Assertions.assertEquals(1, limiter.getDropCount());
+        // not an overload
+        Assertions.assertThrows(ApiException.class, () -> limiter.execute(() -> {
+            throw new ApiException("Get failed", null);
+        }));
+        Assertions.assertEquals(1, limiter.getDropCount());
+    }
+
+    @Test
+    void execute_adapts_to_latency() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(config(2, 0));
+        // both slots used at a steady latency
+        for (int i = 0; i < 10; i++) {
+            List<Future<String>> calls = new ArrayList<>();
+            for (int j = 0; j < 2; j++) {
+                calls.add(executor.submit(() -> limiter.execute(() -> {
+                    sleep(5);
+                    return "ok";
+                })));
+            }
+            for (Future<String> call : calls) {
+                call.get(5, TimeUnit.SECONDS);
+            }
+        }
+        int grown = limiter.getLimit();
+        Assertions.assertTrue(grown > 2);
+        // much slower responses
+        for (int i = 0; i < 10; i++) {
+            limiter.execute(() -> {
+                sleep(100);
+                return "ok";
+            });
+        }
+        Assertions.assertTrue(limiter.getLimit() < grown);
+        Assertions.assertTrue(limiter.getLatencyMillis() > 0);
+    }
+
+    @Test
+    void signInWithEmail_overloaded() throws Exception {
+        byte[] body = "{\"access_token\":\"token\"}".getBytes(StandardCharsets.UTF_8);
+        CountDownLatch latch = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/token", exchange -> {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueApi api = new GoTrueApi("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+            api.setConcurrencyLimiter(new ConcurrencyLimiter(config(1, 0)));
+            Future<String> first = executor.submit(() -> api.signInWithEmail("user@example.com", "secret").getAccessToken());
+            awaitInFlight(api.getConcurrencyLimiter(), 1);
+            ApiException e = Assertions.assertThrows(ApiException.class,
+                    () -> api.signInWithEmail("other@example.com", "secret"));
+            Assertions.assertTrue(e instanceof LimitExceededException);
+            latch.countDown();
+            Assertions.assertEquals("token", first.get(5, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            throw new AssertionError(e.getCause());
+        } finally {
+            latch.countDown();
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.AuthenticationDto;
+import io.supabase.data.dto.UserDto;
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.utils.AsyncHttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+class GoTrueAsyncApiTest {
+    private static final String USER = "{\"id\":\"a942b3d1-3a52-4457-8c4f-88d07c2dbe30\",\"email\":\"email@example.com\","
+            + "\"role\":\"authenticated\",\"identities\":[]}";
+    private final AtomicReference<String> requestBody = new AtomicReference<>();
+    private final AtomicReference<String> authorization = new AtomicReference<>();
+    private HttpServer server;
+    private AsyncHttpTransport transport;
+    private GoTrueAsyncApi api;
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException, UrlNotFoundException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requestBody.set(new String(read(exchange.getRequestBody()), StandardCharsets.UTF_8));
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            String path = exchange.getRequestURI().getPath();
+            int status = 200;
+            String body;
+            if (path.equals("/token") && requestBody.get().contains("wrong")) {
+                status = 400;
+                body = "{\"error\":\"invalid_grant\"}";
+            } else if (path.equals("/token")) {
+                body = "{\"access_token\":\"token\",\"token_type\":\"bearer\",\"expires_in\":3600,"
+                        + "\"refresh_token\":\"refresh\",\"user\":" + USER + "}";
+            } else if (path.equals("/user")) {
+                body = USER;
+            } else {
+                body = "";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        transport = new AsyncHttpTransport(new HttpTransportConfig());
+        api = new GoTrueAsyncApi("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(UrlNotFoundException.class, () -> new GoTrueAsyncApi(null, null));
+        Assertions.assertThrows(UrlNotFoundException.class, () -> new GoTrueAsyncApi("", null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AsyncHttpTransport(null));
+    }
+
+    @Test
+    void signInWithEmail() throws Exception {
+        AuthenticationDto auth = api.signInWithEmail("email@example.com", "secret").get();
+        Assertions.assertEquals("token", auth.getAccessToken());
+        Assertions.assertEquals("email@example.com", auth.getUser().getEmail());
+        Assertions.assertTrue(requestBody.get().contains("\"password\":\"secret\""));
+    }
+
+    @Test
+    void signInWithEmail_failed() {
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                () -> api.signInWithEmail("email@example.com", "wrong").get());
+        Assertions.assertTrue(e.getCause() instanceof ApiException);
+        Assertions.assertEquals("Post failed", e.getCause().getMessage());
+        HttpClientErrorException cause = (HttpClientErrorException) e.getCause().getCause();
+        Assertions.assertEquals(400, cause.getRawStatusCode());
+        Assertions.assertTrue(cause.getResponseBodyAsString().contains("invalid_grant"));
+    }
+
+    @Test
+    void getUser_signOut() throws Exception {
+        UserDto user = api.getUser("jwt").get();
+        Assertions.assertEquals("authenticated", user.getRole());
+        Assertions.assertEquals("Bearer jwt", authorization.get());
+        Assertions.assertNull(api.signOut("jwt").get());
+    }
+
+    @Test
+    void many_in_flight() throws Exception {
+        List<CompletableFuture<UserDto>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(api.getUser("jwt"));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        for (CompletableFuture<UserDto> future : futures) {
+            Assertions.assertEquals("email@example.com", future.get().getEmail());
+        }
+    }
+
+    @Test
+    void connection_refused() throws Exception {
+        int port = server.getAddress().getPort();
+        server.stop(0);
+        GoTrueAsyncApi unreachable = new GoTrueAsyncApi("http://localhost:" + port, null, transport);
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> unreachable.getSettings().get());
+        Assertions.assertEquals("Get failed", e.getCause().getMessage());
+        Assertions.assertTrue(e.getCause().getCause() instanceof ResourceAccessException);
+    }
+}
@@ -7,6 +7,8 @@ import io.supabase.exceptions.ApiException;
 import io.supabase.exceptions.JwtSecretNotFoundException;
 import io.supabase.exceptions.MalformedHeadersException;
 import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.jwt.RejectionReason;
+import io.supabase.jwt.VerificationResult;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,7 +17,9 @@ import org.junit.jupiter.api.function.ThrowingSupplier;
 import org.springframework.web.client.RestTemplate;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.github.stefanbirkner.systemlambda.SystemLambda.withEnvironmentVariable;
@@ -36,6 +40,7 @@ class GoTrueClientTest {
         System.clearProperty("gotrue.url");
         System.clearProperty("gotrue.headers");
         System.clearProperty("gotrue.jwt.secret");
+        Utils.resetJwtVerifier();
     }
 
     @AfterEach
@@ -651,6 +656,27 @@ class GoTrueClientTest {
         Assertions.assertThrows(IllegalArgumentException.class, () -> client.validate(""));
     }
 
+    @Test
+    void parseAll() {
+        System.setProperty("gotrue.jwt.secret", "superSecretJwtToken");
+        String valid = JwtVerifierTest.token("superSecretJwtToken", JwtVerifierTest.inOneHour());
+        String invalid = JwtVerifierTest.token("anotherSecret", JwtVerifierTest.inOneHour());
+        try {
+            List<VerificationResult> results = client.parseAll(Arrays.asList(valid, invalid));
+            Assertions.assertTrue(results.get(0).isValid());
+            Assertions.assertEquals(RejectionReason.INVALID_SIGNATURE, results.get(1).getRejectionReason());
+            Assertions.assertEquals(Arrays.asList(true, false), client.validateAll(Arrays.asList(valid, invalid)));
+        } catch (JwtSecretNotFoundException e) {
+            Assertions.fail();
+        }
+    }
+
+    @Test
+    void parseAll_null() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.parseAll(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.validateAll(null));
+    }
+
     @Test
     void recoverPassword() {
         AuthenticationDto r = null;
@@ -0,0 +1,297 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.ApiException;
+import io.supabase.metrics.ErrorKind;
+import io.supabase.utils.Hedging;
+import io.supabase.utils.HedgingConfig;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import io.supabase.utils.LoadBalancer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class HedgingTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static HedgingConfig config() {
+        HedgingConfig config = new HedgingConfig();
+        config.setInitialDelay(50);
+        return config;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Hedging(null, executor));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Hedging(config(), null));
+        HedgingConfig config = config();
+        config.setPercentile(0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Hedging(config, executor));
+    }
+
+    @Test
+    void execute_fast_not_hedged() throws Exception {
+        Hedging hedging = new Hedging(config(), executor);
+        Assertions.assertEquals("ok", hedging.execute("getUser", () -> "ok"));
+        Assertions.assertEquals(1, hedging.getCallCount());
+        Assertions.assertEquals(0, hedging.getHedgeCount());
+    }
+
+    @Test
+    void execute_slow_hedged() throws Exception {
+        Hedging hedging = new Hedging(config(), executor);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // the first request only answers after the call returned, so the hedge has to win
+            String result = hedging.execute("getUser", () -> {
+                if (attempts.incrementAndGet() == 1) {
+                    await(release);
+                    return "slow";
+                }
+                return "hedge";
+            });
+            Assertions.assertEquals("hedge", result);
+            Assertions.assertEquals(1, hedging.getHedgeCount());
+            Assertions.assertEquals(1, hedging.getHedgeWinCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void execute_budget_exhausted() throws Exception {
+        HedgingConfig config = config();
+        config.setBudgetPercent(0);
+        Hedging hedging = new Hedging(config, executor);
+        AtomicInteger attempts = new AtomicInteger();
+        Assertions.assertEquals("slow", hedging.execute("getUser", () -> {
+            attempts.incrementAndGet();
+            sleep(100);
+            return "slow";
+        }));
+        Assertions.assertEquals(1, attempts.get());
+        Assertions.assertEquals(0, hedging.getHedgeCount());
+        Assertions.assertEquals(1, hedging.getBudgetExhaustedCount());
+    }
+
+    @Test
+    void execute_errors() throws Exception {
+        Hedging hedging = new Hedging(config(), executor);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch hedged = new CountDownLatch(1);
+        CountDownLatch failed = new CountDownLatch(1);
+        // the slow request fails once the hedge is sent, the hedge still answers
+        Assertions.assertEquals("hedge", hedging.execute("getUser", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                await(hedged);
+                failed.countDown();
+                throw new ApiException("Get failed", null);
+            }
+            hedged.countDown();
+            await(failed);
+            return "hedge";
+        }));
+        // both fail
+        ApiException e = Assertions.assertThrows(ApiException.class, () -> hedging.execute("getSettings", () -> {
+            sleep(100);
+            throw new ApiException("Get failed", null);
+        }));
+        Assertions.assertEquals("Get failed", e.getMessage());
+    }
+
+    @Test
+    void delay_adaptive() throws Exception {
+        HedgingConfig config = config();
+        config.setMinDelay(1);
+        // the calls advance the clock the latencies are measured with
+        AtomicLong ticks = new AtomicLong();
+        Hedging hedging = new Hedging(config, executor, ticks::get);
+        Assertions.assertEquals(50, hedging.getDelayMillis("getUser"));
+        for (int i = 0; i < config.getMinSamples(); i++) {
+            hedging.execute("getUser", () -> {
+                ticks.addAndGet(TimeUnit.MILLISECONDS.toNanos(3));
+                return "ok";
+            });
+        }
+        Assertions.assertEquals(3, hedging.getDelayMillis("getUser"));
+        Assertions.assertEquals(50, hedging.getDelayMillis("getSettings"));
+    }
+
+    @Test
+    void delay_counts_failures() {
+        HedgingConfig config = config();
+        AtomicLong ticks = new AtomicLong();
+        Hedging hedging = new Hedging(config, executor, ticks::get);
+        for (int i = 0; i < config.getMinSamples(); i++) {
+            Assertions.assertThrows(ApiException.class, () -> hedging.execute("getUser", () -> {
+                ticks.addAndGet(TimeUnit.MILLISECONDS.toNanos(30));
+                throw new ApiException("Get failed", null);
+            }));
+        }
+        Assertions.assertEquals(30, hedging.getDelayMillis("getUser"));
+        Assertions.assertEquals(0, hedging.getHedgeCount());
+    }
+
+    @Test
+    void getUser_slow_replica() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch arrived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        byte[] body = "{\"email\":\"user@example.com\"}".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        // the first request hits a slow replica, which answers once the test is done
+        server.createContext("/user", exchange -> {
+            if (requests.incrementAndGet() == 1) {
+                arrived.countDown();
+                await(release);
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // the hedge only starts once the first request reached the stub
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService ordered = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>()) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                if (tasks.incrementAndGet() == 2) {
+                    await(arrived);
+                }
+            }
+        };
+        server.start();
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueApi api = new GoTrueApi("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+            api.setHedging(new Hedging(config(), ordered));
+            Assertions.assertEquals("user@example.com", api.getUser("jwt").getEmail());
+            Assertions.assertEquals(1, api.getHedging().getHedgeCount());
+            Assertions.assertEquals(1, api.getHedging().getHedgeWinCount());
+        } finally {
+            release.countDown();
+            ordered.shutdownNow();
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdownNow();
+        }
+    }
+
+    @Test
+    void getUser_cancelled_primary_not_charged() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch arrived = new CountDownLatch(1);
+        CountDownLatch never = new CountDownLatch(1);
+        byte[] body = "{\"email\":\"user@example.com\"}".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/user", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService ordered = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>()) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                if (tasks.incrementAndGet() == 2) {
+                    await(arrived);
+                }
+            }
+        };
+        server.start();
+        List<ErrorKind> recorded = new CopyOnWriteArrayList<>();
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            // the primary waits for a response which never comes and is aborted by the interrupt of the hedge,
+            // as a request of the Java 21 transport is
+            transport.getRestTemplate().setInterceptors(Collections.singletonList((request, requestBody, execution) -> {
+                if (requests.incrementAndGet() == 1) {
+                    arrived.countDown();
+                    try {
+                        never.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for the response");
+                    }
+                }
+                return execution.execute(request, requestBody);
+            }));
+            int port = server.getAddress().getPort();
+            GoTrueApi api = new GoTrueApi("http://localhost:" + port + ",http://127.0.0.1:" + port, new HashMap<>(), transport);
+            api.setHedging(new Hedging(config(), ordered));
+            api.setMetricsListener((operation, endpoint, nanos, status, requestBytes, responseBytes, kind) -> recorded.add(kind));
+            Assertions.assertEquals("user@example.com", api.getUser("jwt").getEmail());
+            Assertions.assertEquals(1, api.getHedging().getHedgeWinCount());
+            // the cancelled primary is done once its task is
+            ordered.shutdown();
+            Assertions.assertTrue(ordered.awaitTermination(5, TimeUnit.SECONDS));
+
+            LoadBalancer balancer = api.getLoadBalancer();
+            Assertions.assertEquals(2, requests.get());
+            Assertions.assertEquals(0, balancer.getFailoverCount());
+            long sent = 0;
+            for (LoadBalancer.Endpoint endpoint : balancer.getEndpoints()) {
+                Assertions.assertEquals(0, endpoint.getFailureCount(), endpoint.getUrl());
+                Assertions.assertTrue(endpoint.isHealthy());
+                sent += endpoint.getRequestCount();
+            }
+            // only the hedge got a response
+            Assertions.assertEquals(1, sent);
+            Assertions.assertEquals(Collections.singletonList(ErrorKind.NONE), recorded);
+        } finally {
+            ordered.shutdownNow();
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package io.supabase;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.jwt.Hs256TokenDecoder;
+import io.supabase.jwt.JwtVerifier;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class Hs256TokenDecoderTest {
+    private static final String secret = "superSecretJwtToken";
+    private static final String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\"}";
+    private static final long future = System.currentTimeMillis() / 1000 + 3600;
+    private static final String payload = "{\"exp\":" + future + ",\"sub\":\"a942b3d1-3a52-4457-8c4f-88d07c2dbe30\","
+            + "\"email\":\"email@example.com\",\"app_metadata\":{\"provider\":\"email\"},"
+            + "\"user_metadata\":{\"name\":\"UserName\",\"age\":33},\"role\":\"authenticated\"}";
+
+    private static String encode(String s) {
+        return encode(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String encode(byte[] b) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+    }
+
+    private static String sign(String unsigned, String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return unsigned + "." + encode(mac.doFinal(unsigned.getBytes(StandardCharsets.US_ASCII)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String token(String header, String payload) {
+        return sign(encode(header) + "." + encode(payload), secret);
+    }
+
+    /**
+     * Tokens the decoder has to decode itself.
+     */
+    private static List<String> fastPathCorpus() {
+        List<String> tokens = new ArrayList<>();
+        tokens.add(token(header, payload));
+        tokens.add(token("{\"alg\":\"HS256\"}", "{\"sub\":\"no-exp\"}"));
+        tokens.add(token(header, "{\"exp\":null,\"sub\":\"null-exp\",\"user_metadata\":null}"));
+        tokens.add(token("{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"1\"}", payload));
+        tokens.add(token(header, "{\"exp\":" + future + ",\"aud\":\"authenticated\",\"amr\":[{\"method\":\"password\"}],"
+                + "\"app_metadata\":{\"providers\":[\"email\"],\"nested\":{\"a\":1.5,\"b\":true}}}"));
+        tokens.add(token(header, "{\"email\":\"émäil@example.com\",\"role\":\"\"}"));
+        tokens.add(token(header, "{\"sub\":\"first\",\"sub\":\"second\",\"exp\":1,\"exp\":" + future + "}"));
+        tokens.add(token(header, "{ \"sub\" : \"whitespace\" ,\n\"exp\" : " + future + " }"));
+        tokens.add(token(header, "{\"sub\":\"trailing\"} {}"));
+        tokens.add(token(header, "{\"app_metadata\":{\"a\":\"b\"},\"app_metadata\":null,"
+                + "\"user_metadata\":null,\"user_metadata\":{\"c\":\"d\"}}"));
+        tokens.add(Jwts.builder()
+                .setSubject("jjwt")
+                .setExpiration(JwtVerifierTest.inOneHour())
+                .signWith(SignatureAlgorithm.HS256, secret.getBytes(StandardCharsets.UTF_8))
+                .compact());
+        return tokens;
+    }
+
+    /**
+     * Tokens the decoder does not accept: unusual valid ones it leaves to jjwt, tampered, expired and malformed ones.
+     */
+    private static List<String> fallbackCorpus() {
+        String valid = token(header, payload);
+        String[] parts = valid.split("\\.");
+        List<String> tokens = new ArrayList<>();
+        // valid, but unusual
+        tokens.add(token(header, "{\"sub\":123}"));
+        tokens.add(token(header, "{\"exp\":\"" + future + "\"}"));
+        tokens.add(token(header, "{\"exp\":" + future + ".5}"));
+        tokens.add(token("{\"alg\":\"hs256\"}", payload));
+        tokens.add(token("{\"alg\":\"HS256\",\"cty\":\"JWT\"}", payload));
+        tokens.add(Jwts.builder()
+                .setSubject("HS512")
+                .signWith(SignatureAlgorithm.HS512, secret.getBytes(StandardCharsets.UTF_8))
+                .compact());
+        tokens.add(" " + valid);
+        tokens.add(valid.substring(0, valid.length() - 1) + "=");
+        // tampered
+        tokens.add(parts[0] + "." + encode(payload.replace("authenticated", "service_role")) + "." + parts[2]);
+        tokens.add(valid.substring(0, valid.length() - 2) + (valid.endsWith("AA") ? "BB" : "AA"));
+        tokens.add(sign(parts[0] + "." + parts[1], "anotherSecret"));
+        tokens.add(encode("{\"alg\":\"none\"}") + "." + parts[1] + "." + parts[2]);
+        tokens.add(encode("{\"alg\":\"none\"}") + "." + parts[1] + ".");
+        tokens.add(parts[0] + "." + parts[1] + "." + parts[2].substring(0, 20));
+        tokens.add(parts[0] + "." + parts[1] + "." + parts[2] + parts[2]);
+        // expired
+        tokens.add(token(header, "{\"exp\":1509202883,\"sub\":\"expired\"}"));
+        tokens.add(token(header, "{\"exp\":-1}"));
+        tokens.add(token(header, "{\"exp\":" + Long.MAX_VALUE + "}"));
+        tokens.add(token(header, "{\"exp\":9223372036854775808}"));
+        tokens.add(token(header, "{\"nbf\":" + future + "}"));
+        // malformed
+        tokens.add("abc");
+        tokens.add("a.b");
+        tokens.add("a.b.c.d");
+        tokens.add("..");
+        tokens.add(token("not json", payload));
+        tokens.add(token("{\"alg\":\"HS256\"", payload));
+        tokens.add(token(header, "[1]"));
+        tokens.add(token(header, "{\"sub\":\"a\""));
+        tokens.add(token(header, "{\"sub\":\"a\"}x"));
+        tokens.add(token(header, "{\"email\":1}"));
+        tokens.add(token(header, "{\"app_metadata\":\"email\"}"));
+        tokens.add(token("{\"alg\":\"HS256\",\"zip\":\"DEF\"}", payload));
+        tokens.add(sign(encode(header.getBytes(StandardCharsets.UTF_16LE)) + "." + parts[1], secret));
+        tokens.add(sign(parts[0] + "." + parts[1].substring(0, 5) + "*" + parts[1].substring(6), secret));
+        tokens.add(sign(parts[0] + "." + parts[1] + "a", secret));
+        return tokens;
+    }
+
+    /**
+     * What ClientUtils.parseJwt did before the decoder existed.
+     */
+    @SuppressWarnings("unchecked")
+    private static ParsedToken reference(String jwt) {
+        Key hmacKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        Jws<Claims> claims = Jwts.parser().setSigningKey(hmacKey).parseClaimsJws(jwt);
+        Map<String, String> appData = (Map<String, String>) claims.getBody().get("app_metadata");
+        Map<String, String> userData = (Map<String, String>) claims.getBody().get("user_metadata");
+        return new ParsedToken(claims.getBody().getExpiration(), claims.getBody().getSubject(),
+                (String) claims.getBody().get("email"), appData != null ? appData : new HashMap<>(),
+                userData != null ? userData : new HashMap<>(), (String) claims.getBody().get("role"));
+    }
+
+    /**
+     * Whether a token is in the compact serialization of RFC 7515, the verifier rejects all others.
+     */
+    private static boolean isCompact(String jwt) {
+        if (!jwt.matches("[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]*")) {
+            return false;
+        }
+        for (String part : jwt.split("\\.")) {
+            if (part.length() % 4 == 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void assertSameToken(ParsedToken expected, ParsedToken actual, String jwt) {
+        Assertions.assertEquals(expected.getExp(), actual.getExp(), jwt);
+        Assertions.assertEquals(expected.getSub(), actual.getSub(), jwt);
+        Assertions.assertEquals(expected.getEmail(), actual.getEmail(), jwt);
+        Assertions.assertEquals(expected.getRole(), actual.getRole(), jwt);
+        Assertions.assertEquals(expected.getAppMetadata(), actual.getAppMetadata(), jwt);
+        Assertions.assertEquals(expected.getUserMetadata(), actual.getUserMetadata(), jwt);
+    }
+
+    private static void assertSameBehaviour(JwtVerifier verifier, String jwt) {
+        ParsedToken expected = null;
+        RuntimeException expectedError = null;
+        try {
+            expected = reference(jwt);
+        } catch (RuntimeException e) {
+            expectedError = e;
+        }
+        ParsedToken actual = null;
+        RuntimeException actualError = null;
+        try {
+            actual = verifier.parse(jwt);
+        } catch (RuntimeException e) {
+            actualError = e;
+        }
+        Assertions.assertEquals(actualError == null, verifier.tryParse(jwt).isValid(), jwt);
+        if (!jwt.isEmpty() && !isCompact(jwt)) {
+            Assertions.assertTrue(actualError instanceof MalformedJwtException, jwt);
+        } else if (expectedError != null) {
+            Assertions.assertNotNull(actualError, jwt);
+            Assertions.assertEquals(expectedError.getClass(), actualError.getClass(), jwt);
+        } else {
+            Assertions.assertNull(actualError, jwt);
+            assertSameToken(expected, actual, jwt);
+        }
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Hs256TokenDecoder(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Hs256TokenDecoder(""));
+    }
+
+    @Test
+    void decode_fast_path() {
+        Hs256TokenDecoder decoder = new Hs256TokenDecoder(secret);
+        for (String jwt : fastPathCorpus()) {
+            ParsedToken parsed = decoder.decode(jwt);
+            Assertions.assertNotNull(parsed, jwt);
+            assertSameToken(reference(jwt), parsed, jwt);
+        }
+    }
+
+    @Test
+    void decode_not_accepted() {
+        Hs256TokenDecoder decoder = new Hs256TokenDecoder(secret);
+        for (String jwt : fallbackCorpus()) {
+            Assertions.assertNull(decoder.decode(jwt), jwt);
+        }
+    }
+
+    @Test
+    void verifier_matches_jjwt() {
+        JwtVerifier verifier = new JwtVerifier(secret);
+        for (String jwt : fastPathCorpus()) {
+            assertSameBehaviour(verifier, jwt);
+        }
+        for (String jwt : fallbackCorpus()) {
+            assertSameBehaviour(verifier, jwt);
+        }
+        assertSameBehaviour(verifier, "");
+    }
+
+    @Test
+    void decode_metadata_on_access() {
+        Hs256TokenDecoder decoder = new Hs256TokenDecoder(secret);
+        ParsedToken parsed = decoder.decode(token(header, payload));
+        Map<String, String> userMetadata = parsed.getUserMetadata();
+        Assertions.assertEquals("UserName", userMetadata.get("name"));
+        Assertions.assertSame(userMetadata, parsed.getUserMetadata());
+        Assertions.assertEquals("email", parsed.getAppMetadata().get("provider"));
+
+        ParsedToken withoutMetadata = decoder.decode(token(header, "{\"sub\":\"no-metadata\"}"));
+        Assertions.assertTrue(withoutMetadata.getAppMetadata().isEmpty());
+        Assertions.assertTrue(withoutMetadata.getUserMetadata().isEmpty());
+
+        // the token may be cached and shared
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> userMetadata.put("name", "Other"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> withoutMetadata.getAppMetadata().put("a", "b"));
+        parsed.getExp().setTime(0);
+        Assertions.assertNotEquals(0, parsed.getExp().getTime());
+    }
+
+    @Test
+    void decode_long_token() {
+        Hs256TokenDecoder decoder = new Hs256TokenDecoder(secret);
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            data.append(",\"key").append(i).append("\":\"value").append(i).append('"');
+        }
+        String jwt = token(header, "{\"user_metadata\":{\"a\":\"b\"" + data + "}}");
+        ParsedToken parsed = decoder.decode(jwt);
+        Assertions.assertNotNull(parsed);
+        Assertions.assertEquals(1001, parsed.getUserMetadata().size());
+        // buffers grown for the long token still work for short ones
+        Assertions.assertNotNull(decoder.decode(token(header, payload)));
+    }
+}
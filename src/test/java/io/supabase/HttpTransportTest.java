@@ -0,0 +1,185 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.CircularDependentA;
+import io.supabase.data.CircularDependentB;
+import io.supabase.data.dto.CredentialsDto;
+import io.supabase.exceptions.ApiException;
+import io.supabase.utils.ExecutionMode;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import io.supabase.utils.RestUtils;
+import org.apache.http.pool.PoolStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+class HttpTransportTest {
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/settings", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "{\"disable_signup\":false}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/echo", exchange -> {
+            byte[] body = new byte[0];
+            if ("application/json".equals(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+                body = readAll(exchange.getRequestBody());
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HttpTransport((HttpTransportConfig) null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HttpTransport((RestTemplate) null));
+        HttpTransportConfig config = new HttpTransportConfig();
+        config.setMaxConnectionsPerRoute(0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HttpTransport(config));
+    }
+
+    @Test
+    void keep_alive() throws Exception {
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            for (int i = 0; i < 5; i++) {
+                Map<?, ?> settings = RestUtils.get(transport, Map.class, null, url + "/settings");
+                Assertions.assertEquals(false, settings.get("disable_signup"));
+            }
+            // all requests were sent over the same connection, which went back to the pool
+            Assertions.assertEquals(1, clientPorts.size());
+            PoolStats stats = transport.getPoolStats();
+            Assertions.assertEquals(0, stats.getLeased());
+            Assertions.assertEquals(1, stats.getAvailable());
+            Assertions.assertEquals(0, stats.getPending());
+            Assertions.assertEquals(50, stats.getMax());
+        }
+    }
+
+    @Test
+    void read_timeout() throws Exception {
+        HttpTransportConfig config = new HttpTransportConfig();
+        config.setReadTimeout(100);
+        try (HttpTransport transport = new HttpTransport(config)) {
+            Assertions.assertThrows(ApiException.class, () -> RestUtils.get(transport, Map.class, null, url + "/slow"));
+        }
+    }
+
+    @Test
+    void connection_held_until_closed() throws Exception {
+        HttpTransportConfig config = new HttpTransportConfig();
+        config.setMaxConnections(1);
+        config.setMaxConnectionsPerRoute(1);
+        config.setConnectionRequestTimeout(200);
+        try (HttpTransport transport = ExecutionMode.newTransport(config)) {
+            ClientHttpResponse response = transport.getRestTemplate().getRequestFactory()
+                    .createRequest(URI.create(url + "/settings"), HttpMethod.GET).execute();
+            // the unread body still holds the only connection
+            Assertions.assertThrows(ApiException.class, () -> RestUtils.get(transport, Map.class, null, url + "/settings"));
+            response.close();
+            Assertions.assertNotNull(RestUtils.get(transport, Map.class, null, url + "/settings"));
+            Assertions.assertNotNull(RestUtils.get(transport, Map.class, null, url + "/settings"));
+        }
+    }
+
+    @Test
+    void custom_template() throws Exception {
+        HttpTransport transport = new HttpTransport(new RestTemplate());
+        Assertions.assertNull(transport.getPoolStats());
+        Assertions.assertNotNull(RestUtils.get(transport, Map.class, null, url + "/settings"));
+        transport.close();
+    }
+
+    @Test
+    void default_transport() {
+        Assertions.assertSame(RestUtils.getDefaultTransport(), RestUtils.getDefaultTransport());
+        Assertions.assertNotNull(RestUtils.getDefaultTransport().getPoolStats());
+    }
+
+    @Test
+    void submit() throws Exception {
+        try (HttpTransport transport = ExecutionMode.newTransport(new HttpTransportConfig())) {
+            GoTrueClient client = new GoTrueClient(url, new HashMap<>(), transport);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> client.submit(null));
+            Assertions.assertFalse(client.submit(GoTrueClient::settings).get().getDisableSignup());
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                    () -> client.submit(c -> c.getUser("jwt")).get());
+            Assertions.assertTrue(e.getCause() instanceof ApiException);
+        }
+    }
+
+    @Test
+    void json_body() throws Exception {
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            CredentialsDto credentials = new CredentialsDto();
+            credentials.setEmail("email@example.com");
+            credentials.setPassword("secret");
+            CredentialsDto echoed = RestUtils.post(transport, credentials, CredentialsDto.class, null, url + "/echo");
+            Assertions.assertEquals("email@example.com", echoed.getEmail());
+            Assertions.assertEquals("secret", echoed.getPassword());
+
+            CircularDependentA a = new CircularDependentA();
+            CircularDependentB b = new CircularDependentB();
+            a.setB(b);
+            b.setA(a);
+            ApiException e = Assertions.assertThrows(ApiException.class, () -> RestUtils.post(transport, a, CircularDependentA.class, null, url + "/echo"));
+            Assertions.assertEquals("Object mapping failed", e.getMessage());
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int n; (n = in.read(buffer)) > 0; ) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,210 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.supabase.jwt.JwksFetcher;
+import io.supabase.jwt.JwksKeyProvider;
+import io.supabase.jwt.JwtKeyring;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.RejectionReason;
+import io.supabase.jwt.VerifiedTokenCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class JwksKeyProviderTest {
+    private static final KeyPair rsa = generate("RSA");
+    private static final KeyPair ec = generate("EC");
+    private static final KeyPair otherRsa = generate("RSA");
+
+    private static KeyPair generate(String algorithm) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+            if ("EC".equals(algorithm)) {
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+            } else {
+                generator.initialize(2048);
+            }
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(BigInteger n, int length) {
+        byte[] b = n.toByteArray();
+        if (b.length > length) {
+            b = Arrays.copyOfRange(b, b.length - length, b.length);
+        } else if (b.length < length) {
+            byte[] padded = new byte[length];
+            System.arraycopy(b, 0, padded, length - b.length, b.length);
+            b = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+    }
+
+    private static String rsaJwk(String kid, KeyPair pair) {
+        RSAPublicKey key = (RSAPublicKey) pair.getPublic();
+        return "{\"kty\":\"RSA\",\"kid\":\"" + kid + "\",\"use\":\"sig\",\"alg\":\"RS256\","
+                + "\"n\":\"" + encode(key.getModulus(), 256) + "\",\"e\":\"" + encode(key.getPublicExponent(), 3) + "\"}";
+    }
+
+    private static String ecJwk(String kid, KeyPair pair) {
+        ECPublicKey key = (ECPublicKey) pair.getPublic();
+        return "{\"kty\":\"EC\",\"kid\":\"" + kid + "\",\"crv\":\"P-256\","
+                + "\"x\":\"" + encode(key.getW().getAffineX(), 32) + "\",\"y\":\"" + encode(key.getW().getAffineY(), 32) + "\"}";
+    }
+
+    private static String jwks(String... keys) {
+        return "{\"keys\":[" + String.join(",", keys) + "]}";
+    }
+
+    private static String token(SignatureAlgorithm alg, String kid, PrivateKey key) {
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(JwtVerifierTest.inOneHour())
+                .claim("role", "authenticated")
+                .signWith(alg, key)
+                .compact();
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwksKeyProvider(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> JwksFetcher.fromUrl("not an url"));
+    }
+
+    @Test
+    void verify_rs256_es256() {
+        String document = jwks(rsaJwk("rsa", rsa), ecJwk("ec", ec), "{\"kty\":\"oct\",\"k\":\"c2VjcmV0\"}");
+        try (JwksKeyProvider jwks = new JwksKeyProvider(() -> document, null, Duration.ofHours(1))) {
+            Assertions.assertEquals(2, jwks.getKeyIds().size());
+            JwtVerifier verifier = new JwtVerifier(new JwtKeyring("superSecretJwtToken"), jwks, null);
+
+            Assertions.assertEquals("authenticated",
+                    verifier.parse(token(SignatureAlgorithm.RS256, "rsa", rsa.getPrivate())).getRole());
+            Assertions.assertTrue(verifier.isValid(token(SignatureAlgorithm.ES256, "ec", ec.getPrivate())));
+            Assertions.assertTrue(verifier.isValid(JwtVerifierTest.token("superSecretJwtToken", JwtVerifierTest.inOneHour())));
+
+            Assertions.assertEquals(RejectionReason.INVALID_SIGNATURE,
+                    verifier.tryParse(token(SignatureAlgorithm.RS256, "rsa", otherRsa.getPrivate())).getRejectionReason());
+            // the algorithm has to match the key
+            Assertions.assertFalse(verifier.isValid(token(SignatureAlgorithm.ES256, "rsa", ec.getPrivate())));
+            Assertions.assertFalse(verifier.isValid(token(SignatureAlgorithm.RS384, "rsa", rsa.getPrivate())));
+        }
+    }
+
+    @Test
+    void unknown_kid_refresh_rate_limited() {
+        AtomicReference<String> document = new AtomicReference<>(jwks(rsaJwk("old", otherRsa)));
+        AtomicInteger fetches = new AtomicInteger();
+        JwksFetcher fetcher = () -> {
+            fetches.incrementAndGet();
+            return document.get();
+        };
+        try (JwksKeyProvider jwks = new JwksKeyProvider(fetcher, null, Duration.ofMillis(200))) {
+            JwtVerifier verifier = new JwtVerifier(new JwtKeyring(), jwks, new VerifiedTokenCache(16));
+            Assertions.assertEquals(1, fetches.get());
+            String rotated = token(SignatureAlgorithm.RS256, "new", rsa.getPrivate());
+            // right after the first load the unknown kid does not cause another fetch
+            Assertions.assertFalse(verifier.isValid(rotated));
+            Assertions.assertEquals(1, fetches.get());
+
+            document.set(jwks(rsaJwk("new", rsa)));
+            sleep(250);
+            Assertions.assertTrue(verifier.isValid(rotated));
+            Assertions.assertEquals(2, fetches.get());
+
+            String unknown = token(SignatureAlgorithm.RS256, "unknown", rsa.getPrivate());
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertFalse(verifier.isValid(unknown));
+            }
+            Assertions.assertEquals(2, fetches.get());
+            Assertions.assertNull(jwks.getKey("old"));
+        }
+    }
+
+    @Test
+    void failed_refresh_keeps_keys() {
+        AtomicInteger fetches = new AtomicInteger();
+        JwksFetcher fetcher = () -> {
+            if (fetches.incrementAndGet() > 1) {
+                throw new IOException("unavailable");
+            }
+            return jwks(rsaJwk("rsa", rsa));
+        };
+        try (JwksKeyProvider jwks = new JwksKeyProvider(fetcher, Duration.ofMillis(20), Duration.ZERO)) {
+            sleep(200);
+            Assertions.assertTrue(fetches.get() > 1);
+            Assertions.assertTrue(jwks.getFailedRefreshCount() > 0);
+            Assertions.assertEquals(1, jwks.getRefreshCount());
+            Assertions.assertNotNull(jwks.getKey("rsa"));
+            Assertions.assertThrows(IOException.class, jwks::refresh);
+        }
+    }
+
+    @Test
+    void fromUrl() throws IOException {
+        byte[] body = jwks(rsaJwk("rsa", rsa)).getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/.well-known/jwks.json", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/.well-known/jwks.json";
+            try (JwksKeyProvider jwks = new JwksKeyProvider(JwksFetcher.fromUrl(url), null, Duration.ZERO)) {
+                Assertions.assertNotNull(jwks.getKey("rsa"));
+            }
+            Assertions.assertThrows(IOException.class,
+                    () -> JwksFetcher.fromUrl("http://localhost:" + server.getAddress().getPort() + "/missing").fetch());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void fromFile() throws IOException {
+        Path file = Files.createTempFile("jwks", ".json");
+        try {
+            Files.write(file, jwks(ecJwk("ec", ec)).getBytes(StandardCharsets.UTF_8));
+            try (JwksKeyProvider jwks = new JwksKeyProvider(JwksFetcher.fromFile(file), null, Duration.ZERO)) {
+                JwtVerifier verifier = new JwtVerifier(new JwtKeyring(), jwks, null);
+                Assertions.assertTrue(verifier.isValid(token(SignatureAlgorithm.ES256, "ec", ec.getPrivate())));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
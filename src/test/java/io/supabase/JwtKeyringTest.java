@@ -0,0 +1,111 @@
+package io.supabase;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.supabase.jwt.JwtKeyring;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.RejectionReason;
+import io.supabase.jwt.VerifiedTokenCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+class JwtKeyringTest {
+    private static final String oldSecret = "superSecretJwtToken";
+    private static final String newSecret = "anotherSuperSecretJwtToken";
+
+    private static String token(String kid, String secret) {
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(JwtVerifierTest.inOneHour())
+                .signWith(SignatureAlgorithm.HS256, secret.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtKeyring(oldSecret, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtKeyring(""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtKeyring().add("1", null));
+    }
+
+    @Test
+    void secrets_in_order() {
+        JwtVerifier verifier = new JwtVerifier(new JwtKeyring(newSecret, oldSecret));
+        Assertions.assertTrue(verifier.isValid(JwtVerifierTest.token(oldSecret, JwtVerifierTest.inOneHour())));
+        Assertions.assertTrue(verifier.isValid(JwtVerifierTest.token(newSecret, JwtVerifierTest.inOneHour())));
+        Assertions.assertEquals("a942b3d1-3a52-4457-8c4f-88d07c2dbe30",
+                verifier.parse(JwtVerifierTest.token(oldSecret, JwtVerifierTest.inOneHour())).getSub());
+        Assertions.assertFalse(verifier.isValid(JwtVerifierTest.token("unknownSecret", JwtVerifierTest.inOneHour())));
+    }
+
+    @Test
+    void kid_lookup() {
+        JwtKeyring keyring = new JwtKeyring();
+        keyring.add("old", oldSecret);
+        keyring.add("new", newSecret);
+        JwtVerifier verifier = new JwtVerifier(keyring);
+        Assertions.assertTrue(verifier.isValid(token("old", oldSecret)));
+        Assertions.assertTrue(verifier.isValid(token("new", newSecret)));
+        // a kid selects exactly one key
+        Assertions.assertEquals(RejectionReason.INVALID_SIGNATURE,
+                verifier.tryParse(token("new", oldSecret)).getRejectionReason());
+        Assertions.assertThrows(SignatureException.class, () -> verifier.parse(token("new", oldSecret)));
+        // an unknown kid is only checked against keys without id, there are none
+        Assertions.assertFalse(verifier.isValid(token("other", oldSecret)));
+        // tokens without kid try all keys
+        Assertions.assertTrue(verifier.isValid(JwtVerifierTest.token(oldSecret, JwtVerifierTest.inOneHour())));
+    }
+
+    @Test
+    void unknown_kid_falls_back_to_keys_without_id() {
+        JwtKeyring keyring = new JwtKeyring(oldSecret);
+        keyring.add("new", newSecret);
+        JwtVerifier verifier = new JwtVerifier(keyring);
+        Assertions.assertTrue(verifier.isValid(token("1", oldSecret)));
+        Assertions.assertFalse(verifier.isValid(token("1", newSecret)));
+    }
+
+    @Test
+    void rotation() {
+        JwtKeyring keyring = new JwtKeyring(oldSecret);
+        JwtVerifier verifier = new JwtVerifier(keyring, new VerifiedTokenCache(16));
+        String oldToken = JwtVerifierTest.token(oldSecret, JwtVerifierTest.inOneHour());
+        String newToken = JwtVerifierTest.token(newSecret, JwtVerifierTest.inOneHour());
+        Assertions.assertTrue(verifier.isValid(oldToken));
+        Assertions.assertFalse(verifier.isValid(newToken));
+
+        keyring.add(null, newSecret);
+        Assertions.assertEquals(2, keyring.size());
+        Assertions.assertTrue(verifier.isValid(oldToken));
+        Assertions.assertTrue(verifier.isValid(newToken));
+
+        Assertions.assertTrue(keyring.removeSecret(oldSecret));
+        Assertions.assertFalse(keyring.removeSecret(oldSecret));
+        // the cached old token is dropped with its secret
+        Assertions.assertFalse(verifier.isValid(oldToken));
+        Assertions.assertTrue(verifier.isValid(newToken));
+
+        keyring.setSecrets(oldSecret);
+        Assertions.assertTrue(verifier.isValid(oldToken));
+        Assertions.assertFalse(verifier.isValid(newToken));
+    }
+
+    @Test
+    void remove() {
+        JwtKeyring keyring = new JwtKeyring();
+        keyring.add("1", oldSecret);
+        keyring.add("1", newSecret);
+        Assertions.assertEquals(1, keyring.size());
+        JwtVerifier verifier = new JwtVerifier(keyring);
+        Assertions.assertTrue(verifier.isValid(token("1", newSecret)));
+        Assertions.assertTrue(keyring.remove("1"));
+        Assertions.assertFalse(keyring.remove("1"));
+        Assertions.assertEquals(0, keyring.size());
+        Assertions.assertFalse(verifier.isValid(token("1", newSecret)));
+        Assertions.assertThrows(SignatureException.class, () -> verifier.parse(token("1", newSecret)));
+    }
+}
@@ -0,0 +1,181 @@
+package io.supabase;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.jwt.JwtKeyring;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.RejectionReason;
+import io.supabase.jwt.VerificationResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class JwtVerifierTest {
+    private static final String secret = "superSecretJwtToken";
+
+    static String token(String secret, Date exp) {
+        return Jwts.builder()
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(exp)
+                .claim("email", "email@example.com")
+                .claim("role", "authenticated")
+                .signWith(SignatureAlgorithm.HS256, secret.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+
+    static Date inOneHour() {
+        return new Date(System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtVerifier((String) null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtVerifier((JwtKeyring) null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtVerifier(""));
+    }
+
+    @Test
+    void parse() {
+        JwtVerifier verifier = new JwtVerifier(secret);
+        ParsedToken t = verifier.parse(token(secret, inOneHour()));
+        Assertions.assertEquals("a942b3d1-3a52-4457-8c4f-88d07c2dbe30", t.getSub());
+        Assertions.assertEquals("email@example.com", t.getEmail());
+        Assertions.assertEquals("authenticated", t.getRole());
+        Assertions.assertNotNull(t.getExp());
+        Assertions.assertNotNull(t.getAppMetadata());
+        Assertions.assertNotNull(t.getUserMetadata());
+    }
+
+    @Test
+    void parse_invalid() {
+        JwtVerifier verifier = new JwtVerifier(secret);
+        String jwt = token("anotherSecret", inOneHour());
+        Assertions.assertThrows(SignatureException.class, () -> verifier.parse(jwt));
+        Assertions.assertThrows(MalformedJwtException.class, () -> verifier.parse("invalid.token.here"));
+        Assertions.assertThrows(ExpiredJwtException.class, () -> verifier.parse(token(secret, new Date(1000))));
+        Assertions.assertFalse(verifier.isValid(jwt));
+    }
+
+    @Test
+    void parse_other_algorithm() {
+        JwtVerifier verifier = new JwtVerifier(secret);
+        String jwt = Jwts.builder()
+                .setSubject("sub")
+                .signWith(SignatureAlgorithm.HS512, secret.getBytes(StandardCharsets.UTF_8))
+                .compact();
+        // not HS256 -> handled by jjwt itself
+        Assertions.assertTrue(verifier.isValid(jwt));
+    }
+
+    @Test
+    void parse_concurrent() throws Exception {
+        JwtVerifier verifier = new JwtVerifier(secret);
+        String valid = token(secret, inOneHour());
+        String invalid = token("anotherSecret", inOneHour());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String jwt = i % 2 == 0 ? valid : invalid;
+                results.add(executor.submit(() -> verifier.isValid(jwt)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                Assertions.assertEquals(i % 2 == 0, results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void hasSecret() {
+        JwtVerifier verifier = new JwtVerifier(secret);
+        Assertions.assertTrue(verifier.hasSecret(secret));
+        Assertions.assertFalse(verifier.hasSecret("anotherSecret"));
+    }
+
+    @Test
+    void tryParse() {
+        JwtVerifier verifier = new JwtVerifier(secret);
+        VerificationResult valid = verifier.tryParse(token(secret, inOneHour()));
+        Assertions.assertTrue(valid.isValid());
+        Assertions.assertNull(valid.getRejectionReason());
+        Assertions.assertEquals("email@example.com", valid.getToken().getEmail());
+
+        Assertions.assertEquals(RejectionReason.INVALID_SIGNATURE,
+                verifier.tryParse(token("anotherSecret", inOneHour())).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.EXPIRED,
+                verifier.tryParse(token(secret, new Date(1000))).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.MALFORMED, verifier.tryParse("invalid").getRejectionReason());
+        Assertions.assertEquals(RejectionReason.MALFORMED, verifier.tryParse(null).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.UNSUPPORTED,
+                verifier.tryParse(Jwts.builder().setSubject("sub").compact()).getRejectionReason());
+        Assertions.assertNull(verifier.tryParse("invalid").getToken());
+    }
+
+    @Test
+    void tryParse_early_rejection() {
+        JwtVerifier verifier = new JwtVerifier(secret);
+        String valid = token(secret, inOneHour());
+        String[] parts = valid.split("\\.");
+        StringBuilder tooLong = new StringBuilder(valid);
+        while (tooLong.length() <= 64 * 1024) {
+            tooLong.insert(parts[0].length() + 1, "AAAA");
+        }
+        String none = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+        String rs256 = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertEquals(RejectionReason.MALFORMED, verifier.tryParse(tooLong.toString()).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.MALFORMED, verifier.tryParse(" " + valid).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.MALFORMED, verifier.tryParse(valid + "=").getRejectionReason());
+        Assertions.assertEquals(RejectionReason.MALFORMED, verifier.tryParse("a." + parts[1] + "." + parts[2]).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.MALFORMED, verifier.tryParse("YWJj." + parts[1] + "." + parts[2]).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.UNSUPPORTED, verifier.tryParse(none + "." + parts[1] + "." + parts[2]).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.UNSUPPORTED, verifier.tryParse(rs256 + "." + parts[1] + "." + parts[2]).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.UNSUPPORTED, verifier.tryParse(parts[0] + "." + parts[1] + ".").getRejectionReason());
+        Assertions.assertEquals(RejectionReason.INVALID_SIGNATURE,
+                verifier.tryParse(parts[0] + "." + parts[1] + "." + parts[2].substring(0, 20)).getRejectionReason());
+        // parse agrees with tryParse on odd encodings
+        Assertions.assertThrows(MalformedJwtException.class, () -> verifier.parse(" " + valid));
+        Assertions.assertThrows(MalformedJwtException.class, () -> verifier.parse(valid + "="));
+        Assertions.assertThrows(MalformedJwtException.class, () -> verifier.parse(tooLong.toString()));
+    }
+
+    @Test
+    void parseAll() {
+        JwtVerifier verifier = new JwtVerifier(secret);
+        String valid = token(secret, inOneHour());
+        String invalid = token("anotherSecret", inOneHour());
+        String expired = token(secret, new Date(1000));
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            tokens.add(i % 3 == 0 ? valid : i % 3 == 1 ? invalid : expired);
+        }
+        List<VerificationResult> results = verifier.parseAll(tokens);
+        Assertions.assertEquals(tokens.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            VerificationResult r = results.get(i);
+            if (i % 3 == 0) {
+                Assertions.assertTrue(r.isValid());
+            } else {
+                Assertions.assertEquals(i % 3 == 1 ? RejectionReason.INVALID_SIGNATURE : RejectionReason.EXPIRED,
+                        r.getRejectionReason());
+            }
+        }
+        Assertions.assertTrue(verifier.parseAll(new ArrayList<>()).isEmpty());
+    }
+}
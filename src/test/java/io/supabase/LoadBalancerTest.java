@@ -0,0 +1,248 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.LimitExceededException;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import io.supabase.utils.LoadBalancer;
+import io.supabase.utils.LoadBalancerConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class LoadBalancerTest {
+    private static final LoadBalancer.Probe HEALTHY = url -> {
+    };
+
+    private static ApiException timeout() {
+        return new ApiException("Get failed", new ResourceAccessException("I/O error", new SocketTimeoutException()));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void constructor_invalid() {
+        LoadBalancerConfig config = new LoadBalancerConfig();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LoadBalancer(null, config, HEALTHY));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LoadBalancer(Collections.emptyList(), config, HEALTHY));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LoadBalancer(Arrays.asList("a", ""), config, HEALTHY));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LoadBalancer(Arrays.asList("a", "b"), null, HEALTHY));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LoadBalancer(Arrays.asList("a", "b"), config, null));
+        config.setDecayTime(0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LoadBalancer(Arrays.asList("a", "b"), config, HEALTHY));
+    }
+
+    @Test
+    void execute_prefers_faster() throws Exception {
+        LoadBalancerConfig config = new LoadBalancerConfig();
+        config.setDecayTime(100);
+        LoadBalancer balancer = new LoadBalancer(Arrays.asList("slow", "fast"), config, HEALTHY);
+        for (int i = 0; i < 50; i++) {
+            balancer.execute(true, url -> {
+                sleep("slow".equals(url) ? 20 : 1);
+                return url;
+            });
+        }
+        LoadBalancer.Endpoint slow = balancer.getEndpoints().get(0);
+        LoadBalancer.Endpoint fast = balancer.getEndpoints().get(1);
+        // the slow one is tried again once its latency decayed
+        Assertions.assertTrue(fast.getRequestCount() >= 40);
+        Assertions.assertTrue(slow.getLatencyMillis() > fast.getLatencyMillis());
+        Assertions.assertEquals(0, slow.getInFlight() + fast.getInFlight());
+    }
+
+    @Test
+    void execute_failover() throws Exception {
+        LoadBalancerConfig config = new LoadBalancerConfig();
+        config.setFailureThreshold(100);
+        LoadBalancer balancer = new LoadBalancer(Arrays.asList("down", "up"), config, HEALTHY);
+        LoadBalancer.Request<String> request = url -> {
+            if ("down".equals(url)) {
+                throw timeout();
+            }
+            return url;
+        };
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals("up", balancer.execute(true, request));
+        }
+        Assertions.assertTrue(balancer.getFailoverCount() > 0);
+        // GoTrue may have received the request
+        int failed = 0;
+        for (int i = 0; i < 20; i++) {
+            try {
+                balancer.execute(false, url -> {
+                    sleep(1);
+                    return request.send(url);
+                });
+            } catch (ApiException e) {
+                failed++;
+            }
+        }
+        Assertions.assertTrue(failed > 0);
+        // it never reached GoTrue
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals("up", balancer.execute(false, url -> {
+                if ("down".equals(url)) {
+                    throw new ApiException("Post failed", new ResourceAccessException("I/O error", new ConnectException()));
+                }
+                return url;
+            }));
+        }
+        // GoTrue answered
+        Assertions.assertThrows(ApiException.class, () -> balancer.execute(true, url -> {
+            throw new ApiException("Get failed", null);
+        }));
+    }
+
+    @Test
+    void execute_cancelled() throws Exception {
+        LoadBalancerConfig config = new LoadBalancerConfig();
+        config.setFailureThreshold(2);
+        LoadBalancer balancer = new LoadBalancer(Arrays.asList("a", "b"), config, HEALTHY);
+        Assertions.assertThrows(ApiException.class, () -> balancer.execute(true, url -> {
+            throw timeout();
+        }));
+        LoadBalancer.Endpoint a = balancer.getEndpoints().get(0);
+        LoadBalancer.Endpoint b = balancer.getEndpoints().get(1);
+        Assertions.assertEquals(2, a.getFailureCount() + b.getFailureCount());
+        // rejected before it was sent: no failover, no response and the failures in a row stay
+        Assertions.assertThrows(LimitExceededException.class, () -> balancer.execute(true, url -> {
+            throw new LimitExceededException(1);
+        }));
+        Assertions.assertThrows(ApiException.class, () -> balancer.execute(true, url -> {
+            throw new ApiException("Interrupted waiting for a free slot", new InterruptedException());
+        }));
+        Assertions.assertEquals(2, a.getRequestCount() + b.getRequestCount());
+        Assertions.assertEquals(0, a.getInFlight() + b.getInFlight());
+        Assertions.assertEquals(1, balancer.getFailoverCount());
+        Assertions.assertThrows(ApiException.class, () -> balancer.execute(true, url -> {
+            throw timeout();
+        }));
+        // the second failure in a row ejects both
+        Assertions.assertFalse(a.isHealthy());
+        Assertions.assertFalse(b.isHealthy());
+    }
+
+    @Test
+    void execute_ejects_and_probes() throws Exception {
+        LoadBalancerConfig config = new LoadBalancerConfig();
+        config.setFailureThreshold(2);
+        config.setProbeInterval(20);
+        AtomicBoolean recovered = new AtomicBoolean();
+        LoadBalancer balancer = new LoadBalancer(Arrays.asList("down", "up"), config, url -> {
+            if (!recovered.get()) {
+                throw new IllegalStateException("still down");
+            }
+        });
+        LoadBalancer.Endpoint down = balancer.getEndpoints().get(0);
+        while (down.isHealthy()) {
+            balancer.execute(true, url -> {
+                if ("down".equals(url)) {
+                    throw timeout();
+                }
+                return url;
+            });
+        }
+        Assertions.assertEquals(1, down.getEjectionCount());
+        long sent = down.getRequestCount();
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals("up", balancer.execute(false, url -> url));
+        }
+        Assertions.assertEquals(sent, down.getRequestCount());
+        sleep(100);
+        Assertions.assertFalse(down.isHealthy());
+        recovered.set(true);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!down.isHealthy() && System.nanoTime() < deadline) {
+            sleep(5);
+        }
+        Assertions.assertTrue(down.isHealthy());
+    }
+
+    @Test
+    void close_stops_probes() throws Exception {
+        LoadBalancerConfig config = new LoadBalancerConfig();
+        config.setFailureThreshold(1);
+        config.setProbeInterval(10);
+        AtomicInteger probes = new AtomicInteger();
+        LoadBalancer balancer = new LoadBalancer(Arrays.asList("down", "up"), config, url -> {
+            probes.incrementAndGet();
+            throw new IllegalStateException("still down");
+        });
+        LoadBalancer.Endpoint down = balancer.getEndpoints().get(0);
+        while (down.isHealthy()) {
+            balancer.execute(true, url -> {
+                if ("down".equals(url)) {
+                    throw timeout();
+                }
+                return url;
+            });
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (probes.get() < 2 && System.nanoTime() < deadline) {
+            sleep(5);
+        }
+        Assertions.assertTrue(probes.get() >= 2);
+        balancer.close();
+        // a probe running while closing may still finish
+        sleep(50);
+        int probed = probes.get();
+        sleep(100);
+        Assertions.assertEquals(probed, probes.get());
+        Assertions.assertEquals("up", balancer.execute(false, url -> url));
+    }
+
+    @Test
+    void api_fails_over() throws Exception {
+        byte[] user = "{\"email\":\"user@example.com\"}".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, user.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(user);
+            }
+        });
+        int closedPort;
+        try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = closed.getLocalPort();
+        }
+        server.start();
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueApi api = new GoTrueApi("http://localhost:" + closedPort + ", http://localhost:"
+                    + server.getAddress().getPort(), new HashMap<>(), transport);
+            for (int i = 0; i < 5; i++) {
+                Assertions.assertEquals("user@example.com", api.getUser("jwt" + i).getEmail());
+                // could not connect, so it is failed over as well
+                api.signInWithEmail("user@example.com", "secret");
+            }
+            LoadBalancer.Endpoint down = api.getLoadBalancer().getEndpoints().get(0);
+            Assertions.assertEquals("http://localhost:" + closedPort, down.getUrl());
+            Assertions.assertFalse(down.isHealthy());
+            Assertions.assertEquals(10, api.getLoadBalancer().getEndpoints().get(1).getRequestCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
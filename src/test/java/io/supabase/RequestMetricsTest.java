@@ -0,0 +1,151 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.ApiException;
+import io.supabase.metrics.ErrorKind;
+import io.supabase.metrics.HistogramSnapshot;
+import io.supabase.metrics.LatencyHistogram;
+import io.supabase.metrics.OperationSnapshot;
+import io.supabase.metrics.RequestMetrics;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+class RequestMetricsTest {
+
+    @Test
+    void histogram_percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordMicros(i * 1000L);
+        }
+        HistogramSnapshot snapshot = histogram.getSnapshot();
+        Assertions.assertEquals(1000, snapshot.getCount());
+        Assertions.assertEquals(500_500, snapshot.getMeanMicros(), 0.001);
+        Assertions.assertEquals(1_000_000, snapshot.getMaxMicros());
+        // within 1/16 of the true value
+        Assertions.assertEquals(500_000, snapshot.getPercentileMicros(50), 500_000 / 16.0);
+        Assertions.assertEquals(990_000, snapshot.getPercentileMicros(99), 990_000 / 16.0);
+        Assertions.assertEquals(1_000_000, snapshot.getPercentileMicros(100));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentileMicros(101));
+    }
+
+    @Test
+    void histogram_buckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(-1);
+        histogram.recordMicros(7);
+        histogram.recordMicros(Long.MAX_VALUE);
+        HistogramSnapshot snapshot = histogram.getSnapshot();
+        Assertions.assertEquals(3, snapshot.getCount());
+        Assertions.assertEquals(7, snapshot.getPercentileMicros(50));
+        long total = 0;
+        for (int i = 0; i < snapshot.getBuckets(); i++) {
+            total += snapshot.getBucketCount(i);
+            if (i > 0) {
+                Assertions.assertTrue(snapshot.getBucketLowestMicros(i) > snapshot.getBucketLowestMicros(i - 1));
+            }
+        }
+        Assertions.assertEquals(3, total);
+    }
+
+    @Test
+    void errorKind_of() {
+        Assertions.assertEquals(ErrorKind.NONE, ErrorKind.of(null));
+        Assertions.assertEquals(ErrorKind.CLIENT_ERROR, ErrorKind.of(new ApiException("Get failed",
+                new HttpClientErrorException(HttpStatus.UNAUTHORIZED))));
+        Assertions.assertEquals(ErrorKind.SERVER_ERROR, ErrorKind.of(new ApiException("Get failed",
+                new HttpServerErrorException(HttpStatus.BAD_GATEWAY))));
+        Assertions.assertEquals(ErrorKind.TIMEOUT, ErrorKind.of(new ApiException("Get failed",
+                new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")))));
+        Assertions.assertEquals(ErrorKind.CONNECTION, ErrorKind.of(new ApiException("Get failed",
+                new ResourceAccessException("I/O error", new IOException("Connection refused")))));
+        Assertions.assertEquals(ErrorKind.OTHER, ErrorKind.of(new IllegalStateException()));
+    }
+
+    @Test
+    void api_records_requests() throws Exception {
+        byte[] user = "{\"email\":\"user@example.com\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] error = "{\"error\":\"invalid_grant\"}".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/user", exchange -> {
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, "application/json");
+            exchange.sendResponseHeaders(200, user.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(user);
+            }
+        });
+        server.createContext("/token", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read() >= 0) {
+                    // drain the credentials
+                }
+            }
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, "application/json");
+            exchange.sendResponseHeaders(400, error.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(error);
+            }
+        });
+        server.start();
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueApi api = new GoTrueApi("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+            RequestMetrics metrics = new RequestMetrics();
+            api.setMetricsListener(metrics);
+            api.getUser("jwt");
+            api.getUser("jwt");
+            Assertions.assertThrows(ApiException.class, () -> api.signInWithEmail("user@example.com", "secret"));
+
+            OperationSnapshot getUser = metrics.getSnapshot("getUser");
+            Assertions.assertEquals("GET /user", getUser.getEndpoint());
+            Assertions.assertEquals(2, getUser.getCount());
+            Assertions.assertEquals(2, getUser.getStatusCount(2));
+            Assertions.assertEquals(2, getUser.getErrorCount(ErrorKind.NONE));
+            Assertions.assertEquals(0, getUser.getRequestBytes());
+            Assertions.assertEquals(2L * user.length, getUser.getResponseBytes());
+            Assertions.assertTrue(getUser.getLatency().getMaxMicros() > 0);
+
+            OperationSnapshot signIn = metrics.getSnapshot("signInWithEmail");
+            Assertions.assertEquals(1, signIn.getStatusCount(4));
+            Assertions.assertEquals(1, signIn.getErrorCount(ErrorKind.CLIENT_ERROR));
+            Assertions.assertTrue(signIn.getRequestBytes() > 0);
+            Assertions.assertEquals(error.length, signIn.getResponseBytes());
+            Assertions.assertEquals(2, metrics.getSnapshot().size());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void api_connection_refused() throws Exception {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = closed.getLocalPort();
+        }
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueApi api = new GoTrueApi("http://localhost:" + port, new HashMap<>(), transport);
+            RequestMetrics metrics = new RequestMetrics();
+            api.setMetricsListener(metrics);
+            Assertions.assertThrows(ApiException.class, () -> api.signOut("jwt"));
+            OperationSnapshot signOut = metrics.getSnapshot("signOut");
+            Assertions.assertEquals(1, signOut.getStatusCount(0));
+            Assertions.assertEquals(1, signOut.getErrorCount(ErrorKind.CONNECTION));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.CircuitOpenException;
+import io.supabase.exceptions.LimitExceededException;
+import io.supabase.utils.CircuitBreaker;
+import io.supabase.utils.CircuitBreakerConfig;
+import io.supabase.utils.ConcurrencyLimiter;
+import io.supabase.utils.ConcurrencyLimiterConfig;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import io.supabase.utils.Resilience;
+import io.supabase.utils.RetryPolicy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ResilienceTest {
+
+    private static RetryPolicy fastPolicy() {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setBaseDelay(1);
+        policy.setMaxDelay(5);
+        return policy;
+    }
+
+    private static ApiException serverError(HttpStatus status, HttpHeaders headers) {
+        return new ApiException("Get failed", HttpServerErrorException.create(status, status.getReasonPhrase(), headers, new byte[0], StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Resilience(null, new CircuitBreakerConfig()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Resilience(new RetryPolicy(), null));
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setFailureThreshold(0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(config));
+    }
+
+    @Test
+    void execute_retries_idempotent() throws Exception {
+        Resilience resilience = new Resilience(fastPolicy(), new CircuitBreakerConfig());
+        AtomicInteger attempts = new AtomicInteger();
+        String result = resilience.execute("getUser", "GET /user", true, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ApiException("Get failed", new ResourceAccessException("I/O error"));
+            }
+            return "user";
+        });
+        Assertions.assertEquals("user", result);
+        Assertions.assertEquals(3, attempts.get());
+        Assertions.assertEquals(2, resilience.getRetryCount());
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, resilience.getCircuitBreaker("GET /user").getState());
+    }
+
+    @Test
+    void execute_not_retried() {
+        Resilience resilience = new Resilience(fastPolicy(), new CircuitBreakerConfig());
+        AtomicInteger attempts = new AtomicInteger();
+        Assertions.assertThrows(ApiException.class, () -> resilience.execute("signUpWithEmail", "POST /signup", false, () -> {
+            attempts.incrementAndGet();
+            throw serverError(HttpStatus.BAD_GATEWAY, null);
+        }));
+        Assertions.assertEquals(1, attempts.get());
+
+        // client errors are not retried and do not count as failures
+        ApiException notFound = new ApiException("Get failed", HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, new byte[0], StandardCharsets.UTF_8));
+        Assertions.assertSame(notFound, Assertions.assertThrows(ApiException.class, () -> resilience.execute("getUser", "GET /user", true, () -> {
+            attempts.incrementAndGet();
+            throw notFound;
+        })));
+        Assertions.assertEquals(2, attempts.get());
+        Assertions.assertEquals(0, resilience.getRetryCount());
+
+        // an operation can be given a policy of its own
+        resilience.setRetryPolicy("signUpWithEmail", fastPolicy());
+        Assertions.assertThrows(ApiException.class, () -> resilience.execute("signUpWithEmail", "POST /signup", false, () -> {
+            attempts.incrementAndGet();
+            throw serverError(HttpStatus.BAD_GATEWAY, null);
+        }));
+        Assertions.assertEquals(5, attempts.get());
+    }
+
+    @Test
+    void execute_retry_after() throws Exception {
+        Resilience resilience = new Resilience(fastPolicy(), new CircuitBreakerConfig());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        resilience.execute("getSettings", "GET /settings", true, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw serverError(HttpStatus.SERVICE_UNAVAILABLE, headers);
+            }
+            return null;
+        });
+        Assertions.assertTrue(System.nanoTime() - start >= 1_000_000_000L);
+
+        // asked to wait longer than the policy allows
+        headers.set(HttpHeaders.RETRY_AFTER, "60");
+        Assertions.assertThrows(ApiException.class, () -> resilience.execute("getSettings", "GET /settings", true, () -> {
+            attempts.incrementAndGet();
+            throw serverError(HttpStatus.SERVICE_UNAVAILABLE, headers);
+        }));
+        Assertions.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void circuit_breaker() throws Exception {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setFailureThreshold(2);
+        config.setOpenDuration(100);
+        Resilience resilience = new Resilience(RetryPolicy.none(), config);
+        AtomicInteger attempts = new AtomicInteger();
+        Resilience.Call<String> failing = () -> {
+            attempts.incrementAndGet();
+            throw serverError(HttpStatus.INTERNAL_SERVER_ERROR, null);
+        };
+        Assertions.assertThrows(ApiException.class, () -> resilience.execute("getUser", "GET /user", true, failing));
+        Assertions.assertThrows(ApiException.class, () -> resilience.execute("getUser", "GET /user", true, failing));
+        CircuitBreaker breaker = resilience.getCircuitBreaker("GET /user");
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertThrows(CircuitOpenException.class, () -> resilience.execute("getUser", "GET /user", true, failing));
+        Assertions.assertEquals(2, attempts.get());
+        Assertions.assertEquals(1, breaker.getShortCircuitCount());
+        // other endpoints are not affected
+        Assertions.assertEquals("ok", resilience.execute("getSettings", "GET /settings", true, () -> "ok"));
+
+        Thread.sleep(150);
+        // the failed trial opens the breaker again
+        Assertions.assertThrows(ApiException.class, () -> resilience.execute("getUser", "GET /user", true, failing));
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(150);
+        Assertions.assertEquals("user", resilience.execute("getUser", "GET /user", true, () -> "user"));
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assertions.assertEquals(2, breaker.getOpenCount());
+        Assertions.assertEquals(2, breaker.getHalfOpenCount());
+        Assertions.assertEquals(1, breaker.getCloseCount());
+    }
+
+    @Test
+    void circuit_breaker_late_failure() throws Exception {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setFailureThreshold(1);
+        config.setOpenDuration(200);
+        CircuitBreaker breaker = new CircuitBreaker(config);
+        breaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(120);
+        // a call sent before the breaker opened fails late, the breaker stays open as long as it was to
+        breaker.onFailure();
+        Assertions.assertEquals(1, breaker.getOpenCount());
+        Thread.sleep(120);
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void circuit_breaker_limit_exceeded() throws Exception {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setFailureThreshold(1);
+        config.setOpenDuration(50);
+        Resilience resilience = new Resilience(RetryPolicy.none(), config);
+        CircuitBreaker breaker = resilience.getCircuitBreaker("GET /user");
+        ConcurrencyLimiterConfig limiterConfig = new ConcurrencyLimiterConfig();
+        limiterConfig.setMinLimit(1);
+        limiterConfig.setInitialLimit(1);
+        limiterConfig.setMaxQueueTime(0);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(limiterConfig);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // takes the only slot of the limiter
+            Future<String> holder = executor.submit(() -> limiter.execute(() -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new ApiException("Interrupted", e);
+                }
+                return "held";
+            }));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Assertions.assertThrows(ApiException.class, () -> resilience.execute("getUser", "GET /user", true, () -> {
+                throw serverError(HttpStatus.INTERNAL_SERVER_ERROR, null);
+            }));
+            Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            Thread.sleep(100);
+            // the trial call is rejected locally, GoTrue was not asked, so the breaker does not close
+            Assertions.assertThrows(LimitExceededException.class,
+                    () -> resilience.execute("getUser", "GET /user", true, () -> limiter.execute(() -> "user")));
+            Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            Assertions.assertEquals(0, breaker.getCloseCount());
+            Assertions.assertEquals(1, limiter.getRejectedCount());
+            // neither does an interrupted one
+            Assertions.assertThrows(ApiException.class, () -> resilience.execute("getUser", "GET /user", true, () -> {
+                throw new ApiException("Interrupted waiting for a free slot", new InterruptedException());
+            }));
+            Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+            release.countDown();
+            Assertions.assertEquals("held", holder.get(5, TimeUnit.SECONDS));
+            // the next call is the trial
+            Assertions.assertEquals("user", resilience.execute("getUser", "GET /user", true, () -> limiter.execute(() -> "user")));
+            Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            Assertions.assertEquals(1, breaker.getOpenCount());
+            Assertions.assertEquals(1, breaker.getCloseCount());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getUser_retried() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        byte[] body = "{\"email\":\"user@example.com\"}".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/user", exchange -> {
+            if (requests.incrementAndGet() < 3) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueApi api = new GoTrueApi("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+            Assertions.assertThrows(ApiException.class, () -> api.getUser("jwt"));
+            api.setResilience(new Resilience(fastPolicy(), new CircuitBreakerConfig()));
+            Assertions.assertEquals("user@example.com", api.getUser("jwt").getEmail());
+            Assertions.assertEquals(3, requests.get());
+            Assertions.assertEquals(1, api.getResilience().getRetryCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
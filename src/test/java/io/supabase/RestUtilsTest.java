@@ -83,7 +83,7 @@ class RestUtilsTest {
     @Test
     void toEntity_nulls() {
         try {
-            Method m = RestUtils.class.getDeclaredMethod("toEntity", String.class, Map.class);
+            Method m = RestUtils.class.getDeclaredMethod("toEntity", Object.class, Map.class);
             m.setAccessible(true);
             Assertions.assertDoesNotThrow(() -> m.invoke(null, null, null));
         } catch (NoSuchMethodException e) {
@@ -94,7 +94,7 @@ class RestUtilsTest {
     @Test
     void toEntity() {
         try {
-            Method m = RestUtils.class.getDeclaredMethod("toEntity", String.class, Map.class);
+            Method m = RestUtils.class.getDeclaredMethod("toEntity", Object.class, Map.class);
             m.setAccessible(true);
             Assertions.assertDoesNotThrow(() -> m.invoke(null, "{\"a\":1}", new HashMap<>()));
         } catch (NoSuchMethodException e) {
@@ -0,0 +1,211 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.AuthenticationDto;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class SessionManagerTest {
+    private final AtomicInteger refreshes = new AtomicInteger();
+    private final List<String> userTokens = new ArrayList<>();
+    private HttpServer server;
+    private HttpTransport transport;
+    private GoTrueClient client;
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String auth(int generation) {
+        return "{\"access_token\":\"access" + generation + "\",\"token_type\":\"bearer\",\"expires_in\":3600,"
+                + "\"refresh_token\":\"refresh" + generation + "\",\"user\":{\"id\":\"" + UUID.randomUUID()
+                + "\",\"email\":\"a@example.com\"}}";
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/token", exchange -> {
+            if (exchange.getRequestURI().getQuery().contains("refresh_token")) {
+                int generation = refreshes.incrementAndGet();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, auth(generation));
+            } else {
+                respond(exchange, auth(0));
+            }
+        });
+        server.createContext("/user", exchange -> {
+            synchronized (userTokens) {
+                userTokens.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            }
+            respond(exchange, "{\"id\":\"" + UUID.randomUUID() + "\",\"email\":\"a@example.com\"}");
+        });
+        server.createContext("/logout", exchange -> {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        transport = new HttpTransport(new HttpTransportConfig());
+        client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    void invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SessionManager(null));
+        SessionManager sessions = client.getSessionManager();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sessions.add(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sessions.signIn(null, "password"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sessions.refresh("unknown"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sessions.getUser(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sessions.signOut("unknown"));
+        Assertions.assertNull(sessions.get("unknown"));
+    }
+
+    @Test
+    void signIn_getUser_signOut() throws Exception {
+        SessionManager sessions = client.getSessionManager();
+        SessionManager.Session session = sessions.signIn("a@example.com", "password");
+        Assertions.assertEquals(22, session.getId().length());
+        Assertions.assertSame(session, sessions.get(session.getId()));
+        Assertions.assertEquals("access0", session.getAuth().getAccessToken());
+        // the sessions do not touch the shared current authentication
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.getCurrentAuth());
+
+        sessions.getUser(session.getId());
+        Assertions.assertEquals("Bearer access0", userTokens.get(0));
+
+        sessions.signOut(session.getId());
+        Assertions.assertEquals(0, sessions.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sessions.getUser(session.getId()));
+    }
+
+    @Test
+    void refresh_concurrent() throws Exception {
+        SessionManager sessions = client.getSessionManager();
+        SessionManager.Session first = sessions.signIn("a@example.com", "password");
+        SessionManager.Session second = sessions.signIn("b@example.com", "password");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<AuthenticationDto>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String id = i < 6 ? first.getId() : second.getId();
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return sessions.refresh(id);
+                }));
+            }
+            start.countDown();
+            Set<String> tokens = new HashSet<>();
+            for (Future<AuthenticationDto> future : futures) {
+                tokens.add(future.get().getAccessToken());
+            }
+            // one refresh per session, the waiting callers share it
+            Assertions.assertEquals(2, refreshes.get());
+            Assertions.assertEquals(2, tokens.size());
+            Assertions.assertNotEquals(first.getAuth().getAccessToken(), second.getAuth().getAccessToken());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void expire_idle() throws Exception {
+        AtomicLong now = new AtomicLong();
+        SessionManager sessions = new SessionManager(client, now::get);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sessions.setMaxIdle(-1));
+        sessions.setMaxIdle(50);
+        SessionManager.Session used = sessions.signIn("a@example.com", "password");
+        SessionManager.Session idle = sessions.signIn("b@example.com", "password");
+        SessionManager.Session swept = sessions.signIn("c@example.com", "password");
+        now.set(40);
+        Assertions.assertNotNull(sessions.get(used.getId()));
+        now.set(80);
+        Assertions.assertSame(used, sessions.get(used.getId()));
+        Assertions.assertNull(sessions.get(idle.getId()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sessions.refresh(idle.getId()));
+        Assertions.assertEquals(1, sessions.sweep());
+        Assertions.assertNull(sessions.get(swept.getId()));
+        Assertions.assertEquals(1, sessions.size());
+        Assertions.assertEquals(2, sessions.getExpirationCount());
+
+        // new sessions sweep the expired ones without a full pass
+        now.set(200);
+        for (int i = 0; i < 4; i++) {
+            sessions.add(used.getAuth());
+        }
+        Assertions.assertEquals(4, sessions.size());
+        Assertions.assertEquals(3, sessions.getExpirationCount());
+
+        sessions.setMaxIdle(0);
+        now.set(Long.MAX_VALUE / 2);
+        Assertions.assertEquals(0, sessions.sweep());
+        Assertions.assertEquals(4, sessions.size());
+    }
+
+    @Test
+    void add_concurrent() throws Exception {
+        SessionManager sessions = client.getSessionManager();
+        AuthenticationDto auth = sessions.signIn("a@example.com", "password").getAuth();
+        Assertions.assertNotNull(sessions.remove(sessions.signIn("a@example.com", "password").getId()));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    List<String> ids = new ArrayList<>();
+                    for (int i = 0; i < 5_000; i++) {
+                        ids.add(sessions.add(auth).getId());
+                    }
+                    return ids;
+                }));
+            }
+            Set<String> ids = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                ids.addAll(future.get());
+            }
+            Assertions.assertEquals(20_000, ids.size());
+            Assertions.assertEquals(20_001, sessions.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
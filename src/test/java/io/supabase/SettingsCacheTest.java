@@ -0,0 +1,142 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.SettingsDto;
+import io.supabase.exceptions.ApiException;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import io.supabase.utils.SettingsCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SettingsCacheTest {
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SettingsCache(0, etag -> null, Runnable::run));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SettingsCache(100, null, Runnable::run));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SettingsCache(100, etag -> null, null));
+    }
+
+    @Test
+    void get_fresh() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        SettingsCache cache = new SettingsCache(60_000, etag -> {
+            loads.incrementAndGet();
+            return ResponseEntity.ok(new SettingsDto());
+        }, Runnable::run);
+        SettingsDto settings = cache.get();
+        Assertions.assertSame(settings, cache.get());
+        Assertions.assertSame(settings, cache.get());
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(2, cache.getHitCount());
+        cache.invalidate();
+        Assertions.assertNotSame(settings, cache.get());
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_stale_while_revalidate() throws Exception {
+        List<String> etags = new ArrayList<>();
+        List<SettingsDto> sent = new ArrayList<>();
+        SettingsCache cache = new SettingsCache(1, etag -> {
+            etags.add(etag);
+            if ("\"v1\"".equals(etag) && etags.size() == 2) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("\"v1\"").build();
+            }
+            SettingsDto settings = new SettingsDto();
+            sent.add(settings);
+            return ResponseEntity.ok().eTag("\"v" + sent.size() + "\"").body(settings);
+        }, Runnable::run);
+        SettingsDto first = cache.get();
+        Thread.sleep(5);
+        // stale, returned while the conditional refresh finds it unchanged
+        Assertions.assertSame(first, cache.get());
+        Assertions.assertEquals(1, cache.getNotModifiedCount());
+        Thread.sleep(5);
+        // stale again, the refresh gets new settings
+        Assertions.assertSame(first, cache.get());
+        Assertions.assertEquals(3, etags.size());
+        Assertions.assertNull(etags.get(0));
+        Assertions.assertEquals("\"v1\"", etags.get(1));
+        Assertions.assertEquals("\"v1\"", etags.get(2));
+        Assertions.assertEquals(2, cache.getStaleHitCount());
+        Assertions.assertSame(sent.get(1), cache.get());
+    }
+
+    @Test
+    void get_refresh_failed() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        SettingsCache cache = new SettingsCache(1, etag -> {
+            if (loads.incrementAndGet() > 1) {
+                throw new ApiException("Get failed", null);
+            }
+            return ResponseEntity.ok(new SettingsDto());
+        }, Runnable::run);
+        SettingsDto settings = cache.get();
+        Thread.sleep(5);
+        Assertions.assertSame(settings, cache.get());
+        Assertions.assertSame(settings, cache.get());
+        Assertions.assertEquals(2, cache.getFailureCount());
+    }
+
+    @Test
+    void getSettings_conditional() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger notModified = new AtomicInteger();
+        byte[] body = "{\"disable_signup\":false}".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/settings", exchange -> {
+            requests.incrementAndGet();
+            exchange.getResponseHeaders().add(HttpHeaders.ETAG, "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueApi api = new GoTrueApi("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> api.setSettingsTtl(-1));
+            api.getSettings();
+            api.getSettings();
+            Assertions.assertEquals(2, requests.get());
+            Assertions.assertNull(api.getSettingsCache());
+
+            api.setSettingsTtl(1);
+            SettingsDto settings = api.getSettings();
+            Assertions.assertFalse(settings.getDisableSignup());
+            Thread.sleep(5);
+            Assertions.assertSame(settings, api.getSettings());
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (api.getSettingsCache().getNotModifiedCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Assertions.assertEquals(1, api.getSettingsCache().getNotModifiedCount());
+            Assertions.assertEquals(1, notModified.get());
+
+            api.setSettingsTtl(0);
+            Assertions.assertNull(api.getSettingsCache());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
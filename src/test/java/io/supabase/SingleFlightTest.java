@@ -0,0 +1,152 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.UserDto;
+import io.supabase.exceptions.ApiException;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import io.supabase.utils.SingleFlight;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightTest {
+
+    @Test
+    void execute_shares_result() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<Object> leader = executor.submit(() -> flight.execute("key", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return new Object();
+            }));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<Object>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> flight.execute("key", () -> {
+                    calls.incrementAndGet();
+                    return new Object();
+                })));
+            }
+            while (flight.getSharedCount() < 7) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            Object result = leader.get(5, TimeUnit.SECONDS);
+            for (Future<Object> follower : followers) {
+                Assertions.assertSame(result, follower.get(5, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(1, calls.get());
+            Assertions.assertEquals(1, flight.getCallCount());
+            Assertions.assertEquals(7, flight.getSharedCount());
+            Assertions.assertEquals(0, flight.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_shares_error() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ApiException error = new ApiException("Get failed", null);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = executor.submit(() -> flight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                throw error;
+            }));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Object> follower = executor.submit(() -> flight.execute("key", Object::new));
+            while (flight.getSharedCount() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            Assertions.assertSame(error, Assertions.assertThrows(Exception.class, leader::get).getCause());
+            Assertions.assertSame(error, Assertions.assertThrows(Exception.class, follower::get).getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_not_cached() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        Object first = flight.execute("key", Object::new);
+        Assertions.assertNotSame(first, flight.execute("key", Object::new));
+        Assertions.assertNotSame(first, flight.execute("other", Object::new));
+        Assertions.assertEquals(3, flight.getCallCount());
+        Assertions.assertEquals(0, flight.getSharedCount());
+    }
+
+    @Test
+    void getUser_coalesced() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        byte[] body = ("{\"id\":\"" + UUID.randomUUID() + "\",\"email\":\"user@example.com\"}").getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/user", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueApi api = new GoTrueApi("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+            List<Future<UserDto>> users = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                String jwt = i % 2 == 0 ? "first" : "second";
+                users.add(executor.submit(() -> api.getUser(jwt)));
+            }
+            for (Future<UserDto> user : users) {
+                Assertions.assertEquals("user@example.com", user.get(5, TimeUnit.SECONDS).getEmail());
+            }
+            // one request per token, all others joined it
+            Assertions.assertEquals(requests.get(), api.getSingleFlight().getCallCount());
+            Assertions.assertEquals(10, api.getSingleFlight().getCallCount() + api.getSingleFlight().getSharedCount());
+            Assertions.assertTrue(requests.get() < 10);
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
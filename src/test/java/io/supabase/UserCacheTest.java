@@ -0,0 +1,231 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.UserAttributesDto;
+import io.supabase.data.dto.UserDto;
+import io.supabase.utils.HttpTransport;
+import io.supabase.utils.HttpTransportConfig;
+import io.supabase.utils.UserCache;
+import io.supabase.utils.UserCacheConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class UserCacheTest {
+
+    private static String token(String payload) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+
+    private static String token(long expSeconds, String sub) {
+        return token("{\"sub\":\"" + sub + "\",\"exp\":" + expSeconds + "}");
+    }
+
+    private static long inSeconds(long seconds) {
+        return System.currentTimeMillis() / 1000 + seconds;
+    }
+
+    private static UserDto user(String email) {
+        UserDto user = new UserDto();
+        user.setEmail(email);
+        return user;
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new UserCache(null));
+        UserCacheConfig config = new UserCacheConfig();
+        config.setMaxEntries(0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new UserCache(config));
+        config.setMaxEntries(10);
+        config.setMaxBytes(-1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new UserCache(config));
+    }
+
+    @Test
+    void get_put_invalidate() {
+        UserCache cache = new UserCache(new UserCacheConfig());
+        String jwt = token(inSeconds(3600), "a");
+        UserDto user = user("a@example.com");
+        Assertions.assertNull(cache.get(jwt));
+        cache.put(jwt, user);
+        Assertions.assertSame(user, cache.get(jwt));
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertTrue(cache.getEstimatedBytes() > 0);
+        cache.invalidate(jwt);
+        Assertions.assertNull(cache.get(jwt));
+        Assertions.assertEquals(0, cache.getEstimatedBytes());
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(2, cache.getMissCount());
+        Assertions.assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    void put_after_invalidate() {
+        UserCache cache = new UserCache(new UserCacheConfig());
+        String jwt = token(inSeconds(3600), "a");
+        long stamp = cache.stamp(jwt);
+        // signed out while the user was fetched
+        cache.invalidate(jwt);
+        cache.put(jwt, user("a@example.com"), stamp);
+        Assertions.assertNull(cache.get(jwt));
+        stamp = cache.stamp(jwt);
+        cache.clear();
+        cache.put(jwt, user("a@example.com"), stamp);
+        Assertions.assertNull(cache.get(jwt));
+        cache.put(jwt, user("a@example.com"), cache.stamp(jwt));
+        Assertions.assertNotNull(cache.get(jwt));
+    }
+
+    @Test
+    void put_expired_or_unreadable() {
+        UserCache cache = new UserCache(new UserCacheConfig());
+        cache.put(token(inSeconds(-10), "a"), user("a@example.com"));
+        cache.put("not.a-token.!", user("b@example.com"));
+        cache.put("opaque", user("c@example.com"));
+        Assertions.assertEquals(0, cache.size());
+        // tokens without exp are only bounded by the maximum staleness
+        cache.put(token("{\"sub\":\"d\"}"), user("d@example.com"));
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    void get_token_expired() throws Exception {
+        UserCache cache = new UserCache(new UserCacheConfig());
+        String jwt = token(inSeconds(1), "a");
+        cache.put(jwt, user("a@example.com"));
+        Assertions.assertNotNull(cache.get(jwt));
+        Thread.sleep(2100);
+        Assertions.assertNull(cache.get(jwt));
+        Assertions.assertEquals(1, cache.getExpirationCount());
+    }
+
+    @Test
+    void get_stale() throws Exception {
+        UserCacheConfig config = new UserCacheConfig();
+        config.setMaxStaleness(20);
+        UserCache cache = new UserCache(config);
+        String jwt = token(inSeconds(3600), "a");
+        cache.put(jwt, user("a@example.com"));
+        Thread.sleep(50);
+        Assertions.assertNull(cache.get(jwt));
+        Assertions.assertEquals(1, cache.getExpirationCount());
+    }
+
+    @Test
+    void eviction_by_count_and_bytes() {
+        UserCacheConfig config = new UserCacheConfig();
+        config.setMaxEntries(1);
+        UserCache byCount = new UserCache(config);
+        byCount.put(token(inSeconds(3600), "a"), user("a@example.com"));
+        byCount.put(token(inSeconds(3600), "b"), user("b@example.com"));
+        Assertions.assertEquals(1, byCount.size());
+        Assertions.assertEquals(1, byCount.getEvictionCount());
+
+        config.setMaxEntries(10_000);
+        config.setMaxBytes(1);
+        UserCache byBytes = new UserCache(config);
+        for (int i = 0; i < 100; i++) {
+            byBytes.put(token(inSeconds(3600), "user" + i), user("user" + i + "@example.com"));
+        }
+        // every segment keeps a single user larger than its budget
+        Assertions.assertTrue(byBytes.size() < 100);
+        Assertions.assertEquals(100, byBytes.size() + byBytes.getEvictionCount());
+    }
+
+    @Test
+    void client_getUser_cached() throws Exception {
+        AtomicInteger userRequests = new AtomicInteger();
+        byte[] body = ("{\"id\":\"" + UUID.randomUUID() + "\",\"email\":\"a@example.com\"}").getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/user", exchange -> {
+            userRequests.incrementAndGet();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/logout", exchange -> {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueClient client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+            client.setUserCache(new UserCache(new UserCacheConfig()));
+            String jwt = token(inSeconds(3600), "a");
+            UserDto user = client.getUser(jwt);
+            Assertions.assertSame(user, client.getUser(jwt));
+            Assertions.assertEquals(1, userRequests.get());
+            client.signOut(jwt);
+            Assertions.assertEquals(1, client.getUserCache().getInvalidationCount());
+            client.getUser(jwt);
+            Assertions.assertEquals(2, userRequests.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void client_getUser_joining_after_update() throws Exception {
+        CountDownLatch parked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger userRequests = new AtomicInteger();
+        byte[] body = ("{\"id\":\"" + UUID.randomUUID() + "\",\"email\":\"a@example.com\"}").getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/user", exchange -> {
+            if ("GET".equals(exchange.getRequestMethod()) && userRequests.incrementAndGet() == 1) {
+                parked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try (HttpTransport transport = new HttpTransport(new HttpTransportConfig())) {
+            GoTrueClient client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), new HashMap<>(), transport);
+            client.setUserCache(new UserCache(new UserCacheConfig()));
+            String jwt = token(inSeconds(3600), "a");
+            Future<UserDto> first = callers.submit(() -> client.getUser(jwt));
+            Assertions.assertTrue(parked.await(5, TimeUnit.SECONDS));
+            client.update(jwt, new UserAttributesDto());
+            // joins the flight started before the update
+            Future<UserDto> second = callers.submit(() -> client.getUser(jwt));
+            while (client.getSingleFlight().getSharedCount() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            Assertions.assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            Assertions.assertNull(client.getUserCache().get(jwt));
+            Assertions.assertEquals(1, userRequests.get());
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+            server.stop(0);
+        }
+    }
+}
@@ -5,10 +5,23 @@ import io.supabase.data.dto.SettingsDto;
 import io.supabase.data.dto.UserDto;
 import io.supabase.data.dto.UserUpdatedDto;
 import io.supabase.data.jwt.ParsedToken;
+import io.supabase.exceptions.JwtSecretNotFoundException;
+import io.supabase.utils.ClientUtils;
 import org.junit.jupiter.api.Assertions;
 
 class Utils {
 
+    /**
+     * Makes the next parse read the jwt secret again, it is only read once otherwise.
+     */
+    protected static void resetJwtVerifier() {
+        try {
+            ClientUtils.reloadJwtVerifier();
+        } catch (JwtSecretNotFoundException e) {
+            // no secret, no verifier
+        }
+    }
+
     protected static void assertAuthDto(AuthenticationDto dto) {
         Assertions.assertNotNull(dto);
         Assertions.assertNotNull(dto.getAccessToken());
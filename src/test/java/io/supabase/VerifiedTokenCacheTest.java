@@ -0,0 +1,82 @@
+package io.supabase;
+
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.VerifiedTokenCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+class VerifiedTokenCacheTest {
+    private static final String secret = "superSecretJwtToken";
+
+    private static ParsedToken parsedToken(Date exp) {
+        return new ParsedToken(exp, null, null, null, null);
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new VerifiedTokenCache(0));
+    }
+
+    @Test
+    void get_put() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        ParsedToken t = parsedToken(JwtVerifierTest.inOneHour());
+        Assertions.assertNull(cache.get("a.b.c"));
+        cache.put("a.b.c", t);
+        Assertions.assertSame(t, cache.get("a.b.c"));
+        Assertions.assertNull(cache.get("a.b.d"));
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(2, cache.getMissCount());
+        Assertions.assertEquals(1, cache.size());
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void expired() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        // already expired tokens are not cached at all
+        cache.put("a.b.c", parsedToken(new Date(1000)));
+        Assertions.assertEquals(0, cache.size());
+
+        cache.put("a.b.c", parsedToken(new Date(System.currentTimeMillis() + 50)));
+        Assertions.assertNotNull(cache.get("a.b.c"));
+        Assertions.assertDoesNotThrow(() -> Thread.sleep(100));
+        Assertions.assertNull(cache.get("a.b.c"));
+        Assertions.assertEquals(1, cache.getExpirationCount());
+    }
+
+    @Test
+    void evicted() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(1);
+        cache.put("a.b.c", parsedToken(null));
+        cache.put("a.b.d", parsedToken(null));
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(1, cache.getEvictionCount());
+        Assertions.assertNull(cache.get("a.b.c"));
+        Assertions.assertNotNull(cache.get("a.b.d"));
+    }
+
+    @Test
+    void verifier() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        JwtVerifier verifier = new JwtVerifier(secret, cache);
+        String jwt = JwtVerifierTest.token(secret, JwtVerifierTest.inOneHour());
+        ParsedToken t = verifier.parse(jwt);
+        Assertions.assertSame(t, verifier.parse(jwt));
+        Assertions.assertTrue(verifier.isValid(jwt));
+        Assertions.assertEquals(2, cache.getHitCount());
+        // invalid tokens are never cached
+        String invalid = JwtVerifierTest.token("anotherSecret", JwtVerifierTest.inOneHour());
+        Assertions.assertFalse(verifier.isValid(invalid));
+        Assertions.assertFalse(verifier.isValid(invalid));
+        Assertions.assertEquals(1, cache.size());
+        // another payload with the signature of the cached token is no hit
+        String other = JwtVerifierTest.token(secret, new Date(System.currentTimeMillis() + 7_200_000));
+        String forged = other.substring(0, other.lastIndexOf('.')) + jwt.substring(jwt.lastIndexOf('.'));
+        Assertions.assertFalse(verifier.isValid(forged));
+    }
+}
@@ -0,0 +1,130 @@
+package io.supabase.web;
+
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.exceptions.JwtSecretNotFoundException;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.VerificationResult;
+import io.supabase.utils.ClientUtils;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Verifies the bearer token of a request exactly once and attaches the {@link ParsedToken} to the request.
+ * <p>
+ * Used by {@link GoTrueAuthenticationFilter} and {@link GoTrueAuthenticationInterceptor}, a request which passed
+ * one of them is not verified again by the other. Tokens are verified with {@link JwtVerifier#tryParse(String)},
+ * so rejected tokens do not throw, and tokens are cached if the verifier has a cache. An instance is thread-safe.
+ */
+public class BearerTokenAuthenticator {
+    /**
+     * Request attribute holding the {@link ParsedToken} of an authenticated request.
+     */
+    public static final String TOKEN_ATTRIBUTE = ParsedToken.class.getName();
+    /**
+     * Request attribute holding how long the verification of the token took, as {@link Long} in nanoseconds.
+     */
+    public static final String VERIFICATION_NANOS_ATTRIBUTE = BearerTokenAuthenticator.class.getName() + ".nanos";
+    private static final String BEARER = "Bearer ";
+
+    private final JwtVerifier verifier;
+    private final boolean required;
+    private final VerificationListener listener;
+
+    /**
+     * Creates an authenticator which rejects requests without a valid bearer token.
+     *
+     * @param verifier the verifier for the tokens.
+     * @throws IllegalArgumentException if the verifier is not specified.
+     */
+    public BearerTokenAuthenticator(JwtVerifier verifier) {
+        this(verifier, true, null);
+    }
+
+    /**
+     * Creates an authenticator.
+     *
+     * @param verifier the verifier for the tokens, with a {@link io.supabase.jwt.VerifiedTokenCache} to cache them.
+     * @param required whether requests without a bearer token are rejected, invalid tokens are always rejected.
+     * @param listener notified of every verification or null.
+     * @throws IllegalArgumentException if the verifier is not specified.
+     */
+    public BearerTokenAuthenticator(JwtVerifier verifier, boolean required, VerificationListener listener) {
+        if (verifier == null) {
+            throw new IllegalArgumentException("The parameter >verifier< is required!");
+        }
+        this.verifier = verifier;
+        this.required = required;
+        this.listener = listener;
+    }
+
+    /**
+     * Creates an authenticator for the specified jwt secret which rejects requests without a valid bearer token.
+     * If a cache size is specified, verified tokens are cached.
+     *
+     * @return an authenticator for the specified jwt secret.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified.
+     */
+    public static BearerTokenAuthenticator fromEnvironment() throws JwtSecretNotFoundException {
+        return new BearerTokenAuthenticator(ClientUtils.getJwtVerifier());
+    }
+
+    /**
+     * Gets the token of an authenticated request.
+     *
+     * @param request the request.
+     * @return the parsed token or null if the request carries no valid token.
+     */
+    public static ParsedToken getToken(ServletRequest request) {
+        Object token = request.getAttribute(TOKEN_ATTRIBUTE);
+        return token instanceof ParsedToken ? (ParsedToken) token : null;
+    }
+
+    /**
+     * Verifies the bearer token of a request and attaches it to the request.
+     * Rejected requests are answered with 401 Unauthorized.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @return whether the request may proceed.
+     * @throws IOException if the response can not be sent.
+     */
+    public boolean authenticate(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (getToken(request) != null) {
+            return true;
+        }
+        String jwt = bearerToken(request);
+        if (jwt == null) {
+            if (required) {
+                response.setHeader("WWW-Authenticate", "Bearer");
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+                return false;
+            }
+            return true;
+        }
+        long start = System.nanoTime();
+        VerificationResult result = verifier.tryParse(jwt);
+        long nanos = System.nanoTime() - start;
+        request.setAttribute(VERIFICATION_NANOS_ATTRIBUTE, nanos);
+        if (listener != null) {
+            listener.verified(result, nanos);
+        }
+        if (!result.isValid()) {
+            response.setHeader("WWW-Authenticate", "Bearer error=\"invalid_token\"");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return false;
+        }
+        request.setAttribute(TOKEN_ATTRIBUTE, result.getToken());
+        return true;
+    }
+
+    private static String bearerToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header == null || !header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return null;
+        }
+        return header.substring(BEARER.length()).trim();
+    }
+}
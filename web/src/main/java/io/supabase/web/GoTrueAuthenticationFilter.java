@@ -0,0 +1,60 @@
+package io.supabase.web;
+
+import io.supabase.exceptions.JwtSecretNotFoundException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Servlet filter which only lets requests with a valid GoTrue bearer token through.
+ * The parsed token is available via {@link BearerTokenAuthenticator#getToken(ServletRequest)}.
+ */
+public class GoTrueAuthenticationFilter implements Filter {
+    private volatile BearerTokenAuthenticator authenticator;
+
+    /**
+     * Creates a filter for the specified jwt secret, set up when the filter is initialized.
+     */
+    public GoTrueAuthenticationFilter() {
+    }
+
+    /**
+     * Creates a filter with the given authenticator.
+     *
+     * @param authenticator the authenticator for the requests.
+     * @throws IllegalArgumentException if the authenticator is not specified.
+     */
+    public GoTrueAuthenticationFilter(BearerTokenAuthenticator authenticator) {
+        if (authenticator == null) {
+            throw new IllegalArgumentException("The parameter >authenticator< is required!");
+        }
+        this.authenticator = authenticator;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        if (authenticator == null) {
+            try {
+                authenticator = BearerTokenAuthenticator.fromEnvironment();
+            } catch (JwtSecretNotFoundException e) {
+                throw new ServletException(e);
+            }
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (request instanceof HttpServletRequest && response instanceof HttpServletResponse
+                && !authenticator.authenticate((HttpServletRequest) request, (HttpServletResponse) response)) {
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
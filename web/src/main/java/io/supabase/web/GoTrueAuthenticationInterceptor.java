@@ -0,0 +1,33 @@
+package io.supabase.web;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Spring MVC interceptor which only lets requests with a valid GoTrue bearer token reach the handler.
+ * The parsed token is available via {@link BearerTokenAuthenticator#getToken(javax.servlet.ServletRequest)}.
+ */
+public class GoTrueAuthenticationInterceptor implements HandlerInterceptor {
+    private final BearerTokenAuthenticator authenticator;
+
+    /**
+     * Creates an interceptor with the given authenticator.
+     *
+     * @param authenticator the authenticator for the requests.
+     * @throws IllegalArgumentException if the authenticator is not specified.
+     */
+    public GoTrueAuthenticationInterceptor(BearerTokenAuthenticator authenticator) {
+        if (authenticator == null) {
+            throw new IllegalArgumentException("The parameter >authenticator< is required!");
+        }
+        this.authenticator = authenticator;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        return authenticator.authenticate(request, response);
+    }
+}
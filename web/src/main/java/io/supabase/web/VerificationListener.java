@@ -0,0 +1,18 @@
+package io.supabase.web;
+
+import io.supabase.jwt.VerificationResult;
+
+/**
+ * Receives the outcome and the latency of every bearer token verification, e.g. to record them as metrics.
+ * Implementations are called on the request thread and should return quickly.
+ */
+@FunctionalInterface
+public interface VerificationListener {
+    /**
+     * Called once for every request which carries a bearer token.
+     *
+     * @param result the parsed token or the reason it was rejected.
+     * @param nanos  how long the verification took, in nanoseconds.
+     */
+    void verified(VerificationResult result, long nanos);
+}
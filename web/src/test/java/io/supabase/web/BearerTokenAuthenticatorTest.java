@@ -0,0 +1,100 @@
+package io.supabase.web;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.RejectionReason;
+import io.supabase.jwt.VerificationResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+class BearerTokenAuthenticatorTest {
+    private static final String secret = "superSecretJwtToken";
+
+    private static String token(String secret) {
+        return Jwts.builder()
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .claim("role", "authenticated")
+                .signWith(SignatureAlgorithm.HS256, secret.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+
+    private static MockHttpServletRequest request(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BearerTokenAuthenticator(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new GoTrueAuthenticationFilter(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new GoTrueAuthenticationInterceptor(null));
+    }
+
+    @Test
+    void filter_valid() throws Exception {
+        List<VerificationResult> results = new ArrayList<>();
+        BearerTokenAuthenticator authenticator = new BearerTokenAuthenticator(new JwtVerifier(secret), true,
+                (result, nanos) -> results.add(result));
+        MockHttpServletRequest request = request("Bearer " + token(secret));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        new GoTrueAuthenticationFilter(authenticator).doFilter(request, response, chain);
+
+        Assertions.assertSame(request, chain.getRequest());
+        Assertions.assertEquals("a942b3d1-3a52-4457-8c4f-88d07c2dbe30", BearerTokenAuthenticator.getToken(request).getSub());
+        Assertions.assertTrue((Long) request.getAttribute(BearerTokenAuthenticator.VERIFICATION_NANOS_ATTRIBUTE) >= 0);
+        Assertions.assertEquals(1, results.size());
+
+        // the interceptor does not verify the token again
+        Assertions.assertTrue(new GoTrueAuthenticationInterceptor(authenticator).preHandle(request, response, null));
+        Assertions.assertEquals(1, results.size());
+    }
+
+    @Test
+    void filter_invalid() throws Exception {
+        List<VerificationResult> results = new ArrayList<>();
+        BearerTokenAuthenticator authenticator = new BearerTokenAuthenticator(new JwtVerifier(secret), false,
+                (result, nanos) -> results.add(result));
+        MockHttpServletRequest request = request("Bearer " + token("anotherSecret"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        new GoTrueAuthenticationFilter(authenticator).doFilter(request, response, chain);
+
+        Assertions.assertNull(chain.getRequest());
+        Assertions.assertEquals(401, response.getStatus());
+        Assertions.assertEquals("Bearer error=\"invalid_token\"", response.getHeader("WWW-Authenticate"));
+        Assertions.assertNull(BearerTokenAuthenticator.getToken(request));
+        Assertions.assertEquals(RejectionReason.INVALID_SIGNATURE, results.get(0).getRejectionReason());
+    }
+
+    @Test
+    void interceptor_missing_token() throws Exception {
+        BearerTokenAuthenticator required = new BearerTokenAuthenticator(new JwtVerifier(secret));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertFalse(new GoTrueAuthenticationInterceptor(required).preHandle(request(null), response, null));
+        Assertions.assertEquals(401, response.getStatus());
+        Assertions.assertEquals("Bearer", response.getHeader("WWW-Authenticate"));
+
+        MockHttpServletResponse basic = new MockHttpServletResponse();
+        Assertions.assertFalse(new GoTrueAuthenticationInterceptor(required).preHandle(request("Basic abc"), basic, null));
+        Assertions.assertEquals(401, basic.getStatus());
+
+        BearerTokenAuthenticator optional = new BearerTokenAuthenticator(new JwtVerifier(secret), false, null);
+        MockHttpServletRequest request = request(null);
+        Assertions.assertTrue(new GoTrueAuthenticationInterceptor(optional).preHandle(request, new MockHttpServletResponse(), null));
+        Assertions.assertNull(BearerTokenAuthenticator.getToken(request));
+    }
+}